@@ -0,0 +1,79 @@
+package comshopsquare.apigateway.admission;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admits routed requests through the {@link AdmissionController} at the priority in their route's
+ * {@code priority} metadata ({@code critical}, {@code standard} or {@code sheddable}; {@code standard}
+ * if unset), and answers the ones it sheds at once with a 503 and {@code Retry-After}. It runs after
+ * the route's own filters, so cache hits and rate-limited requests never take a slot. Each admitted
+ * request is timed until its response is committed, so a slow client reading the body does not count as
+ * service latency; the slot itself is held until the exchange ends.
+ *
+ * <pre>
+ * - id: orderservice
+ *   metadata:
+ *     priority: critical
+ * </pre>
+ */
+@Component
+public class AdmissionControlFilter implements GlobalFilter, Ordered {
+
+    public static final String PRIORITY_METADATA = "priority";
+
+    private final AdmissionController admissionController;
+
+    public AdmissionControlFilter(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    // Before the Hedge filter, so a hedged request holds one slot
+    @Override
+    public int getOrder() {
+        return RouteToRequestUrlFilter.ROUTE_TO_URL_FILTER_ORDER - 2;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        AdmissionController.Priority priority = AdmissionController.Priority.of(route.getMetadata().get(PRIORITY_METADATA));
+        if (!admissionController.tryAcquire(priority)) {
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+            return exchange.getResponse().setComplete();
+        }
+        long start = System.nanoTime();
+        AtomicLong rtt = new AtomicLong(-1);
+        exchange.getResponse().beforeCommit(() -> {
+            rtt.compareAndSet(-1, System.nanoTime() - start);
+            return Mono.empty();
+        });
+        return chain.filter(exchange).doFinally(signal -> {
+            long now = System.nanoTime();
+            if (rtt.get() >= 0) {
+                admissionController.complete(rtt.get(), now);
+            } else if (signal == SignalType.ON_ERROR) {
+                // The error response is written later by the error handler; the service's part ends here
+                admissionController.complete(now - start, now);
+            } else {
+                admissionController.release();
+            }
+        });
+    }
+}
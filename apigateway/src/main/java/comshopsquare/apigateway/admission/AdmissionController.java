@@ -0,0 +1,180 @@
+package comshopsquare.apigateway.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits how many requests the gateway has in flight to the services, with a limit that follows
+ * backend latency (the gradient method). Every {@code window-ms} the average latency of the window is
+ * compared with the unqueued latency: while it stays within {@code tolerance} times that the limit
+ * creeps up, and when it rises past it the limit shrinks in proportion, so the services are kept near
+ * full use without queues building up in them.
+ *
+ * <p>Requests are admitted by priority: {@code critical} ones up to the whole limit, {@code standard}
+ * ones only while fewer than {@code standard-share} of it are in flight and {@code sheddable} ones below
+ * {@code sheddable-share}. Under overload the lowest tier is refused first and the higher tiers keep the
+ * rest of the limit. Outcomes are counted per tier in {@code gateway.admission.requests}.
+ */
+@Component
+public class AdmissionController {
+
+    public enum Priority {
+        CRITICAL, STANDARD, SHEDDABLE;
+
+        /**
+         * The priority named by {@code value} (any case), or {@code STANDARD} for anything else.
+         */
+        public static Priority of(Object value) {
+            if (value instanceof String name) {
+                for (Priority priority : values()) {
+                    if (priority.name().equalsIgnoreCase(name)) {
+                        return priority;
+                    }
+                }
+            }
+            return STANDARD;
+        }
+    }
+
+    // The unqueued latency follows slower windows over about this many of them
+    private static final double LONG_WINDOWS = 600;
+    // A window is extended until it has this many samples
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    // How far the limit moves towards each new estimate
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final long windowNanos;
+    private final double[] shares = new double[Priority.values().length];
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter[] admitted = new Counter[Priority.values().length];
+    private final Counter[] shed = new Counter[Priority.values().length];
+
+    // Written under this; read without it
+    private volatile double limit;
+    // Guarded by this
+    private long windowStart;
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private double unqueuedRtt;
+
+    public AdmissionController(@Value("${gateway.admission.initial-limit:100}") int initialLimit,
+                               @Value("${gateway.admission.min-limit:10}") int minLimit,
+                               @Value("${gateway.admission.max-limit:2000}") int maxLimit,
+                               @Value("${gateway.admission.tolerance:1.5}") double tolerance,
+                               @Value("${gateway.admission.window-ms:100}") long windowMs,
+                               @Value("${gateway.admission.standard-share:0.8}") double standardShare,
+                               @Value("${gateway.admission.sheddable-share:0.5}") double sheddableShare,
+                               ObjectProvider<MeterRegistry> meterRegistry) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        shares[Priority.CRITICAL.ordinal()] = 1;
+        shares[Priority.STANDARD.ordinal()] = standardShare;
+        shares[Priority.SHEDDABLE.ordinal()] = sheddableShare;
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            for (Priority priority : Priority.values()) {
+                String tier = priority.name().toLowerCase();
+                admitted[priority.ordinal()] = registry.counter("gateway.admission.requests",
+                        "priority", tier, "result", "admitted");
+                shed[priority.ordinal()] = registry.counter("gateway.admission.requests",
+                        "priority", tier, "result", "shed");
+            }
+            Gauge.builder("gateway.admission.limit", this, AdmissionController::limit)
+                    .description("Requests the gateway currently lets be in flight to the services")
+                    .register(registry);
+            Gauge.builder("gateway.admission.in-flight", inFlight, AtomicInteger::get)
+                    .description("Admitted requests waiting for a service")
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Admits a request of {@code priority} if its tier has room; every admitted request must later be
+     * passed to {@link #complete} or {@link #release}.
+     */
+    public boolean tryAcquire(Priority priority) {
+        int allowed = Math.max(1, (int) (limit * shares[priority.ordinal()]));
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= allowed) {
+                count(shed, priority);
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        count(admitted, priority);
+        return true;
+    }
+
+    /**
+     * Ends an admitted request that took {@code rttNanos} in the service and finished at {@code now}, in
+     * {@link System#nanoTime()} units, and adjusts the limit when that closes a window.
+     */
+    public void complete(long rttNanos, long now) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        update(rttNanos, inFlightBefore, now);
+    }
+
+    /**
+     * Ends an admitted request whose latency says nothing about the services, e.g. a cancelled one.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public double limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void update(long rttNanos, int inFlightBefore, long now) {
+        windowRttSum += Math.max(rttNanos, 1);
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightBefore);
+        if (windowSamples < MIN_WINDOW_SAMPLES || now - windowStart < windowNanos) {
+            return;
+        }
+        double rtt = (double) windowRttSum / windowSamples;
+        int maxInFlight = windowMaxInFlight;
+        windowStart = now;
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+        // Drops to a faster window at once but follows slower ones only gradually, so queues building
+        // up under a high limit do not become the new normal
+        unqueuedRtt = unqueuedRtt == 0 ? rtt : Math.min(rtt, unqueuedRtt + (rtt - unqueuedRtt) / LONG_WINDOWS);
+        // Too little traffic to tell whether a higher limit would be safe
+        if (maxInFlight < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * unqueuedRtt / rtt));
+        // A few requests may queue in the services, so a full limit can still be noticed and grown
+        double target = limit * gradient + Math.sqrt(limit);
+        double smoothed = limit * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+    }
+
+    private static void count(Counter[] counters, Priority priority) {
+        Counter counter = counters[priority.ordinal()];
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+}
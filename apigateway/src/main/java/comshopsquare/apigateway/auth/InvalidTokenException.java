@@ -0,0 +1,11 @@
+package comshopsquare.apigateway.auth;
+
+/**
+ * Thrown when an access token is malformed, carries a bad signature, or has expired.
+ */
+public class InvalidTokenException extends Exception {
+
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,112 @@
+package comshopsquare.apigateway.auth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Token verification keys published by USER-SERVICE, fetched on startup and every
+ * {@code gateway.auth.key-refresh-ms}. A token naming an unknown key triggers an early fetch, so a
+ * rotation is picked up on first use, but at most once per {@code gateway.auth.min-key-fetch-interval-ms}
+ * so that forged key IDs cannot turn into a flood of calls. Concurrent fetches share one request.
+ */
+@Component
+public class SigningKeyCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SigningKeyCache.class);
+
+    private final WebClient webClient;
+
+    @Value("${gateway.auth.user-service:user-service}")
+    private String userServiceName;
+
+    @Value("${gateway.auth.min-key-fetch-interval-ms:10000}")
+    private long minFetchIntervalMs;
+
+    @Value("${gateway.auth.key-fetch-timeout-ms:2000}")
+    private long fetchTimeoutMs;
+
+    private volatile Map<String, PublicKey> keys = Map.of();
+    private volatile long lastFetchMillis;
+    private final AtomicReference<Mono<Map<String, PublicKey>>> inFlight = new AtomicReference<>();
+
+    public SigningKeyCache(WebClient.Builder loadBalancedWebClientBuilder) {
+        this.webClient = loadBalancedWebClientBuilder.build();
+    }
+
+    /**
+     * The key with ID {@code kid}, or empty if USER-SERVICE does not publish one.
+     */
+    public Mono<PublicKey> key(String kid) {
+        PublicKey key = keys.get(kid);
+        if (key != null) {
+            return Mono.just(key);
+        }
+        if (System.currentTimeMillis() - lastFetchMillis < minFetchIntervalMs) {
+            return Mono.empty();
+        }
+        return fetch().mapNotNull(fetched -> fetched.get(kid));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${gateway.auth.key-refresh-ms:300000}", initialDelayString = "${gateway.auth.key-refresh-ms:300000}")
+    public void refresh() {
+        fetch().subscribe();
+    }
+
+    private Mono<Map<String, PublicKey>> fetch() {
+        Mono<Map<String, PublicKey>> running = inFlight.get();
+        if (running != null) {
+            return running;
+        }
+        Mono<Map<String, PublicKey>> request = webClient.get()
+                .uri("http://" + userServiceName + "/api/users/auth/keys")
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(Duration.ofMillis(fetchTimeoutMs))
+                .map(this::toKeys)
+                .doOnNext(fetched -> keys = fetched)
+                .onErrorResume(e -> {
+                    log.warn("Could not fetch token signing keys from {}: {}", userServiceName, e.toString());
+                    return Mono.just(keys);
+                })
+                .doFinally(signal -> inFlight.set(null))
+                .cache();
+        if (!inFlight.compareAndSet(null, request)) {
+            running = inFlight.get();
+            return running != null ? running : Mono.just(keys);
+        }
+        lastFetchMillis = System.currentTimeMillis();
+        return request;
+    }
+
+    private Map<String, PublicKey> toKeys(JsonNode keySet) {
+        Map<String, PublicKey> fetched = new HashMap<>();
+        for (JsonNode jwk : keySet.path("keys")) {
+            if (!"RSA".equals(jwk.path("kty").asText()) || !jwk.hasNonNull("kid")) {
+                continue;
+            }
+            try {
+                fetched.put(jwk.get("kid").asText(),
+                        TokenVerifier.rsaPublicKey(jwk.path("n").asText(), jwk.path("e").asText()));
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                log.warn("Skipping unreadable signing key {}", jwk.get("kid").asText());
+            }
+        }
+        return Map.copyOf(fetched);
+    }
+}
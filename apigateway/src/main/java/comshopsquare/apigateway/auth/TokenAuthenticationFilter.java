@@ -0,0 +1,155 @@
+package comshopsquare.apigateway.auth;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Authenticates requests at the edge. A valid bearer token is verified here, against keys cached from
+ * USER-SERVICE, and replaced by {@code X-User-Id} and {@code X-User-Role} headers for the routed
+ * service, so services never call back to check a token. Those headers are always removed from what
+ * the client sent. Tokens already verified are remembered until they expire, so a session pays for
+ * the signature check once rather than on every request.
+ *
+ * <p>Requests without a token pass through anonymously. Invalid or expired tokens do too, unless
+ * {@code gateway.auth.reject-invalid-tokens} is set, in which case they get a 401.
+ */
+@Component
+public class TokenAuthenticationFilter implements GlobalFilter, Ordered {
+
+    public static final String USER_ID_HEADER = "X-User-Id";
+    public static final String USER_ROLE_HEADER = "X-User-Role";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final SigningKeyCache signingKeys;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.auth.issuer:user-service}")
+    private String issuer;
+
+    @Value("${gateway.auth.clock-skew-seconds:30}")
+    private long clockSkewSeconds;
+
+    @Value("${gateway.auth.reject-invalid-tokens:false}")
+    private boolean rejectInvalidTokens;
+
+    @Value("${gateway.auth.verified-cache-size:10000}")
+    private int verifiedCacheSize;
+
+    private TokenVerifier verifier;
+
+    // Guarded by itself
+    private Map<String, TokenVerifier.VerifiedToken> verified;
+
+    public TokenAuthenticationFilter(SigningKeyCache signingKeys, ObjectMapper objectMapper,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        this.signingKeys = signingKeys;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry.getIfAvailable();
+    }
+
+    @PostConstruct
+    void init() {
+        verifier = new TokenVerifier(objectMapper, issuer, clockSkewSeconds);
+        verified = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenVerifier.VerifiedToken> eldest) {
+                return size() > verifiedCacheSize;
+            }
+        };
+    }
+
+    @Override
+    public int getOrder() {
+        // Before routing and before any filter that reads the caller's identity
+        return Ordered.HIGHEST_PRECEDENCE + 100;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String authorization = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            count("absent");
+            return forward(exchange, chain, null);
+        }
+        String token = authorization.substring(BEARER_PREFIX.length()).trim();
+        long now = System.currentTimeMillis() / 1000;
+
+        TokenVerifier.VerifiedToken known;
+        synchronized (verified) {
+            known = verified.get(token);
+        }
+        if (known != null && known.expiresAt() + clockSkewSeconds >= now) {
+            count("cached");
+            return forward(exchange, chain, known);
+        }
+
+        TokenVerifier.ParsedToken parsed;
+        try {
+            parsed = verifier.parse(token);
+        } catch (InvalidTokenException e) {
+            return invalid(exchange, chain, "malformed");
+        }
+        return signingKeys.key(parsed.keyId())
+                .flatMap(key -> {
+                    try {
+                        TokenVerifier.VerifiedToken identity = verifier.verify(parsed, key, now);
+                        synchronized (verified) {
+                            verified.put(token, identity);
+                        }
+                        count("verified");
+                        return forward(exchange, chain, identity);
+                    } catch (InvalidTokenException e) {
+                        return invalid(exchange, chain, "invalid");
+                    }
+                })
+                .switchIfEmpty(Mono.defer(() -> invalid(exchange, chain, "unknown-key")));
+    }
+
+    private Mono<Void> forward(ServerWebExchange exchange, GatewayFilterChain chain,
+                               TokenVerifier.VerifiedToken identity) {
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(headers -> {
+                    headers.remove(USER_ID_HEADER);
+                    headers.remove(USER_ROLE_HEADER);
+                    if (identity != null) {
+                        headers.set(USER_ID_HEADER, identity.userId());
+                        headers.set(USER_ROLE_HEADER, identity.role());
+                    }
+                })
+                .build();
+        return chain.filter(exchange.mutate().request(request).build());
+    }
+
+    private Mono<Void> invalid(ServerWebExchange exchange, GatewayFilterChain chain, String outcome) {
+        count(outcome);
+        if (!rejectInvalidTokens) {
+            return forward(exchange, chain, null);
+        }
+        exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+        exchange.getResponse().getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+        return exchange.getResponse().setComplete();
+    }
+
+    private void count(String outcome) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("gateway.auth.tokens", "outcome", outcome).increment();
+        }
+    }
+}
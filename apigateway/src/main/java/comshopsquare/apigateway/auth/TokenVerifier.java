@@ -0,0 +1,105 @@
+package comshopsquare.apigateway.auth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+
+/**
+ * Checks the RS256 access tokens issued by USER-SERVICE. Parsing and verification are split so the
+ * caller can look up the key named by the token header, which may need a key refresh, in between.
+ */
+public final class TokenVerifier {
+
+    private static final Base64.Decoder BASE64_URL = Base64.getUrlDecoder();
+
+    // Signature instances are not thread-safe but are costly to look up per call
+    private static final ThreadLocal<Signature> RS256 = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance("SHA256withRSA");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final ObjectMapper objectMapper;
+    private final String issuer;
+    private final long clockSkewSeconds;
+
+    public TokenVerifier(ObjectMapper objectMapper, String issuer, long clockSkewSeconds) {
+        this.objectMapper = objectMapper;
+        this.issuer = issuer;
+        this.clockSkewSeconds = clockSkewSeconds;
+    }
+
+    public record ParsedToken(String keyId, byte[] signingInput, byte[] signature, String payload) {}
+
+    public record VerifiedToken(String userId, String role, long expiresAt) {}
+
+    public ParsedToken parse(String token) throws InvalidTokenException {
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+            throw new InvalidTokenException("Token is not a compact JWT");
+        }
+        try {
+            JsonNode header = objectMapper.readTree(BASE64_URL.decode(token.substring(0, firstDot)));
+            // Only the algorithm USER-SERVICE signs with; never trust the header to pick another
+            if (!"RS256".equals(header.path("alg").asText()) || !header.hasNonNull("kid")) {
+                throw new InvalidTokenException("Unsupported token header");
+            }
+            return new ParsedToken(
+                    header.get("kid").asText(),
+                    token.substring(0, secondDot).getBytes(StandardCharsets.US_ASCII),
+                    BASE64_URL.decode(token.substring(secondDot + 1)),
+                    token.substring(firstDot + 1, secondDot));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidTokenException("Token is not a compact JWT");
+        }
+    }
+
+    public VerifiedToken verify(ParsedToken token, PublicKey key, long nowSeconds) throws InvalidTokenException {
+        try {
+            Signature signature = RS256.get();
+            signature.initVerify(key);
+            signature.update(token.signingInput());
+            if (!signature.verify(token.signature())) {
+                throw new InvalidTokenException("Bad token signature");
+            }
+        } catch (GeneralSecurityException e) {
+            throw new InvalidTokenException("Bad token signature");
+        }
+
+        JsonNode claims;
+        try {
+            claims = objectMapper.readTree(BASE64_URL.decode(token.payload()));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidTokenException("Unreadable token claims");
+        }
+        long expiresAt = claims.path("exp").asLong(0);
+        if (expiresAt + clockSkewSeconds < nowSeconds) {
+            throw new InvalidTokenException("Token has expired");
+        }
+        if (!issuer.equals(claims.path("iss").asText()) || !claims.hasNonNull("sub") || !claims.hasNonNull("role")) {
+            throw new InvalidTokenException("Token is missing required claims");
+        }
+        return new VerifiedToken(claims.get("sub").asText(), claims.get("role").asText(), expiresAt);
+    }
+
+    /**
+     * Builds the public key described by an RSA JWK's {@code n} and {@code e}.
+     */
+    public static PublicKey rsaPublicKey(String modulus, String exponent) throws GeneralSecurityException {
+        return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(
+                new BigInteger(1, BASE64_URL.decode(modulus)),
+                new BigInteger(1, BASE64_URL.decode(exponent))));
+    }
+}
@@ -0,0 +1,172 @@
+package comshopsquare.apigateway.bff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import comshopsquare.apigateway.admission.AdmissionController;
+import comshopsquare.apigateway.ratelimit.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Backend-for-frontend pages: one request from the UI, answered by calling the services it would
+ * otherwise call one after another, concurrently, and merging their answers into one document. Each
+ * call (leg) has its own timeout of {@code gateway.bff.leg-timeout-ms}; a leg that fails leaves its part
+ * of the page empty and the page is returned with {@code "partial": true} rather than failing whole.
+ *
+ * <p>These endpoints are served by the gateway itself, not routed, so route filters do not apply to
+ * them; they are rate-limited here as the {@code bff} route, per client address, and admitted by the
+ * {@link AdmissionController} like routed requests: the storefront as sheddable browsing, order history
+ * as standard.
+ */
+@RestController
+@RequestMapping("/bff")
+public class BffController {
+
+    private final WebClient webClient;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final KeyResolver ipKeyResolver;
+    private final AdmissionController admissionController;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.bff.leg-timeout-ms:2000}")
+    private long legTimeoutMs;
+
+    // ORDER-ITEM-SERVICE's limit on order IDs per batch call
+    @Value("${gateway.bff.order-ids-per-call:200}")
+    private int orderIdsPerCall;
+
+    public BffController(WebClient.Builder loadBalancedWebClientBuilder, TokenBucketRateLimiter rateLimiter,
+                         @Qualifier("ipKeyResolver") KeyResolver ipKeyResolver,
+                         AdmissionController admissionController, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.webClient = loadBalancedWebClientBuilder.build();
+        this.rateLimiter = rateLimiter;
+        this.ipKeyResolver = ipKeyResolver;
+        this.admissionController = admissionController;
+        this.meterRegistry = meterRegistry.getIfAvailable();
+    }
+
+    // Storefront: the shop and its products
+    @GetMapping("/shop/{id}")
+    public Mono<ResponseEntity<Map<String, Object>>> shopPage(@PathVariable Long id, ServerWebExchange exchange) {
+        return limited(exchange, AdmissionController.Priority.SHEDDABLE, () -> {
+            PageAggregate page = page("shop");
+            Mono<Optional<JsonNode>> shop = page.leg("shop", get("http://shop-service/api/shops/" + id));
+            Mono<Optional<JsonNode>> products = page.leg("products",
+                    get("http://product-service/api/products/shop/" + id));
+            return Mono.zip(shop, products).map(legs -> {
+                if (legs.getT1().isEmpty() && !page.failed("shop")) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+                }
+                return ResponseEntity.ok(page.toBody());
+            });
+        });
+    }
+
+    // Order history: the user's orders with their items attached, and the user's profile
+    @GetMapping("/orders/user/{id}")
+    public Mono<ResponseEntity<Map<String, Object>>> ordersPage(@PathVariable Long id, ServerWebExchange exchange) {
+        return limited(exchange, AdmissionController.Priority.STANDARD, () -> {
+            PageAggregate page = page("orders");
+            // Items need the order IDs, so that leg starts when the orders arrive; the profile runs alongside
+            Mono<Optional<JsonNode>> ordersWithItems = page
+                    .leg("orders", get("http://order-service/api/orders/user/" + id))
+                    .flatMap(orders -> orders.isEmpty() || orders.get().isEmpty()
+                            ? Mono.just(orders)
+                            : page.leg("items", itemsByOrderId(orders.get())).map(items -> {
+                                items.ifPresent(byOrder -> attachItems(orders.get(), byOrder));
+                                return orders;
+                            }));
+            Mono<Optional<JsonNode>> profile = page.leg("profile",
+                    get("http://profile-service/api/profiles/user/" + id));
+            return Mono.zip(ordersWithItems, profile).map(legs -> ResponseEntity.ok(page.toBody()));
+        });
+    }
+
+    private Mono<Map<String, JsonNode>> itemsByOrderId(JsonNode orders) {
+        List<String> orderIds = new ArrayList<>();
+        orders.forEach(order -> orderIds.add(order.path("id").asText()));
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < orderIds.size(); i += orderIdsPerCall) {
+            chunks.add(orderIds.subList(i, Math.min(i + orderIdsPerCall, orderIds.size())));
+        }
+        return Flux.fromIterable(chunks)
+                .flatMap(chunk -> get("http://order-item-service/api/order-items?orderIds=" + String.join(",", chunk)))
+                .collect(LinkedHashMap::new, (byOrder, response) ->
+                        response.fields().forEachRemaining(entry -> byOrder.put(entry.getKey(), entry.getValue())));
+    }
+
+    private static void attachItems(JsonNode orders, Map<String, JsonNode> itemsByOrderId) {
+        for (JsonNode order : orders) {
+            JsonNode items = itemsByOrderId.get(order.path("id").asText());
+            if (order instanceof ObjectNode object && items != null) {
+                object.set("items", items);
+            }
+        }
+    }
+
+    // A missing entity, whether a 404 or an empty 200, is an empty leg rather than a failure
+    private Mono<JsonNode> get(String url) {
+        return webClient.get()
+                .uri(url)
+                .exchangeToMono(response -> {
+                    if (response.statusCode().value() == HttpStatus.NOT_FOUND.value()) {
+                        return response.releaseBody().then(Mono.empty());
+                    }
+                    if (response.statusCode().isError()) {
+                        return response.createError();
+                    }
+                    return response.bodyToMono(JsonNode.class);
+                });
+    }
+
+    private PageAggregate page(String name) {
+        return new PageAggregate(name, Duration.ofMillis(legTimeoutMs), meterRegistry);
+    }
+
+    private <T> Mono<ResponseEntity<T>> limited(ServerWebExchange exchange, AdmissionController.Priority priority,
+                                                Supplier<Mono<ResponseEntity<T>>> handler) {
+        return ipKeyResolver.resolve(exchange)
+                .flatMap(key -> rateLimiter.isAllowed("bff", key))
+                .flatMap(response -> {
+                    if (response.isAllowed()) {
+                        return admitted(priority, handler);
+                    }
+                    ResponseEntity.BodyBuilder refused = ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS);
+                    response.getHeaders().forEach(refused::header);
+                    return Mono.just(refused.<T>build());
+                });
+    }
+
+    // A page spans several calls, so its latency is not fed back into the limit
+    private <T> Mono<ResponseEntity<T>> admitted(AdmissionController.Priority priority,
+                                                 Supplier<Mono<ResponseEntity<T>>> handler) {
+        if (!admissionController.tryAcquire(priority)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .<T>build());
+        }
+        return Mono.defer(handler).doFinally(signal -> admissionController.release());
+    }
+}
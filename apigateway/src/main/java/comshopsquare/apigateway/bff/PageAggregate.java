@@ -0,0 +1,94 @@
+package comshopsquare.apigateway.bff;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The document one BFF page returns, filled in by legs that complete on different threads. A leg that
+ * fails or runs past its timeout leaves its field {@code null} and is named in {@code failures}, and
+ * the page is marked {@code partial}; the other legs are unaffected.
+ */
+class PageAggregate {
+
+    private final String page;
+    private final Duration legTimeout;
+    private final MeterRegistry meterRegistry;
+
+    // Guarded by this
+    private final Map<String, Object> fields = new LinkedHashMap<>();
+    private final Map<String, String> failures = new LinkedHashMap<>();
+
+    PageAggregate(String page, Duration legTimeout, MeterRegistry meterRegistry) {
+        this.page = page;
+        this.legTimeout = legTimeout;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs {@code call} with the leg timeout and records its result, or its failure, as {@code name}.
+     * Never fails itself: a failed or empty leg completes with an empty {@link Optional}.
+     */
+    <T> Mono<Optional<T>> leg(String name, Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.timeout(legTimeout)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .doOnNext(result -> {
+                        put(name, result.orElse(null));
+                        record(name, result.isPresent() ? "ok" : "empty", start);
+                    })
+                    .onErrorResume(e -> {
+                        String reason = reason(e);
+                        fail(name, reason);
+                        record(name, reason, start);
+                        return Mono.just(Optional.empty());
+                    });
+        });
+    }
+
+    synchronized void put(String name, Object value) {
+        fields.put(name, value);
+    }
+
+    synchronized boolean failed(String name) {
+        return failures.containsKey(name);
+    }
+
+    synchronized Map<String, Object> toBody() {
+        Map<String, Object> body = new LinkedHashMap<>(fields);
+        body.put("partial", !failures.isEmpty());
+        body.put("failures", new LinkedHashMap<>(failures));
+        return body;
+    }
+
+    private synchronized void fail(String name, String reason) {
+        fields.put(name, null);
+        failures.put(name, reason);
+    }
+
+    private static String reason(Throwable e) {
+        if (e instanceof TimeoutException) {
+            return "timeout";
+        }
+        if (e instanceof WebClientResponseException response) {
+            return "status " + response.getStatusCode().value();
+        }
+        return "unavailable";
+    }
+
+    private void record(String leg, String outcome, long start) {
+        if (meterRegistry != null) {
+            meterRegistry.timer("gateway.bff.leg", "page", page, "leg", leg, "outcome", outcome.startsWith("status")
+                    ? "error" : outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package comshopsquare.apigateway.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Caches successful GET responses of a route in the gateway for {@code ttl}, so repeated catalog reads
+ * are answered here without reaching the service. Every cached response gets a strong ETag and
+ * {@code Cache-Control: no-cache}: browsers revalidate each time and get a bodiless 304 while the
+ * content is unchanged. A successful write through the route (any other method) drops the route's
+ * entries, and those of the routes listed in {@code alsoInvalidates}. Writes that bypass the gateway are
+ * only picked up when entries expire. Outcomes are counted per route in {@code gateway.cache.requests}.
+ *
+ * <pre>
+ * filters:
+ *   - name: ResponseCache
+ *     args:
+ *       ttl: 30s
+ *       alsoInvalidates: shopservice
+ * </pre>
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    // Must wrap the response before NettyWriteResponseFilter writes the body to it, and look up the
+    // cache before SingleFlight joins identical requests
+    static final int ORDER = SingleFlightGatewayFilterFactory.ORDER - 1;
+
+    private final ResponseCacheStore store;
+    private final MeterRegistry meterRegistry;
+
+    public ResponseCacheGatewayFilterFactory(ResponseCacheStore store, ObjectProvider<MeterRegistry> meterRegistry) {
+        super(Config.class);
+        this.store = store;
+        this.meterRegistry = meterRegistry.getIfAvailable();
+    }
+
+    public static class Config {
+        private Duration ttl = Duration.ofSeconds(30);
+        private List<String> alsoInvalidates = new ArrayList<>();
+
+        public Duration getTtl() { return ttl; }
+        public void setTtl(Duration ttl) { this.ttl = ttl; }
+
+        public List<String> getAlsoInvalidates() { return alsoInvalidates; }
+        public void setAlsoInvalidates(List<String> alsoInvalidates) { this.alsoInvalidates = alsoInvalidates; }
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("ttl");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> filter(exchange, chain, config), ORDER);
+    }
+
+    private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain, Config config) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "unknown";
+        HttpMethod method = exchange.getRequest().getMethod();
+        if (HttpMethod.GET.equals(method)) {
+            return cachedGet(exchange, chain, routeId, config);
+        }
+        if (HttpMethod.HEAD.equals(method) || HttpMethod.OPTIONS.equals(method)) {
+            return chain.filter(exchange);
+        }
+        exchange.getResponse().beforeCommit(() -> {
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            if (status != null && status.is2xxSuccessful()) {
+                store.invalidateRoute(routeId);
+                config.getAlsoInvalidates().forEach(store::invalidateRoute);
+            }
+            return Mono.empty();
+        });
+        return chain.filter(exchange);
+    }
+
+    private Mono<Void> cachedGet(ServerWebExchange exchange, GatewayFilterChain chain, String routeId, Config config) {
+        ServerHttpRequest request = exchange.getRequest();
+        String query = request.getURI().getRawQuery();
+        String key = routeId + " " + request.getURI().getRawPath() + (query != null ? "?" + query : "");
+        String ifNoneMatch = request.getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+        String requestCacheControl = request.getHeaders().getCacheControl();
+        boolean reload = requestCacheControl != null
+                && (requestCacheControl.contains("no-cache") || requestCacheControl.contains("no-store"));
+        long now = System.currentTimeMillis();
+
+        ResponseCacheStore.CachedResponse cached = reload ? null : store.get(key);
+        if (cached != null && cached.isFresh(now)) {
+            boolean notModified = etagMatches(ifNoneMatch, cached.etag());
+            count(routeId, notModified ? "not-modified" : "hit");
+            return serve(exchange.getResponse(), cached, notModified);
+        }
+        count(routeId, reload ? "bypass" : "miss");
+
+        long generation = store.generation(routeId);
+        ServerHttpResponse original = exchange.getResponse();
+        ServerHttpResponseDecorator capturing = new ServerHttpResponseDecorator(original) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                HttpHeaders headers = getDelegate().getHeaders();
+                if (!HttpStatus.OK.equals(getStatusCode()) || !cacheable(headers)) {
+                    return super.writeWith(body);
+                }
+                return readUpTo(body, headers.getContentLength(), store.maxEntryBytes(), bytes -> {
+                    ResponseCacheStore.CachedResponse fetched = new ResponseCacheStore.CachedResponse(
+                            routeId, generation, headers.getFirst(HttpHeaders.CONTENT_TYPE),
+                            headers.getFirst(HttpHeaders.CONTENT_ENCODING), bytes, etag(bytes),
+                            now + config.getTtl().toMillis());
+                    store.put(key, fetched);
+                    headers.remove(HttpHeaders.TRANSFER_ENCODING);
+                    return serve(getDelegate(), fetched, etagMatches(ifNoneMatch, fetched.etag()));
+                }, getDelegate()::writeWith);
+            }
+        };
+        return chain.filter(exchange.mutate().response(capturing).build());
+    }
+
+    private static Mono<Void> serve(ServerHttpResponse response, ResponseCacheStore.CachedResponse cached,
+                                    boolean notModified) {
+        HttpHeaders headers = response.getHeaders();
+        headers.setETag(cached.etag());
+        headers.setCacheControl("no-cache");
+        if (notModified) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatus.OK);
+        if (cached.contentType() != null) {
+            headers.set(HttpHeaders.CONTENT_TYPE, cached.contentType());
+        }
+        if (cached.contentEncoding() != null) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, cached.contentEncoding());
+        }
+        headers.setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    /**
+     * Hands {@code body} to {@code whole} as one array if it is at most {@code limit} bytes. A larger
+     * body is not held in memory: buffering stops once it passes the limit, or does not start when the
+     * declared {@code contentLength} is over it, and {@code tooLarge} gets the body as a stream,
+     * starting with the part already read.
+     */
+    static Mono<Void> readUpTo(Publisher<? extends DataBuffer> body, long contentLength, long limit,
+                               Function<byte[], Mono<Void>> whole,
+                               Function<Flux<DataBuffer>, Mono<Void>> tooLarge) {
+        if (contentLength > limit) {
+            return tooLarge.apply(Flux.from(body));
+        }
+        long[] read = {0};
+        // Emits the whole body as one list on completion, or a list as soon as it passes the limit
+        return Flux.<DataBuffer>from(body)
+                .bufferUntil(buffer -> (read[0] += buffer.readableByteCount()) > limit)
+                .switchOnFirst((first, lists) -> {
+                    if (!first.hasValue()) {
+                        return first.isOnComplete() ? whole.apply(new byte[0]) : lists.then();
+                    }
+                    if (read[0] > limit) {
+                        return tooLarge.apply(lists.concatMapIterable(Function.identity()));
+                    }
+                    return lists.next().flatMap(buffers -> whole.apply(join(buffers)));
+                })
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                .then();
+    }
+
+    private static byte[] join(List<DataBuffer> buffers) {
+        int size = 0;
+        for (DataBuffer buffer : buffers) {
+            size += buffer.readableByteCount();
+        }
+        byte[] bytes = new byte[size];
+        int offset = 0;
+        for (DataBuffer buffer : buffers) {
+            int length = buffer.readableByteCount();
+            buffer.read(bytes, offset, length);
+            offset += length;
+            DataBufferUtils.release(buffer);
+        }
+        return bytes;
+    }
+
+    private static boolean cacheable(HttpHeaders headers) {
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null && (cacheControl.contains("no-store") || cacheControl.contains("private"))) {
+            return false;
+        }
+        return !headers.containsKey(HttpHeaders.SET_COOKIE);
+    }
+
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void count(String routeId, String result) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("gateway.cache.requests", "route", routeId, "result", result).increment();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package comshopsquare.apigateway.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU store of cached GET responses, bounded by total body size ({@code gateway.cache.max-bytes});
+ * bodies over {@code gateway.cache.max-entry-bytes} are neither buffered in full nor kept.
+ * Each route has a generation number that a write through that route increments: entries stored under
+ * an older generation are treated as absent, and a response fetched before the write is not stored
+ * after it.
+ */
+@Component
+public class ResponseCacheStore {
+
+    @Value("${gateway.cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${gateway.cache.max-entry-bytes:1048576}")
+    private long maxEntryBytes;
+
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    // Guarded by this
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    public ResponseCacheStore(ObjectProvider<MeterRegistry> meterRegistry) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("gateway.cache.bytes", this, ResponseCacheStore::size)
+                    .description("Response bytes held by the gateway cache")
+                    .register(registry);
+        }
+    }
+
+    public record CachedResponse(String routeId, long generation, String contentType, String contentEncoding,
+                                 byte[] body, String etag, long expiresAtMillis) {
+
+        boolean isFresh(long nowMillis) {
+            return nowMillis < expiresAtMillis;
+        }
+    }
+
+    /**
+     * Largest body that is kept; the filter stops buffering a response once it is bigger.
+     */
+    public long maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    public long generation(String routeId) {
+        return generations.computeIfAbsent(routeId, id -> new AtomicLong()).get();
+    }
+
+    public void invalidateRoute(String routeId) {
+        generations.computeIfAbsent(routeId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * The entry for {@code key} if it is still current for its route, fresh or not.
+     */
+    public CachedResponse get(String key) {
+        CachedResponse entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null || entry.generation() != generation(entry.routeId())) {
+            return null;
+        }
+        return entry;
+    }
+
+    public void put(String key, CachedResponse response) {
+        if (response.generation() != generation(response.routeId()) || response.body().length > maxEntryBytes) {
+            return;
+        }
+        synchronized (this) {
+            CachedResponse previous = entries.put(key, response);
+            if (previous != null) {
+                bytes -= previous.body().length;
+            }
+            bytes += response.body().length;
+            var eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().getValue().body().length;
+                eldest.remove();
+            }
+        }
+    }
+
+    private synchronized long size() {
+        return bytes;
+    }
+}
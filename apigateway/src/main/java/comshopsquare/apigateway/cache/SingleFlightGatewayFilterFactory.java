@@ -0,0 +1,220 @@
+package comshopsquare.apigateway.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Lets only one upstream request per identical GET be in flight. The first request for a key goes to
+ * the service; requests for the same key that arrive while it is running wait for it and are answered
+ * with a copy of its status, headers and body. Backend load during a stampede therefore follows the
+ * number of distinct keys, not the number of clients.
+ *
+ * <p>The key is the route, path and query, minus {@code ignoredQueryParams}, plus the values of
+ * {@code keyHeaders}; add {@code X-User-Id} there for routes whose responses depend on the caller.
+ * A waiter gives up after {@code maxWait} and calls the service itself, as it does when the first
+ * response cannot be shared (it is an error other than 404, sets a cookie, is private, or is larger
+ * than {@code maxBodyBytes}). Outcomes are counted per route in {@code gateway.singleflight.requests}.
+ */
+@Component
+public class SingleFlightGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<SingleFlightGatewayFilterFactory.Config> {
+
+    // Must wrap the response before NettyWriteResponseFilter writes the body to it
+    static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+
+    private final Map<String, Sinks.One<SharedResponse>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public SingleFlightGatewayFilterFactory(ObjectProvider<MeterRegistry> meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry.getIfAvailable();
+        if (this.meterRegistry != null) {
+            Gauge.builder("gateway.singleflight.in-flight", inFlight, Map::size)
+                    .description("Distinct GET requests currently forwarded with others waiting on them")
+                    .register(this.meterRegistry);
+        }
+    }
+
+    public static class Config {
+        private Duration maxWait = Duration.ofSeconds(5);
+        private List<String> keyHeaders = new ArrayList<>(List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING));
+        private List<String> ignoredQueryParams = new ArrayList<>();
+        private DataSize maxBodyBytes = DataSize.ofMegabytes(1);
+
+        public Duration getMaxWait() { return maxWait; }
+        public void setMaxWait(Duration maxWait) { this.maxWait = maxWait; }
+
+        public List<String> getKeyHeaders() { return keyHeaders; }
+        public void setKeyHeaders(List<String> keyHeaders) { this.keyHeaders = keyHeaders; }
+
+        public List<String> getIgnoredQueryParams() { return ignoredQueryParams; }
+        public void setIgnoredQueryParams(List<String> ignoredQueryParams) { this.ignoredQueryParams = ignoredQueryParams; }
+
+        public DataSize getMaxBodyBytes() { return maxBodyBytes; }
+        public void setMaxBodyBytes(DataSize maxBodyBytes) { this.maxBodyBytes = maxBodyBytes; }
+    }
+
+    /**
+     * A response as the first request received it, minus headers that belong to each caller.
+     */
+    record SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+
+        Mono<Void> writeTo(ServerHttpResponse response) {
+            response.setStatusCode(status);
+            headers.forEach((name, values) -> response.getHeaders().put(name, values));
+            response.getHeaders().setContentLength(body.length);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        }
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("maxWait");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> filter(exchange, chain, config), ORDER);
+    }
+
+    private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain, Config config) {
+        if (!HttpMethod.GET.equals(exchange.getRequest().getMethod())) {
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "unknown";
+        String key = key(routeId, exchange.getRequest(), config);
+
+        Sinks.One<SharedResponse> flight = Sinks.one();
+        Sinks.One<SharedResponse> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            return follow(exchange, chain, routeId, leader, config);
+        }
+        count(routeId, "forwarded");
+        ServerHttpResponseDecorator sharing = new ServerHttpResponseDecorator(exchange.getResponse()) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                HttpHeaders headers = getDelegate().getHeaders();
+                HttpStatusCode status = getStatusCode();
+                if (status == null || !shareable(status) || !shareable(headers)) {
+                    flight.tryEmitEmpty();
+                    return super.writeWith(body);
+                }
+                return ResponseCacheGatewayFilterFactory.readUpTo(body, headers.getContentLength(),
+                        config.getMaxBodyBytes().toBytes(), bytes -> {
+                            flight.tryEmitValue(new SharedResponse(status, sharedHeaders(headers), bytes));
+                            headers.remove(HttpHeaders.TRANSFER_ENCODING);
+                            headers.setContentLength(bytes.length);
+                            return getDelegate().writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                        }, stream -> {
+                            flight.tryEmitEmpty();
+                            return getDelegate().writeWith(stream);
+                        });
+            }
+        };
+        return chain.filter(exchange.mutate().response(sharing).build())
+                .doFinally(signal -> {
+                    // Failed, cancelled or never written: waiters fall back to their own call
+                    flight.tryEmitEmpty();
+                    inFlight.remove(key, flight);
+                });
+    }
+
+    private Mono<Void> follow(ServerWebExchange exchange, GatewayFilterChain chain, String routeId,
+                              Sinks.One<SharedResponse> leader, Config config) {
+        Mono<Mono<Void>> next = leader.asMono()
+                .map(shared -> {
+                    count(routeId, "coalesced");
+                    return shared.writeTo(exchange.getResponse());
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    count(routeId, "fallback");
+                    return chain.filter(exchange);
+                }))
+                .timeout(config.getMaxWait(), Mono.fromSupplier(() -> {
+                    count(routeId, "timeout");
+                    return chain.filter(exchange);
+                }));
+        return next.flatMap(Function.identity());
+    }
+
+    private static String key(String routeId, ServerHttpRequest request, Config config) {
+        StringBuilder key = new StringBuilder(routeId).append(' ').append(request.getURI().getRawPath());
+        String query = request.getURI().getRawQuery();
+        if (query != null) {
+            // Parameter order does not change the response
+            String normalized = Arrays.stream(query.split("&"))
+                    .filter(param -> !config.getIgnoredQueryParams().contains(param.split("=", 2)[0]))
+                    .sorted()
+                    .collect(Collectors.joining("&"));
+            key.append('?').append(normalized);
+        }
+        for (String header : config.getKeyHeaders()) {
+            key.append('\n').append(header).append(':').append(request.getHeaders().getOrEmpty(header));
+        }
+        return key.toString();
+    }
+
+    // Errors and refusals (401, 403, 429) may be specific to the first caller or to the moment
+    private static boolean shareable(HttpStatusCode status) {
+        return status.is2xxSuccessful() || status.is3xxRedirection() || status.value() == 404;
+    }
+
+    private static boolean shareable(HttpHeaders headers) {
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null && cacheControl.contains("private")) {
+            return false;
+        }
+        return !headers.containsKey(HttpHeaders.SET_COOKIE);
+    }
+
+    // CORS headers depend on each caller's Origin and are already set on the waiter's own response
+    private static HttpHeaders sharedHeaders(HttpHeaders headers) {
+        HttpHeaders shared = new HttpHeaders();
+        headers.forEach((name, values) -> {
+            if (!name.regionMatches(true, 0, "Access-Control-", 0, 15)
+                    && !name.equalsIgnoreCase(HttpHeaders.VARY)
+                    && !name.equalsIgnoreCase(HttpHeaders.TRANSFER_ENCODING)
+                    && !name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)) {
+                shared.put(name, List.copyOf(values));
+            }
+        });
+        return HttpHeaders.readOnlyHttpHeaders(shared);
+    }
+
+    private void count(String routeId, String result) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("gateway.singleflight.requests", "route", routeId, "result", result).increment();
+        }
+    }
+}
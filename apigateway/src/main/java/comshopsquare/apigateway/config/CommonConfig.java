@@ -0,0 +1,14 @@
+package comshopsquare.apigateway.config;
+
+import com.shopsquare.common.tracing.FileSpanExporter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Registers the classes the gateway uses from the shared common module. The load balancer is wired up
+ * separately, by {@link WebClientConfig}.
+ */
+@Configuration
+@Import(FileSpanExporter.class)
+public class CommonConfig {
+}
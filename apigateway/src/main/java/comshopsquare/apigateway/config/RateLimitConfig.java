@@ -0,0 +1,44 @@
+package comshopsquare.apigateway.config;
+
+import comshopsquare.apigateway.auth.TokenAuthenticationFilter;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Who a rate limit applies to, chosen per route with {@code key-resolver: "#{@name}"}.
+ */
+@Configuration
+public class RateLimitConfig {
+
+    // Signed-in users by ID (set by TokenAuthenticationFilter from a verified token), others by address
+    @Bean
+    @Primary
+    public KeyResolver userKeyResolver() {
+        return exchange -> {
+            String userId = exchange.getRequest().getHeaders().getFirst(TokenAuthenticationFilter.USER_ID_HEADER);
+            return Mono.just(userId != null ? "user:" + userId : clientAddress(exchange));
+        };
+    }
+
+    @Bean
+    public KeyResolver ipKeyResolver() {
+        return exchange -> Mono.just(clientAddress(exchange));
+    }
+
+    // One bucket for the whole route, capping what all clients together can send to its service
+    @Bean
+    public KeyResolver routeKeyResolver() {
+        return exchange -> Mono.just("route");
+    }
+
+    private static String clientAddress(ServerWebExchange exchange) {
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        return "ip:" + (remote != null ? remote.getHostString() : "unknown");
+    }
+}
@@ -0,0 +1,24 @@
+package comshopsquare.apigateway.config;
+
+import com.shopsquare.common.loadbalancer.LatencyAwareLoadBalancerConfiguration;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+// lb:// routes and this client balance by latency and outstanding calls instead of round robin
+@Configuration
+@LoadBalancerClients(defaultConfiguration = LatencyAwareLoadBalancerConfiguration.class)
+public class WebClientConfig {
+
+    // Calls the gateway itself makes to services, by their Eureka names; observed, so they are traced
+    // and carry the trace context
+    @Bean
+    @LoadBalanced
+    public WebClient.Builder loadBalancedWebClientBuilder(ObjectProvider<ObservationRegistry> observationRegistry) {
+        return WebClient.builder().observationRegistry(observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP));
+    }
+}
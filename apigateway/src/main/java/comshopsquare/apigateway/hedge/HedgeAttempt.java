@@ -0,0 +1,121 @@
+package comshopsquare.apigateway.hedge;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One upstream call of a hedged request. It runs the rest of the route's filter chain on its own
+ * attributes and an empty request body, and keeps the status and headers it receives to itself, so two
+ * attempts can be in flight at once; the winner's are copied onto the real exchange afterwards.
+ */
+final class HedgeAttempt extends ServerWebExchangeDecorator {
+
+    final long startedAt = System.nanoTime();
+    final Disposable.Swap subscription = Disposables.swap();
+    final boolean hedge;
+
+    private final Map<String, Object> attributes;
+    private final ServerHttpRequest request;
+    private final AttemptResponse response;
+
+    HedgeAttempt(ServerWebExchange exchange, boolean hedge) {
+        super(exchange);
+        this.hedge = hedge;
+        this.attributes = new ConcurrentHashMap<>(exchange.getAttributes());
+        // Only body-less requests are hedged, and the client's body can be read once
+        this.request = new ServerHttpRequestDecorator(exchange.getRequest()) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return Flux.empty();
+            }
+        };
+        this.response = new AttemptResponse(exchange.getResponse());
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public ServerHttpRequest getRequest() {
+        return request;
+    }
+
+    @Override
+    public ServerHttpResponse getResponse() {
+        return response;
+    }
+
+    /**
+     * Status and headers of the upstream response; the body is still unread on its connection.
+     */
+    static final class AttemptResponse extends ServerHttpResponseDecorator {
+
+        private final HttpHeaders headers = new HttpHeaders();
+        private volatile HttpStatusCode status;
+
+        AttemptResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public boolean setStatusCode(HttpStatusCode status) {
+            this.status = status;
+            return true;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return status;
+        }
+
+        @Override
+        @Deprecated
+        public boolean setRawStatusCode(Integer value) {
+            this.status = value != null ? HttpStatusCode.valueOf(value) : null;
+            return true;
+        }
+
+        @Override
+        @Deprecated
+        public Integer getRawStatusCode() {
+            return status != null ? status.value() : null;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return Mono.error(new IllegalStateException("Hedged attempts do not write responses"));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return Mono.error(new IllegalStateException("Hedged attempts do not write responses"));
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            return Mono.empty();
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package comshopsquare.apigateway.hedge;
+
+import com.shopsquare.common.loadbalancer.LatencyAwareLoadBalancer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycleValidator;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.netty.Connection;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hedges idempotent GETs of a route: when the first upstream call has not answered after the route's
+ * recent {@code percentile} latency (kept between {@code minDelay} and {@code maxDelay}), a second call
+ * goes to another instance, and whichever answers first is used while the other is cancelled. A first
+ * call that fails to connect or gets 502, 503 or 504 is retried on another instance at once instead.
+ * Hedges and retries are paid from the gateway-wide {@link RetryBudget}, so a struggling service is
+ * not sent twice its traffic. Outcomes are counted per route in {@code gateway.hedge.requests}.
+ *
+ * <pre>
+ * filters:
+ *   - name: Hedge
+ *     args:
+ *       percentile: 95
+ *       maxDelay: 500ms
+ * </pre>
+ */
+@Component
+public class HedgeGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgeGatewayFilterFactory.Config> {
+
+    // Runs after the route's other filters (rate limiting, affinity), so only the call to the service is repeated
+    static final int ORDER = RouteToRequestUrlFilter.ROUTE_TO_URL_FILTER_ORDER - 1;
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(502, 503, 504);
+
+    private final RetryBudget budget;
+    private final LoadBalancerClientFactory loadBalancerClientFactory;
+    private final MeterRegistry meterRegistry;
+
+    public HedgeGatewayFilterFactory(RetryBudget budget, LoadBalancerClientFactory loadBalancerClientFactory,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        super(Config.class);
+        this.budget = budget;
+        this.loadBalancerClientFactory = loadBalancerClientFactory;
+        this.meterRegistry = meterRegistry.getIfAvailable();
+    }
+
+    public static class Config {
+        private double percentile = 95;
+        private Duration minDelay = Duration.ofMillis(5);
+        private Duration maxDelay = Duration.ofMillis(500);
+
+        public double getPercentile() { return percentile; }
+        public void setPercentile(double percentile) { this.percentile = percentile; }
+
+        public Duration getMinDelay() { return minDelay; }
+        public void setMinDelay(Duration minDelay) { this.minDelay = minDelay; }
+
+        public Duration getMaxDelay() { return maxDelay; }
+        public void setMaxDelay(Duration maxDelay) { this.maxDelay = maxDelay; }
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("percentile");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        LatencyPercentile latencies = new LatencyPercentile(config.getPercentile(), WINDOW_NANOS, System.nanoTime());
+        return new OrderedGatewayFilter((exchange, chain) -> filter(exchange, chain, config, latencies), ORDER);
+    }
+
+    private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain, Config config,
+                              LatencyPercentile latencies) {
+        ServerHttpRequest request = exchange.getRequest();
+        boolean idempotent = HttpMethod.GET.equals(request.getMethod()) || HttpMethod.HEAD.equals(request.getMethod());
+        if (!idempotent || request.getHeaders().getContentLength() > 0
+                || request.getHeaders().containsKey(HttpHeaders.TRANSFER_ENCODING)) {
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        budget.deposit();
+        long estimate = latencies.estimateNanos();
+        long delay = estimate < 0 ? config.getMaxDelay().toNanos()
+                : Math.min(Math.max(estimate, config.getMinDelay().toNanos()), config.getMaxDelay().toNanos());
+        return Mono.<HedgeAttempt>create(sink -> new Race(exchange, chain, route, latencies, sink).start(delay))
+                .doOnNext(winner -> commit(winner, exchange))
+                .then();
+    }
+
+    // What NettyRoutingFilter would have left on the exchange, for NettyWriteResponseFilter to stream the body
+    private static void commit(HedgeAttempt winner, ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders received = winner.getResponse().getHeaders();
+        if (winner.getResponse().getStatusCode() != null) {
+            response.setStatusCode(winner.getResponse().getStatusCode());
+        }
+        if (!received.containsKey(HttpHeaders.TRANSFER_ENCODING) && received.containsKey(HttpHeaders.CONTENT_LENGTH)) {
+            response.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+        }
+        response.getHeaders().addAll(received);
+        winner.getAttributes().remove(LatencyAwareLoadBalancer.CALL_ATTRIBUTE);
+        winner.getAttributes().remove(LatencyAwareLoadBalancer.AVOID_INSTANCE_ATTRIBUTE);
+        exchange.getAttributes().putAll(winner.getAttributes());
+    }
+
+    /**
+     * The attempts of one request. Their callbacks and the hedge timer arrive on different threads, so
+     * the state is guarded by the race itself; attempts are started and cancelled outside the lock.
+     */
+    private final class Race {
+        private final ServerWebExchange exchange;
+        private final GatewayFilterChain chain;
+        private final Route route;
+        private final LatencyPercentile latencies;
+        private final MonoSink<HedgeAttempt> sink;
+
+        // Guarded by this
+        private final List<HedgeAttempt> running = new ArrayList<>(2);
+        private int launched;
+        private boolean done;
+        private boolean retried;
+        private boolean refused;
+        private Disposable timer;
+
+        Race(ServerWebExchange exchange, GatewayFilterChain chain, Route route, LatencyPercentile latencies,
+             MonoSink<HedgeAttempt> sink) {
+            this.exchange = exchange;
+            this.chain = chain;
+            this.route = route;
+            this.latencies = latencies;
+            this.sink = sink;
+        }
+
+        void start(long delayNanos) {
+            sink.onCancel(() -> finish(null));
+            launch(false, null);
+            Disposable scheduled = Mono.delay(Duration.ofNanos(delayNanos)).subscribe(tick -> hedge());
+            synchronized (this) {
+                if (done) {
+                    scheduled.dispose();
+                } else {
+                    timer = scheduled;
+                }
+            }
+        }
+
+        private void hedge() {
+            HedgeAttempt primary;
+            synchronized (this) {
+                if (done || launched > 1 || running.isEmpty()) {
+                    return;
+                }
+                if (!budget.tryAcquire()) {
+                    refused = true;
+                    return;
+                }
+                primary = running.get(0);
+            }
+            launch(true, instance(primary));
+        }
+
+        private void launch(boolean hedge, ServiceInstance avoid) {
+            HedgeAttempt attempt = new HedgeAttempt(exchange, hedge);
+            attempt.getAttributes().put(LatencyAwareLoadBalancer.CALL_ATTRIBUTE, attempt);
+            if (avoid != null) {
+                attempt.getAttributes().put(LatencyAwareLoadBalancer.AVOID_INSTANCE_ATTRIBUTE, avoid);
+            }
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                launched++;
+                running.add(attempt);
+            }
+            attempt.subscription.update(chain.filter(attempt).subscribe(
+                    null, error -> failed(attempt, error), () -> completed(attempt)));
+        }
+
+        private void completed(HedgeAttempt attempt) {
+            synchronized (this) {
+                if (done) {
+                    // Answered just after the other attempt won
+                    close(attempt);
+                    return;
+                }
+            }
+            HttpStatusCode status = attempt.getResponse().getStatusCode();
+            if (status != null && RETRYABLE_STATUSES.contains(status.value())) {
+                failed(attempt, null);
+                return;
+            }
+            long now = System.nanoTime();
+            latencies.record(now - attempt.startedAt, now);
+            finish(attempt);
+        }
+
+        // A connection error, or an answer worth trying elsewhere; it stands if nothing better comes
+        private void failed(HedgeAttempt attempt, Throwable error) {
+            boolean retry;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                running.remove(attempt);
+                if (!running.isEmpty()) {
+                    close(attempt);
+                    return;
+                }
+                retry = launched == 1 && budget.tryAcquire();
+                refused |= launched == 1 && !retry;
+                retried |= retry;
+            }
+            if (retry) {
+                close(attempt);
+                launch(false, instance(attempt));
+            } else if (error != null) {
+                finish(null);
+                sink.error(error);
+            } else {
+                finish(attempt);
+            }
+        }
+
+        // Ends the race with winner, or with no winner when it failed or the client went away
+        private void finish(HedgeAttempt winner) {
+            List<HedgeAttempt> losers;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                losers = new ArrayList<>(running);
+                losers.remove(winner);
+                running.clear();
+                if (timer != null) {
+                    timer.dispose();
+                }
+            }
+            for (HedgeAttempt loser : losers) {
+                loser.subscription.dispose();
+                endObservation(loser);
+                close(loser);
+                discard(loser);
+            }
+            if (winner != null) {
+                count(winner);
+                sink.success(winner);
+            }
+        }
+
+        private void count(HedgeAttempt winner) {
+            if (meterRegistry == null) {
+                return;
+            }
+            String result;
+            synchronized (this) {
+                if (retried) {
+                    result = "retried";
+                } else if (launched > 1) {
+                    result = winner.hedge ? "hedge-won" : "primary-won";
+                } else {
+                    result = refused ? "no-budget" : "single";
+                }
+            }
+            meterRegistry.counter("gateway.hedge.requests", "route", route.getId(), "result", result).increment();
+        }
+
+        // Tells the load balancer the call ended without an outcome, so it stops counting it as outstanding
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        private void discard(HedgeAttempt attempt) {
+            Response<ServiceInstance> lbResponse =
+                    attempt.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+            if (lbResponse == null || !lbResponse.hasServer() || route.getUri().getHost() == null) {
+                return;
+            }
+            DefaultRequest<RequestDataContext> request = new DefaultRequest<>(
+                    new RequestDataContext(new RequestData(attempt.getRequest(), attempt.getAttributes())));
+            CompletionContext completion = new CompletionContext<>(CompletionContext.Status.DISCARD, request, lbResponse);
+            Set<LoadBalancerLifecycle> lifecycles = LoadBalancerLifecycleValidator.getSupportedLifecycleProcessors(
+                    loadBalancerClientFactory.getInstances(route.getUri().getHost(), LoadBalancerLifecycle.class),
+                    RequestDataContext.class, ResponseData.class, ServiceInstance.class);
+            lifecycles.forEach(lifecycle -> lifecycle.onComplete(completion));
+        }
+    }
+
+    private static ServiceInstance instance(HedgeAttempt attempt) {
+        Response<ServiceInstance> lbResponse =
+                attempt.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        return lbResponse != null && lbResponse.hasServer() ? lbResponse.getServer() : null;
+    }
+
+    // The gateway ends an upstream call's span when its headers arrive, so one cancelled before then
+    // would never be exported
+    private static void endObservation(HedgeAttempt attempt) {
+        Observation observation = attempt.getAttribute(ServerWebExchangeUtils.GATEWAY_OBSERVATION_ATTR);
+        if (observation != null && attempt.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR) == null) {
+            observation.highCardinalityKeyValue("gateway.hedge", "cancelled").stop();
+        }
+    }
+
+    // An attempt that got its headers but is not used still holds a connection with an unread body
+    private static void close(HedgeAttempt attempt) {
+        Connection connection = attempt.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+        if (connection != null) {
+            connection.dispose();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package comshopsquare.apigateway.hedge;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A latency percentile over fixed windows: samples go into log-scale buckets (0.1 ms growing by 20%,
+ * up to about 10 s), and when a window with enough samples ends its percentile becomes the estimate
+ * for the next one. Recording is lock-free and allocation-free except when a window rolls over.
+ */
+final class LatencyPercentile {
+
+    private static final int BUCKETS = 64;
+    private static final long[] UPPER_BOUNDS = new long[BUCKETS];
+    private static final int MIN_SAMPLES = 100;
+
+    static {
+        double bound = 100_000;
+        for (int i = 0; i < BUCKETS; i++) {
+            UPPER_BOUNDS[i] = (long) bound;
+            bound *= 1.2;
+        }
+    }
+
+    private final double percentile;
+    private final long windowNanos;
+    private final AtomicLong windowEnd;
+    private volatile AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private volatile long estimateNanos = -1;
+
+    LatencyPercentile(double percentile, long windowNanos, long now) {
+        this.percentile = percentile;
+        this.windowNanos = windowNanos;
+        this.windowEnd = new AtomicLong(now + windowNanos);
+    }
+
+    void record(long nanos, long now) {
+        int bucket = Arrays.binarySearch(UPPER_BOUNDS, nanos);
+        counts.incrementAndGet(Math.min(bucket < 0 ? -bucket - 1 : bucket, BUCKETS - 1));
+        long end = windowEnd.get();
+        if (now - end >= 0 && windowEnd.compareAndSet(end, now + windowNanos)) {
+            AtomicLongArray finished = counts;
+            counts = new AtomicLongArray(BUCKETS);
+            long estimate = percentileOf(finished);
+            if (estimate >= 0) {
+                estimateNanos = estimate;
+            }
+        }
+    }
+
+    /**
+     * The percentile of the last full window with enough samples, or -1 before there was one.
+     */
+    long estimateNanos() {
+        return estimateNanos;
+    }
+
+    private long percentileOf(AtomicLongArray window) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += window.get(i);
+        }
+        if (total < MIN_SAMPLES) {
+            return -1;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += window.get(i);
+            if (seen >= rank) {
+                return UPPER_BOUNDS[i];
+            }
+        }
+        return UPPER_BOUNDS[BUCKETS - 1];
+    }
+}
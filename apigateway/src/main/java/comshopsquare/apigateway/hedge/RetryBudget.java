@@ -0,0 +1,67 @@
+package comshopsquare.apigateway.hedge;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gateway-wide allowance for extra upstream calls, hedges and retries alike. Every original call
+ * deposits {@code gateway.hedge.budget-percent} hundredths of a token and every extra call spends a
+ * whole one, so extra calls stay within that share of the traffic however badly services behave. Up to
+ * {@code gateway.hedge.budget-burst} tokens are kept, which is also the starting balance.
+ */
+@Component
+public class RetryBudget {
+
+    // One token, in the hundredths that deposits are made in
+    private static final long TOKEN = 100;
+
+    private final long percent;
+    private final long maxBalance;
+    private final AtomicLong balance;
+
+    public RetryBudget(@Value("${gateway.hedge.budget-percent:10}") int percent,
+                       @Value("${gateway.hedge.budget-burst:20}") int burst,
+                       ObjectProvider<MeterRegistry> meterRegistry) {
+        this.percent = percent;
+        this.maxBalance = burst * TOKEN;
+        this.balance = new AtomicLong(maxBalance);
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("gateway.hedge.budget", balance, tokens -> (double) tokens.get() / TOKEN)
+                    .description("Hedged or retried calls the gateway may still send")
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Records an original call, which earns a fraction of an extra one.
+     */
+    public void deposit() {
+        long current;
+        do {
+            current = balance.get();
+            if (current >= maxBalance) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(current + percent, maxBalance)));
+    }
+
+    /**
+     * Takes one extra call from the budget; {@code false} if it is spent.
+     */
+    public boolean tryAcquire() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+}
@@ -0,0 +1,60 @@
+package comshopsquare.apigateway.loadbalancer;
+
+import com.shopsquare.common.loadbalancer.AffinityKeyRule;
+import com.shopsquare.common.loadbalancer.LatencyAwareLoadBalancer;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends calls with the same key to the same instance of the route's service, so per-instance caches
+ * stay hot; see {@link LatencyAwareLoadBalancer} for how keys are placed. {@code keys} lists where the
+ * key comes from, in the form of {@link AffinityKeyRule}.
+ *
+ * <pre>
+ * filters:
+ *   - name: Affinity
+ *     args:
+ *       keys: path:/api/carts/user/{key}/**, path:/api/carts/{key}/**
+ * </pre>
+ */
+@Component
+public class AffinityGatewayFilterFactory extends AbstractGatewayFilterFactory<AffinityGatewayFilterFactory.Config> {
+
+    public AffinityGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    public static class Config {
+        private List<String> keys = new ArrayList<>();
+
+        public List<String> getKeys() { return keys; }
+        public void setKeys(List<String> keys) { this.keys = keys; }
+    }
+
+    @Override
+    public ShortcutType shortcutType() {
+        return ShortcutType.GATHER_LIST;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("keys");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        AffinityKeyRule rule = AffinityKeyRule.parse(config.getKeys());
+        // Runs in route order, before the load balancer filter reads the attribute
+        return (exchange, chain) -> {
+            String key = rule.extract(exchange.getRequest().getURI(), exchange.getRequest().getHeaders());
+            if (key != null) {
+                exchange.getAttributes().put(LatencyAwareLoadBalancer.AFFINITY_KEY_ATTRIBUTE, key);
+            }
+            return chain.filter(exchange);
+        };
+    }
+}
@@ -0,0 +1,125 @@
+package comshopsquare.apigateway.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Times every routed request from the moment the gateway matched a route until its response was
+ * written, in {@code gateway.requests} histograms tagged with the route, the status code and the
+ * backend instance that served it ({@code none} when the gateway answered itself, e.g. from cache or
+ * with a 429). Requests being handled are gauged per route in {@code gateway.requests.active}.
+ *
+ * <p>Timers are looked up by route, instance and status in maps and arrays that are only written the
+ * first time a combination is seen, so recording a request builds no tags and allocates nothing.
+ */
+@Component
+public class RouteMetricsFilter implements GlobalFilter, Ordered {
+
+    private static final String NO_INSTANCE = "none";
+    private static final int STATUS_CODES = 600;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RouteMeters> routes = new ConcurrentHashMap<>();
+
+    public RouteMetricsFilter(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry.getIfAvailable();
+    }
+
+    private final class RouteMeters {
+        final String routeId;
+        final AtomicInteger active = new AtomicInteger();
+        final Map<String, AtomicReferenceArray<Timer>> byInstance = new ConcurrentHashMap<>();
+
+        RouteMeters(String routeId) {
+            this.routeId = routeId;
+            Gauge.builder("gateway.requests.active", active, AtomicInteger::get)
+                    .description("Requests on this route being handled by the gateway")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+        }
+
+        Timer timer(String instance, int status) {
+            AtomicReferenceArray<Timer> timers = byInstance.get(instance);
+            if (timers == null) {
+                timers = byInstance.computeIfAbsent(instance, i -> new AtomicReferenceArray<>(STATUS_CODES));
+            }
+            Timer timer = timers.get(status);
+            if (timer == null) {
+                timer = Timer.builder("gateway.requests")
+                        .description("Latency of routed requests, until the response was written")
+                        .tag("route", routeId)
+                        .tag("status", String.valueOf(status))
+                        .tag("instance", instance)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofSeconds(30))
+                        .register(meterRegistry);
+                timers.set(status, timer);
+            }
+            return timer;
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        // Outermost, so the time includes authentication, rate limiting and caching
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (meterRegistry == null) {
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "unknown";
+        RouteMeters meters = routes.get(routeId);
+        if (meters == null) {
+            meters = routes.computeIfAbsent(routeId, RouteMeters::new);
+        }
+        RouteMeters routeMeters = meters;
+        routeMeters.active.incrementAndGet();
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> {
+            routeMeters.active.decrementAndGet();
+            routeMeters.timer(instance(exchange), status(exchange))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    private static String instance(ServerWebExchange exchange) {
+        Response<ServiceInstance> chosen = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (chosen == null || !chosen.hasServer()) {
+            return NO_INSTANCE;
+        }
+        String instanceId = chosen.getServer().getInstanceId();
+        return instanceId != null ? instanceId : chosen.getServer().getUri().getRawAuthority();
+    }
+
+    // 0 when the client went away before a status was set
+    private static int status(ServerWebExchange exchange) {
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        int code = status != null ? status.value() : 0;
+        return code > 0 && code < STATUS_CODES ? code : 0;
+    }
+}
@@ -0,0 +1,73 @@
+package comshopsquare.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets of this gateway instance, one {@link AtomicLong} each and no locks. Each bucket stores
+ * the time at which it will be full again (the "theoretical arrival time" of the generic cell rate
+ * algorithm, which behaves exactly like a token bucket): taking tokens pushes that time forward, and a
+ * request is refused if it would land more than a full bucket's worth of refill time in the future.
+ * Buckets that have refilled completely are indistinguishable from new ones and are dropped
+ * periodically, so idle clients do not accumulate.
+ */
+@Component
+public class InMemoryTokenBucketStore implements TokenBucketStore {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    public InMemoryTokenBucketStore(ObjectProvider<MeterRegistry> meterRegistry) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("gateway.ratelimit.buckets", buckets, Map::size)
+                    .description("Rate-limit buckets held by this gateway instance")
+                    .register(registry);
+        }
+    }
+
+    @Override
+    public Mono<Decision> tryConsume(String key, double replenishRate, long burstCapacity, int tokens) {
+        return Mono.just(consume(key, replenishRate, burstCapacity, tokens, System.nanoTime()));
+    }
+
+    Decision consume(String key, double replenishRate, long burstCapacity, int tokens, long now) {
+        long interval = (long) (NANOS_PER_SECOND / replenishRate);
+        long capacity = interval * burstCapacity;
+        long cost = interval * tokens;
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long fullAt = bucket.get();
+            long from = fullAt - now > 0 ? fullAt : now;
+            long ahead = from + cost - now;
+            if (ahead > capacity) {
+                return new Decision(false, (capacity - (from - now)) / interval, ahead - capacity);
+            }
+            if (bucket.compareAndSet(fullAt, from + cost)) {
+                return new Decision(true, (capacity - ahead) / interval, 0);
+            }
+        }
+    }
+
+    // A request racing with removal may charge a dropped bucket; the client then gets a full one back
+    @Scheduled(fixedDelayString = "${gateway.rate-limit.sweep-interval-ms:60000}")
+    public void sweep() {
+        sweep(System.nanoTime());
+    }
+
+    void sweep(long now) {
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+}
@@ -0,0 +1,88 @@
+package comshopsquare.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rate limiter for the {@code RequestRateLimiter} route filter, backed by a {@link TokenBucketStore}.
+ * Limits are set per route with {@code token-bucket.replenishRate}, {@code token-bucket.burstCapacity}
+ * and {@code token-bucket.requestedTokens}; routes without them get {@code gateway.rate-limit.*}. Each
+ * route has its own buckets, keyed by whatever the route's key resolver returns. A refused request gets
+ * the filter's 429 with a {@code Retry-After} in seconds.
+ */
+@Component
+public class TokenBucketRateLimiter extends AbstractRateLimiter<TokenBucketRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "token-bucket";
+
+    private static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    private static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+    private static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+
+    private final TokenBucketStore store;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.rate-limit.replenish-rate:50}")
+    private double defaultReplenishRate;
+
+    @Value("${gateway.rate-limit.burst-capacity:100}")
+    private long defaultBurstCapacity;
+
+    public TokenBucketRateLimiter(TokenBucketStore store, ConfigurationService configurationService,
+                                  ObjectProvider<MeterRegistry> meterRegistry) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.store = store;
+        this.meterRegistry = meterRegistry.getIfAvailable();
+    }
+
+    public static class Config {
+        private double replenishRate;
+        private long burstCapacity;
+        private int requestedTokens = 1;
+
+        public double getReplenishRate() { return replenishRate; }
+        public void setReplenishRate(double replenishRate) { this.replenishRate = replenishRate; }
+
+        public long getBurstCapacity() { return burstCapacity; }
+        public void setBurstCapacity(long burstCapacity) { this.burstCapacity = burstCapacity; }
+
+        public int getRequestedTokens() { return requestedTokens; }
+        public void setRequestedTokens(int requestedTokens) { this.requestedTokens = requestedTokens; }
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().get(routeId);
+        double replenishRate = config != null && config.getReplenishRate() > 0
+                ? config.getReplenishRate() : defaultReplenishRate;
+        long burstCapacity = config != null && config.getBurstCapacity() > 0
+                ? config.getBurstCapacity() : defaultBurstCapacity;
+        int requestedTokens = config != null ? config.getRequestedTokens() : 1;
+
+        return store.tryConsume(routeId + ":" + id, replenishRate, burstCapacity, requestedTokens)
+                .map(decision -> {
+                    Map<String, String> headers = new LinkedHashMap<>();
+                    headers.put(REMAINING_HEADER, String.valueOf(Math.max(decision.remaining(), 0)));
+                    headers.put(REPLENISH_RATE_HEADER, String.valueOf(replenishRate));
+                    headers.put(BURST_CAPACITY_HEADER, String.valueOf(burstCapacity));
+                    if (!decision.allowed()) {
+                        long seconds = (decision.retryAfterNanos() + 999_999_999L) / 1_000_000_000L;
+                        headers.put(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(seconds, 1)));
+                    }
+                    if (meterRegistry != null) {
+                        meterRegistry.counter("gateway.ratelimit.requests",
+                                "route", routeId, "result", decision.allowed() ? "allowed" : "limited").increment();
+                    }
+                    return new Response(decision.allowed(), headers);
+                });
+    }
+}
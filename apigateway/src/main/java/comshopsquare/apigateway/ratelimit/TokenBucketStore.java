@@ -0,0 +1,21 @@
+package comshopsquare.apigateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Where token buckets live. The in-memory store limits each gateway instance on its own; a store
+ * shared between instances (for example in Redis) can replace it by registering another bean.
+ */
+public interface TokenBucketStore {
+
+    /**
+     * Takes {@code tokens} from the bucket {@code key}, which holds up to {@code burstCapacity} tokens
+     * and gains {@code replenishRate} tokens per second, if it has that many.
+     */
+    Mono<Decision> tryConsume(String key, double replenishRate, long burstCapacity, int tokens);
+
+    /**
+     * Outcome of one attempt; {@code retryAfterNanos} is how long until it would have succeeded.
+     */
+    record Decision(boolean allowed, long remaining, long retryAfterNanos) {}
+}
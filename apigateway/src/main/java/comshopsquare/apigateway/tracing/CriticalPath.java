@@ -0,0 +1,135 @@
+package comshopsquare.apigateway.tracing;
+
+import com.shopsquare.common.tracing.FileSpanExporter.ExportedSpan;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The critical path of a trace: the chain of work the root span actually waited for. Walking back from
+ * the end of a span, the path goes into the child that finished last, then into whichever child was
+ * still running when that one started, and so on; time not covered by a child is the span's own. Calls
+ * made in parallel with a longer one therefore do not count, and the times on the path add up to the
+ * root's duration, split by service and span (e.g. gateway routing, the product call, the SQL).
+ */
+final class CriticalPath {
+
+    // Attributes that tell apart spans with the same name, most specific first
+    private static final List<String> DETAIL_ATTRIBUTES = List.of("jdbc.query[0]",
+            "spring.cloud.gateway.route.id", "http.url", "uri");
+    private static final int MAX_DETAIL = 80;
+
+    private record Segment(ExportedSpan span, long from, long to) {}
+
+    private CriticalPath() {
+    }
+
+    /**
+     * A plain-text report of the trace's critical path, or a note if {@code spans} is empty.
+     */
+    static String describe(String traceId, List<ExportedSpan> spans) {
+        if (spans.isEmpty()) {
+            return "No spans for trace " + traceId + " (not sampled, not exported yet, or rotated away)\n";
+        }
+        Map<String, List<ExportedSpan>> children = new HashMap<>();
+        Set<String> ids = new HashSet<>();
+        for (ExportedSpan span : spans) {
+            ids.add(span.spanId());
+        }
+        ExportedSpan root = null;
+        for (ExportedSpan span : spans) {
+            if (span.parentSpanId() != null && ids.contains(span.parentSpanId())) {
+                children.computeIfAbsent(span.parentSpanId(), id -> new ArrayList<>()).add(span);
+            } else if (root == null || duration(span) > duration(root)) {
+                // Spans whose parent is missing (e.g. still being exported) are roots too; take the longest
+                root = span;
+            }
+        }
+        List<Segment> path = new ArrayList<>();
+        walk(root, root.endNanos(), children, path);
+        path.sort(Comparator.comparingLong(Segment::from));
+
+        Map<ExportedSpan, Long> bySpan = new LinkedHashMap<>();
+        Map<String, Long> byService = new LinkedHashMap<>();
+        for (Segment segment : path) {
+            bySpan.merge(segment.span(), segment.to() - segment.from(), Long::sum);
+            byService.merge(segment.span().service(), segment.to() - segment.from(), Long::sum);
+        }
+        double total = Math.max(duration(root), 1);
+        Set<String> services = new TreeSet<>();
+        spans.forEach(span -> services.add(span.service()));
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("trace %s: %s, %d spans across %s%n", traceId, millis(duration(root)),
+                spans.size(), String.join(", ", services)));
+        report.append(String.format("root: %s %s%n%n", root.service(), label(root)));
+        report.append("critical path (start, time on path, share):\n");
+        for (Map.Entry<ExportedSpan, Long> entry : bySpan.entrySet()) {
+            ExportedSpan span = entry.getKey();
+            report.append(String.format("  %10s %10s %5.1f%%  %-20s %s%s%n",
+                    millis(span.startNanos() - root.startNanos()), millis(entry.getValue()),
+                    100 * entry.getValue() / total, span.service(), label(span), span.error() ? "  [error]" : ""));
+        }
+        report.append("\nby service:\n");
+        byService.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(entry -> report.append(String.format("  %-20s %10s %5.1f%%%n", entry.getKey(),
+                        millis(entry.getValue()), 100 * entry.getValue() / total)));
+        return report.toString();
+    }
+
+    // Adds the path through span up to until, latest first
+    private static void walk(ExportedSpan span, long until, Map<String, List<ExportedSpan>> children,
+                             List<Segment> path) {
+        List<ExportedSpan> remaining = new ArrayList<>(children.getOrDefault(span.spanId(), List.of()));
+        remaining.sort(Comparator.comparingLong(ExportedSpan::endNanos).reversed());
+        long cursor = Math.min(until, span.endNanos());
+        for (ExportedSpan child : remaining) {
+            if (cursor <= span.startNanos()) {
+                break;
+            }
+            // Only a child running before the cursor can be what the span was waiting for there
+            if (child.startNanos() >= cursor) {
+                continue;
+            }
+            long childEnd = Math.min(child.endNanos(), cursor);
+            if (childEnd < cursor) {
+                path.add(new Segment(span, childEnd, cursor));
+            }
+            walk(child, childEnd, children, path);
+            cursor = Math.max(child.startNanos(), span.startNanos());
+        }
+        if (cursor > span.startNanos()) {
+            path.add(new Segment(span, span.startNanos(), cursor));
+        }
+    }
+
+    private static String label(ExportedSpan span) {
+        for (String attribute : DETAIL_ATTRIBUTES) {
+            String detail = span.attributes().get(attribute);
+            if (detail != null && !span.name().endsWith(detail)) {
+                detail = detail.replaceAll("\\s+", " ");
+                if (detail.length() > MAX_DETAIL) {
+                    detail = detail.substring(0, MAX_DETAIL - 3) + "...";
+                }
+                return span.name() + " " + detail;
+            }
+        }
+        return span.name();
+    }
+
+    private static long duration(ExportedSpan span) {
+        return span.endNanos() - span.startNanos();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f ms", nanos / 1e6);
+    }
+}
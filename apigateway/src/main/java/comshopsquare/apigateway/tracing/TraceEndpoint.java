@@ -0,0 +1,102 @@
+package comshopsquare.apigateway.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopsquare.common.tracing.FileSpanExporter;
+import com.shopsquare.common.tracing.FileSpanExporter.ExportedSpan;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Reads the span files every process writes to {@code tracing.export.directory} (see
+ * {@link FileSpanExporter}) and answers {@code /actuator/traces} with the slowest recent traces, and
+ * {@code /actuator/traces/{traceId}} with the critical path of one as plain text. Spans are exported in
+ * batches, so a trace is complete a few seconds after its request.
+ *
+ * <pre>curl localhost:9100/actuator/traces/4bf92f3577b34da6a3ce929d0e0e4736</pre>
+ */
+@Component
+@Endpoint(id = "traces")
+public class TraceEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int DEFAULT_MINUTES = 15;
+
+    public record TraceSummary(String traceId, String service, String name, double durationMs, long startEpochMs,
+                               boolean error) {}
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path directory;
+
+    public TraceEndpoint(@Value("${tracing.export.directory:${java.io.tmpdir}/shopsquare-traces}") String directory) {
+        this.directory = Path.of(directory);
+    }
+
+    /**
+     * Root spans that started in the last {@code minutes}, slowest first.
+     */
+    @ReadOperation
+    public List<TraceSummary> traces(@Nullable Integer minutes, @Nullable Integer limit) {
+        long since = System.currentTimeMillis()
+                - TimeUnit.MINUTES.toMillis(minutes != null ? minutes : DEFAULT_MINUTES);
+        // Checked on the raw line first, so only root spans are parsed
+        return read(line -> line.contains("\"parentSpanId\":null")).stream()
+                .filter(span -> TimeUnit.NANOSECONDS.toMillis(span.startNanos()) >= since)
+                .sorted(Comparator.comparingLong((ExportedSpan span) -> span.endNanos() - span.startNanos()).reversed())
+                .limit(limit != null ? limit : DEFAULT_LIMIT)
+                .map(span -> new TraceSummary(span.traceId(), span.service(), span.name(),
+                        (span.endNanos() - span.startNanos()) / 1e6,
+                        TimeUnit.NANOSECONDS.toMillis(span.startNanos()), span.error()))
+                .toList();
+    }
+
+    @ReadOperation(produces = "text/plain")
+    public String criticalPath(@Selector String traceId) {
+        String needle = "\"traceId\":\"" + traceId + "\"";
+        return CriticalPath.describe(traceId, read(line -> line.contains(needle)));
+    }
+
+    private List<ExportedSpan> read(Predicate<String> filter) {
+        List<ExportedSpan> spans = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.jsonl*")) {
+            for (Path file : files) {
+                try (Stream<String> lines = Files.lines(file)) {
+                    lines.filter(filter).map(this::parse).filter(Objects::nonNull).forEach(spans::add);
+                } catch (NoSuchFileException e) {
+                    // Rotated away while listing
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return spans;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return spans;
+    }
+
+    // Null for a line still being written
+    private ExportedSpan parse(String line) {
+        try {
+            return objectMapper.readValue(line, ExportedSpan.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package comshopsquare.apigateway.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlFilterTest {
+
+    private final RecordingController controller = new RecordingController();
+    private final AdmissionControlFilter filter = new AdmissionControlFilter(controller);
+
+    @Test
+    void writingTheBodyToTheClientIsNotTimed() {
+        // Headers go out after 50 ms, then the client takes another 300 ms to read the rest
+        GatewayFilterChain chain = exchange -> Mono.delay(Duration.ofMillis(50))
+                .then(exchange.getResponse().writeWith(Flux.concat(
+                        Mono.just(buffer("head")), Mono.delay(Duration.ofMillis(300)).map(ignored -> buffer("tail")))));
+
+        filter.filter(routed(), chain).block();
+        awaitReleased();
+
+        assertEquals(1, controller.samples.size());
+        long rttMillis = TimeUnit.NANOSECONDS.toMillis(controller.samples.get(0));
+        assertTrue(rttMillis >= 50 && rttMillis < 300, "rtt " + rttMillis + " ms");
+    }
+
+    @Test
+    void cancelledBeforeTheResponseReleasesWithoutASample() {
+        GatewayFilterChain chain = exchange -> Mono.never();
+
+        filter.filter(routed(), chain).timeout(Duration.ofMillis(50), Mono.empty()).block();
+        awaitReleased();
+
+        assertTrue(controller.samples.isEmpty());
+    }
+
+    @Test
+    void failedCallIsTimedUntilItFails() {
+        GatewayFilterChain chain = exchange -> Mono.delay(Duration.ofMillis(20))
+                .then(Mono.error(new IllegalStateException("connection refused")));
+
+        assertThrows(IllegalStateException.class, () -> filter.filter(routed(), chain).block());
+        awaitReleased();
+        assertEquals(1, controller.samples.size());
+    }
+
+    // The slot is released in doFinally, which runs just after the caller has seen the outcome
+    private void awaitReleased() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (controller.inFlight() != 0) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new AssertionError("slot not released within 5 seconds");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static MockServerWebExchange routed() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+                .id("orderservice").uri("http://localhost").predicate(ignored -> true).build());
+        return exchange;
+    }
+
+    private static DataBuffer buffer(String text) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class RecordingController extends AdmissionController {
+
+        private final List<Long> samples = new CopyOnWriteArrayList<>();
+
+        RecordingController() {
+            super(100, 10, 2000, 1.5, 100, 0.8, 0.5,
+                    new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        }
+
+        @Override
+        public void complete(long rttNanos, long now) {
+            samples.add(rttNanos);
+            super.complete(rttNanos, now);
+        }
+    }
+}
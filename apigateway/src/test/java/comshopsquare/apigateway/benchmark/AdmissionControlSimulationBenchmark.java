@@ -0,0 +1,113 @@
+package comshopsquare.apigateway.benchmark;
+
+import comshopsquare.apigateway.admission.AdmissionController;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Discrete-event simulation of the gateway in front of services with 20 workers in total, 5 ms mean
+ * service time and FIFO queues, comparing no limit with {@link AdmissionController}. Checkout
+ * (critical) traffic is 10% of capacity and cart and profile (standard) traffic 20%, while browsing
+ * (sheddable) grows until the total offered load is 0.8x, 2x and 3x what the services can do. Each run
+ * covers 20 simulated seconds, so results do not depend on the machine running them.
+ *
+ * <pre>mvn test -Dtest=AdmissionControlSimulationBenchmark -Dbenchmark=true -Dsurefire.failIfNoSpecifiedTests=false</pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AdmissionControlSimulationBenchmark {
+
+    private static final int WORKERS = 20;
+    private static final long MEAN_SERVICE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long DURATION = TimeUnit.SECONDS.toNanos(20);
+    private static final double CRITICAL_LOAD = 0.1;
+    private static final double STANDARD_LOAD = 0.2;
+
+    record Completion(long at, long startedAt) {}
+
+    @Test
+    void compare() {
+        for (double load : new double[] {0.8, 2, 3}) {
+            System.out.printf("offered load %.1fx%n", load);
+            report("no limit", simulate(load, false));
+            report("adaptive", simulate(load, true));
+        }
+    }
+
+    private static List<List<Long>> simulate(double load, boolean limited) {
+        AdmissionController admission = new AdmissionController(100, 10, 2000, 1.5, 100, 0.8, 0.5,
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        Random random = new Random(42);
+        double capacityPerNano = (double) WORKERS / MEAN_SERVICE_NANOS;
+        double[] rates = {CRITICAL_LOAD * capacityPerNano, STANDARD_LOAD * capacityPerNano,
+                (load - CRITICAL_LOAD - STANDARD_LOAD) * capacityPerNano};
+        double totalRate = rates[0] + rates[1] + rates[2];
+        AdmissionController.Priority[] priorities = AdmissionController.Priority.values();
+        long[] workerFreeAt = new long[WORKERS];
+        PriorityQueue<Completion> completions = new PriorityQueue<>((x, y) -> Long.compare(x.at(), y.at()));
+        // Per tier: latencies of served requests, then one entry per shed request
+        List<List<Long>> latencies = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        long[] shed = new long[priorities.length];
+
+        long now = 0;
+        while (now < DURATION) {
+            now += (long) (-Math.log(1 - random.nextDouble()) / totalRate);
+            while (!completions.isEmpty() && completions.peek().at() <= now) {
+                Completion done = completions.poll();
+                admission.complete(done.at() - done.startedAt(), done.at());
+            }
+            double pick = random.nextDouble() * totalRate;
+            int tier = pick < rates[0] ? 0 : pick < rates[0] + rates[1] ? 1 : 2;
+            if (limited && !admission.tryAcquire(priorities[tier])) {
+                shed[tier]++;
+                continue;
+            }
+            int worker = 0;
+            for (int w = 1; w < WORKERS; w++) {
+                if (workerFreeAt[w] < workerFreeAt[worker]) {
+                    worker = w;
+                }
+            }
+            long serviceNanos = (long) (-Math.log(1 - random.nextDouble()) * MEAN_SERVICE_NANOS);
+            long completesAt = Math.max(now, workerFreeAt[worker]) + serviceNanos;
+            workerFreeAt[worker] = completesAt;
+            if (limited) {
+                completions.add(new Completion(completesAt, now));
+            }
+            latencies.get(tier).add(completesAt - now);
+        }
+        for (int tier = 0; tier < priorities.length; tier++) {
+            for (long i = 0; i < shed[tier]; i++) {
+                latencies.get(tier).add(-1L);
+            }
+        }
+        return latencies;
+    }
+
+    private static void report(String label, List<List<Long>> latencies) {
+        StringBuilder line = new StringBuilder(String.format("  %-9s", label + ":"));
+        String[] names = {"critical", "standard", "sheddable"};
+        for (int tier = 0; tier < names.length; tier++) {
+            List<Long> tierLatencies = latencies.get(tier);
+            long[] served = tierLatencies.stream().mapToLong(Long::longValue).filter(l -> l >= 0).sorted().toArray();
+            double shedPercent = 100.0 * (tierLatencies.size() - served.length) / tierLatencies.size();
+            line.append(String.format(" %s p50 %s p99 %s shed %.0f%%;", names[tier],
+                    millis(served, 0.5), millis(served, 0.99), shedPercent));
+        }
+        System.out.println(line);
+    }
+
+    private static String millis(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return "-";
+        }
+        return String.format("%.1fms", sorted[(int) (sorted.length * quantile)] / 1e6);
+    }
+}
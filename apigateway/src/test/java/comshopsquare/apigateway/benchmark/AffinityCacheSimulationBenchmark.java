@@ -0,0 +1,152 @@
+package comshopsquare.apigateway.benchmark;
+
+import com.shopsquare.common.loadbalancer.LatencyAwareLoadBalancer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Simulates per-instance LRU caches behind the load balancer, with keys (say user IDs) drawn from a
+ * Zipf distribution over 200k users and room for 10k of them in each instance's cache. Compares the hit
+ * rate of key-blind balancing with {@link LatencyAwareLoadBalancer}'s bounded-load consistent hashing as
+ * replicas are added, how many keys change instance when one more replica joins, and the busiest
+ * instance's share of calls. Sixteen calls are kept outstanding so the load bound comes into play.
+ *
+ * <pre>mvn test -Dtest=AffinityCacheSimulationBenchmark -Dbenchmark=true -Dsurefire.failIfNoSpecifiedTests=false</pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AffinityCacheSimulationBenchmark {
+
+    private static final int KEYS = 200_000;
+    private static final double ZIPF_EXPONENT = 0.9;
+    private static final int CACHE_ENTRIES = 10_000;
+    private static final int CALLS = 1_000_000;
+    private static final int OUTSTANDING = 16;
+
+    record Call(ServiceInstance instance, Object id) {}
+
+    static class LruCache extends LinkedHashMap<Integer, Boolean> {
+        LruCache() {
+            super(CACHE_ENTRIES * 2, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Boolean> eldest) {
+            return size() > CACHE_ENTRIES;
+        }
+    }
+
+    @Test
+    void compare() {
+        double[] zipf = zipfCdf();
+        for (int replicas : new int[] {2, 4, 8}) {
+            System.out.printf("%d replicas%n", replicas);
+            report("key-blind", simulate(replicas, false, zipf));
+            report("affinity", simulate(replicas, true, zipf));
+            System.out.printf("  %-11s %.1f%% of keys move to an added replica (ideal %.1f%%)%n", "remapping:",
+                    100 * moved(replicas), 100.0 / (replicas + 1));
+        }
+    }
+
+    private static double[] simulate(int replicas, boolean affinity, double[] zipf) {
+        List<ServiceInstance> instances = instances(replicas);
+        LatencyAwareLoadBalancer balancer = balancer();
+        List<LruCache> caches = new ArrayList<>();
+        for (int i = 0; i < replicas; i++) {
+            caches.add(new LruCache());
+        }
+        long[] calls = new long[replicas];
+        ArrayDeque<Call> outstanding = new ArrayDeque<>();
+        Random random = new Random(42);
+        long hits = 0;
+        long now = 0;
+
+        for (int i = 0; i < CALLS; i++) {
+            now += 1_000_000;
+            if (outstanding.size() == OUTSTANDING) {
+                Call done = outstanding.poll();
+                balancer.finished(done.instance(), done.id(), false, now);
+            }
+            int key = sample(zipf, random);
+            ServiceInstance instance = balancer.pick(instances, affinity ? "user-" + key : null, now).getServer();
+            Object id = new Object();
+            balancer.started(instance, id, now);
+            outstanding.add(new Call(instance, id));
+
+            int index = instances.indexOf(instance);
+            calls[index]++;
+            if (caches.get(index).put(key, Boolean.TRUE) != null) {
+                hits++;
+            }
+        }
+        return new double[] {(double) hits / CALLS, (double) Arrays.stream(calls).max().orElse(0) * replicas / CALLS};
+    }
+
+    // Share of keys whose instance changes when a replica is added, with no load on any instance
+    private static double moved(int replicas) {
+        LatencyAwareLoadBalancer before = balancer();
+        LatencyAwareLoadBalancer after = balancer();
+        List<ServiceInstance> current = instances(replicas);
+        List<ServiceInstance> grown = instances(replicas + 1);
+        int moved = 0;
+        int sampled = 20_000;
+        for (int key = 0; key < sampled; key++) {
+            String affinityKey = "user-" + key;
+            String from = before.pick(current, affinityKey, 0).getServer().getInstanceId();
+            String to = after.pick(grown, affinityKey, 0).getServer().getInstanceId();
+            if (!from.equals(to)) {
+                moved++;
+            }
+        }
+        return (double) moved / sampled;
+    }
+
+    private static LatencyAwareLoadBalancer balancer() {
+        return new LatencyAwareLoadBalancer("stub",
+                new StaticListableBeanFactory().getBeanProvider(ServiceInstanceListSupplier.class),
+                Duration.ofSeconds(10), 5, Duration.ofSeconds(30), 50, null, 1.25, null);
+    }
+
+    private static List<ServiceInstance> instances(int count) {
+        List<ServiceInstance> instances = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            instances.add(new DefaultServiceInstance("stub-" + i, "stub", "10.0.0." + i, 8080, false));
+        }
+        return instances;
+    }
+
+    private static double[] zipfCdf() {
+        double[] cdf = new double[KEYS];
+        double total = 0;
+        for (int k = 0; k < KEYS; k++) {
+            total += 1 / Math.pow(k + 1, ZIPF_EXPONENT);
+            cdf[k] = total;
+        }
+        for (int k = 0; k < KEYS; k++) {
+            cdf[k] /= total;
+        }
+        return cdf;
+    }
+
+    private static int sample(double[] cdf, Random random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(index < 0 ? -index - 1 : index, KEYS - 1);
+    }
+
+    private static void report(String label, double[] result) {
+        System.out.printf("  %-11s hit rate %.1f%%, busiest instance %.2fx the average%n", label + ":",
+                100 * result[0], result[1]);
+    }
+}
@@ -0,0 +1,164 @@
+package comshopsquare.apigateway.benchmark;
+
+import com.shopsquare.common.loadbalancer.LatencyAwareLoadBalancer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Discrete-event simulation of one client spreading calls over five stub instances, comparing round
+ * robin with {@link LatencyAwareLoadBalancer}. Each stub has four workers and a FIFO queue; service
+ * times are exponential with a 5 ms mean and calls arrive as a Poisson stream at 60% of total capacity.
+ * In each scenario one instance misbehaves: it stalls 250 ms every 2 s (a GC pause), it is 50% slower
+ * than the others, or it fails every call at once. Time is simulated, so results do not depend on the
+ * machine running them.
+ *
+ * <pre>mvn test -Dtest=LoadBalancerSimulationBenchmark -Dbenchmark=true -Dsurefire.failIfNoSpecifiedTests=false</pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class LoadBalancerSimulationBenchmark {
+
+    private static final int INSTANCES = 5;
+    private static final int WORKERS = 4;
+    private static final long MEAN_SERVICE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final double UTILIZATION = 0.6;
+    private static final int CALLS = 300_000;
+
+    private static final long PAUSE_EVERY = TimeUnit.SECONDS.toNanos(2);
+    private static final long PAUSE_FOR = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final long FAIL_AFTER = TimeUnit.MICROSECONDS.toNanos(500);
+
+    enum Fault { GC_PAUSES, SLOW, FAILING }
+
+    interface Balancer {
+        int pick(long now);
+        void started(int instance, Object call, long now);
+        void finished(int instance, Object call, boolean failed, long now);
+    }
+
+    static class RoundRobin implements Balancer {
+        private int next;
+
+        public int pick(long now) { return next++ % INSTANCES; }
+        public void started(int instance, Object call, long now) { }
+        public void finished(int instance, Object call, boolean failed, long now) { }
+    }
+
+    static class LatencyAware implements Balancer {
+        private final List<ServiceInstance> instances = new ArrayList<>();
+        private final LatencyAwareLoadBalancer balancer = new LatencyAwareLoadBalancer("stub",
+                new StaticListableBeanFactory().getBeanProvider(ServiceInstanceListSupplier.class),
+                Duration.ofSeconds(10), 5, Duration.ofSeconds(30), 50, null, 1.25, null);
+
+        LatencyAware() {
+            for (int i = 0; i < INSTANCES; i++) {
+                instances.add(new DefaultServiceInstance("stub-" + i, "stub", "10.0.0." + i, 8080, false));
+            }
+        }
+
+        public int pick(long now) { return instances.indexOf(balancer.pick(instances, null, now).getServer()); }
+        public void started(int instance, Object call, long now) { balancer.started(instances.get(instance), call, now); }
+        public void finished(int instance, Object call, boolean failed, long now) {
+            balancer.finished(instances.get(instance), call, failed, now);
+        }
+    }
+
+    record Completion(long at, int instance, Object call, boolean failed) {}
+
+    @Test
+    void compare() {
+        for (Fault fault : Fault.values()) {
+            System.out.printf("%s%n", fault);
+            report("round robin", simulate(new RoundRobin(), fault));
+            report("latency-aware", simulate(new LatencyAware(), fault));
+        }
+    }
+
+    private static long[] simulate(Balancer balancer, Fault fault) {
+        Random random = new Random(42);
+        double arrivalsPerNano = UTILIZATION * INSTANCES * WORKERS / MEAN_SERVICE_NANOS;
+        long[][] workerFreeAt = new long[INSTANCES][WORKERS];
+        PriorityQueue<Completion> completions = new PriorityQueue<>((x, y) -> Long.compare(x.at(), y.at()));
+        long[] latencies = new long[CALLS];
+        long now = TimeUnit.SECONDS.toNanos(1);
+
+        for (int i = 0; i < CALLS; i++) {
+            now += (long) (-Math.log(1 - random.nextDouble()) / arrivalsPerNano);
+            while (!completions.isEmpty() && completions.peek().at() <= now) {
+                Completion done = completions.poll();
+                balancer.finished(done.instance(), done.call(), done.failed(), done.at());
+            }
+            int instance = balancer.pick(now);
+            Object call = new Object();
+            balancer.started(instance, call, now);
+
+            long serviceNanos = (long) (-Math.log(1 - random.nextDouble()) * MEAN_SERVICE_NANOS);
+            boolean faulty = instance == 0;
+            long completesAt;
+            if (faulty && fault == Fault.FAILING) {
+                completesAt = now + FAIL_AFTER;
+            } else {
+                long[] workers = workerFreeAt[instance];
+                int worker = 0;
+                for (int w = 1; w < WORKERS; w++) {
+                    if (workers[w] < workers[worker]) {
+                        worker = w;
+                    }
+                }
+                long start = Math.max(now, workers[worker]);
+                if (faulty && fault == Fault.SLOW) {
+                    serviceNanos = serviceNanos * 3 / 2;
+                }
+                completesAt = faulty && fault == Fault.GC_PAUSES ? runWithPauses(start, serviceNanos) : start + serviceNanos;
+                workers[worker] = completesAt;
+            }
+            boolean failed = faulty && fault == Fault.FAILING;
+            completions.add(new Completion(completesAt, instance, call, failed));
+            // A failed call counts as infinitely slow, so errors land beyond every reported percentile
+            latencies[i] = failed ? Long.MAX_VALUE : completesAt - now;
+        }
+        return latencies;
+    }
+
+    // Work on the pausing instance makes no progress during [k * PAUSE_EVERY, k * PAUSE_EVERY + PAUSE_FOR)
+    private static long runWithPauses(long start, long work) {
+        long t = start;
+        while (true) {
+            long pauseStart = t / PAUSE_EVERY * PAUSE_EVERY;
+            if (t < pauseStart + PAUSE_FOR) {
+                t = pauseStart + PAUSE_FOR;
+            }
+            long nextPause = (t / PAUSE_EVERY + 1) * PAUSE_EVERY;
+            if (t + work <= nextPause) {
+                return t + work;
+            }
+            work -= nextPause - t;
+            t = nextPause;
+        }
+    }
+
+    private static void report(String label, long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        long errors = Arrays.stream(sorted).filter(l -> l == Long.MAX_VALUE).count();
+        int n = sorted.length;
+        System.out.printf("  %-14s p50 %s, p99 %s, p99.9 %s, errors %.2f%%%n", label + ":",
+                millis(sorted[n / 2]), millis(sorted[n * 99 / 100]), millis(sorted[n * 999 / 1000]),
+                100.0 * errors / n);
+    }
+
+    private static String millis(long nanos) {
+        return nanos == Long.MAX_VALUE ? "error" : String.format("%.1f ms", nanos / 1e6);
+    }
+}
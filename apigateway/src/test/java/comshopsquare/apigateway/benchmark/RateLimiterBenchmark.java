@@ -0,0 +1,75 @@
+package comshopsquare.apigateway.benchmark;
+
+import comshopsquare.apigateway.ratelimit.InMemoryTokenBucketStore;
+import comshopsquare.apigateway.ratelimit.TokenBucketStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Per-request cost of the gateway's rate limit check with several threads taking tokens at once:
+ * spread over many client buckets, as in normal traffic, and all on one bucket, as when a single
+ * client floods a route and the compare-and-set loop is contended.
+ *
+ * <pre>mvn test -Dtest=RateLimiterBenchmark -Dbenchmark=true -Dsurefire.failIfNoSpecifiedTests=false</pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RateLimiterBenchmark {
+
+    private static final int THREADS = 8;
+    private static final int CHECKS_PER_THREAD = 500_000;
+    private static final int CLIENTS = 10_000;
+
+    @Test
+    void consume() throws Exception {
+        String[] clients = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = "productservice:user:" + i;
+        }
+        report("many keys", run(clients));
+        report("one key", run(new String[] {"productservice:ip:203.0.113.7"}));
+    }
+
+    private static long[] run(String[] keys) throws Exception {
+        TokenBucketStore store = new InMemoryTokenBucketStore(new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        for (int i = 0; i < 200_000; i++) {
+            store.tryConsume(keys[i % keys.length], 50, 100, 1).block();
+        }
+        long[] nanos = new long[THREADS * CHECKS_PER_THREAD];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t * CHECKS_PER_THREAD;
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < CHECKS_PER_THREAD; i++) {
+                    String key = keys[(offset + i) % keys.length];
+                    long begin = System.nanoTime();
+                    store.tryConsume(key, 50, 100, 1).block();
+                    nanos[offset + i] = System.nanoTime() - begin;
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return nanos;
+    }
+
+    private static void report(String label, long[] nanos) {
+        Arrays.sort(nanos);
+        int n = nanos.length;
+        System.out.printf("%-10s p50 %.2f us, p99 %.2f us, p99.9 %.2f us%n", label + ":",
+                nanos[n / 2] / 1e3, nanos[(int) (n * 99L / 100)] / 1e3, nanos[(int) (n * 999L / 1000)] / 1e3);
+    }
+}
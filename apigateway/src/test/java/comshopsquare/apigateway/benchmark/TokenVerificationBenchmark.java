@@ -0,0 +1,101 @@
+package comshopsquare.apigateway.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import comshopsquare.apigateway.auth.TokenVerifier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-request cost of checking an access token at the gateway: a full parse and RS256 signature check,
+ * as paid by the first request of a session, and the verified-token cache hit paid by the rest. Tokens
+ * are shaped like the ones USER-SERVICE issues.
+ *
+ * <pre>mvn test -Dtest=TokenVerificationBenchmark -Dbenchmark=true -Dsurefire.failIfNoSpecifiedTests=false</pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TokenVerificationBenchmark {
+
+    private static final int SESSIONS = 10_000;
+    private static final int VERIFICATIONS = 100_000;
+    private static final int LOOKUPS = 1_000_000;
+
+    @Test
+    void verifyAndLookUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        ObjectMapper objectMapper = new ObjectMapper();
+        TokenVerifier verifier = new TokenVerifier(objectMapper, "user-service", 30);
+
+        long now = System.currentTimeMillis() / 1000;
+        String[] tokens = new String[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            tokens[i] = sign(objectMapper, keyPair, i + 1, now);
+        }
+
+        for (int i = 0; i < 20_000; i++) {
+            verifier.verify(verifier.parse(tokens[i % SESSIONS]), keyPair.getPublic(), now);
+        }
+        long[] verifyNanos = new long[VERIFICATIONS];
+        for (int i = 0; i < VERIFICATIONS; i++) {
+            String token = tokens[i % SESSIONS];
+            long start = System.nanoTime();
+            verifier.verify(verifier.parse(token), keyPair.getPublic(), now);
+            verifyNanos[i] = System.nanoTime() - start;
+        }
+
+        // Same structure and locking as the gateway's cache, with fresh String instances as from a header
+        Map<String, TokenVerifier.VerifiedToken> verified = new LinkedHashMap<>(16, 0.75f, true);
+        for (String token : tokens) {
+            verified.put(token, verifier.verify(verifier.parse(token), keyPair.getPublic(), now));
+        }
+        long[] lookupNanos = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            String token = new String(tokens[i % SESSIONS].toCharArray());
+            long start = System.nanoTime();
+            synchronized (verified) {
+                verified.get(token);
+            }
+            lookupNanos[i] = System.nanoTime() - start;
+        }
+
+        Arrays.sort(verifyNanos);
+        Arrays.sort(lookupNanos);
+        System.out.printf("token:    %d bytes%n", tokens[0].length());
+        System.out.printf("verify:   p50 %.1f us, p99 %.1f us, p99.9 %.1f us%n",
+                verifyNanos[VERIFICATIONS / 2] / 1e3, verifyNanos[VERIFICATIONS * 99 / 100] / 1e3,
+                verifyNanos[VERIFICATIONS * 999 / 1000] / 1e3);
+        System.out.printf("cached:   p50 %.2f us, p99 %.2f us, p99.9 %.2f us%n",
+                lookupNanos[LOOKUPS / 2] / 1e3, lookupNanos[LOOKUPS * 99 / 100] / 1e3,
+                lookupNanos[LOOKUPS * 999 / 1000] / 1e3);
+    }
+
+    private static String sign(ObjectMapper objectMapper, KeyPair keyPair, int userId, long now) throws Exception {
+        Base64.Encoder base64 = Base64.getUrlEncoder().withoutPadding();
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("alg", "RS256");
+        header.put("typ", "JWT");
+        header.put("kid", "3f1c2b9e-4a5d-4c1e-9b7a-2d8e6f0a1b2c");
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("iss", "user-service");
+        claims.put("sub", String.valueOf(userId));
+        claims.put("role", "CUSTOMER");
+        claims.put("iat", now);
+        claims.put("exp", now + 900);
+        String signingInput = base64.encodeToString(objectMapper.writeValueAsBytes(header)) + "."
+                + base64.encodeToString(objectMapper.writeValueAsBytes(claims));
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + "." + base64.encodeToString(signature.sign());
+    }
+}
@@ -0,0 +1,95 @@
+package comshopsquare.apigateway.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ResponseCacheGatewayFilterFactoryTest {
+
+    private final AtomicReference<byte[]> whole = new AtomicReference<>();
+    private final AtomicReference<byte[]> streamed = new AtomicReference<>();
+    private final AtomicInteger chunksRequested = new AtomicInteger();
+
+    @Test
+    void bodyWithinTheLimitIsJoined() {
+        read(body("ab", "cd", "e"), -1, 5);
+
+        assertArrayEquals(bytes("abcde"), whole.get());
+        assertNull(streamed.get());
+    }
+
+    @Test
+    void emptyBodyIsJoined() {
+        read(Flux.empty(), -1, 5);
+
+        assertArrayEquals(new byte[0], whole.get());
+    }
+
+    @Test
+    void bodyPastTheLimitIsStreamedFromTheStart() {
+        read(body("ab", "cd", "ef", "gh"), -1, 5);
+
+        assertNull(whole.get());
+        assertArrayEquals(bytes("abcdefgh"), streamed.get());
+    }
+
+    @Test
+    void declaredLengthOverTheLimitSkipsBuffering() {
+        read(body("ab", "cd", "ef", "gh"), 8, 5);
+
+        assertNull(whole.get());
+        assertArrayEquals(bytes("abcdefgh"), streamed.get());
+    }
+
+    @Test
+    void bufferingStopsOnceTheLimitIsPassed() {
+        // The consumer takes one chunk and stops; an unbounded read would have pulled all of them
+        Flux<DataBuffer> body = body("ab", "cd", "ef", "gh", "ij", "kl");
+        ResponseCacheGatewayFilterFactory.readUpTo(body, -1, 3,
+                bytes -> Mono.error(new AssertionError("joined a body over the limit")),
+                stream -> stream.take(1).then()).block();
+
+        assertEquals(2, chunksRequested.get());
+    }
+
+    @Test
+    void upstreamErrorsPropagate() {
+        Flux<DataBuffer> body = body("ab").concatWith(Flux.error(new IllegalStateException("reset")));
+
+        assertThrows(IllegalStateException.class, () -> read(body, -1, 5));
+        assertNull(whole.get());
+    }
+
+    private void read(Flux<DataBuffer> body, long contentLength, long limit) {
+        ResponseCacheGatewayFilterFactory.readUpTo(body, contentLength, limit,
+                bytes -> Mono.fromRunnable(() -> whole.set(bytes)),
+                stream -> stream.reduce(new ByteArrayOutputStream(), (out, buffer) -> {
+                    byte[] chunk = new byte[buffer.readableByteCount()];
+                    buffer.read(chunk);
+                    out.writeBytes(chunk);
+                    return out;
+                }).doOnNext(out -> streamed.set(out.toByteArray())).then()).block();
+    }
+
+    private Flux<DataBuffer> body(String... chunks) {
+        return Flux.fromArray(chunks)
+                .doOnNext(chunk -> chunksRequested.incrementAndGet())
+                .map(chunk -> DefaultDataBufferFactory.sharedInstance.wrap(bytes(chunk)));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
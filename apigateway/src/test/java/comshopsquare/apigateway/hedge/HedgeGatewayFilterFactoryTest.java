@@ -0,0 +1,300 @@
+package comshopsquare.apigateway.hedge;
+
+import com.shopsquare.common.loadbalancer.LatencyAwareLoadBalancer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClientsProperties;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgeGatewayFilterFactoryTest {
+
+    private static final Duration NEVER = Duration.ofMinutes(1);
+    private static final Duration AT_ONCE = Duration.ofMillis(1);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<CompletionContext<?, ?, ?>> completions = new CopyOnWriteArrayList<>();
+    private final List<Upstream> upstreams = new CopyOnWriteArrayList<>();
+    private final MockServerWebExchange exchange =
+            MockServerWebExchange.from(MockServerHttpRequest.get("http://gateway/api/products/1"));
+
+    // One attempt's call to the service: it answers when the test says so
+    private record Upstream(HedgeAttempt attempt, ServiceInstance instance, Sinks.One<HttpStatus> answer,
+                            AtomicReference<Boolean> cancelled) {
+
+        void answer(HttpStatus status) {
+            answer.tryEmitValue(status);
+        }
+
+        void fail(Throwable error) {
+            answer.tryEmitError(error);
+        }
+
+        ServiceInstance avoided() {
+            return (ServiceInstance) attempt.getAttributes().get(LatencyAwareLoadBalancer.AVOID_INSTANCE_ATTRIBUTE);
+        }
+    }
+
+    @Test
+    void primaryAnsweringBeforeTheDelayIsNotHedged() {
+        Mono<Void> result = filter(new RetryBudget(10, 20, meterRegistryProvider(registry)), NEVER);
+
+        Disposable subscription = result.subscribe();
+        upstreams.get(0).answer(HttpStatus.OK);
+
+        assertTrue(subscription.isDisposed());
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertEquals(1, upstreams.size());
+        assertEquals(1, requests("single"));
+    }
+
+    @Test
+    void primaryWinningTheRaceCancelsTheHedge() {
+        Mono<Void> result = filter(new RetryBudget(10, 20, meterRegistryProvider(registry)), AT_ONCE);
+
+        result.subscribe();
+        await(() -> upstreams.size() == 2);
+        upstreams.get(0).answer(HttpStatus.OK);
+
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertFalse(upstreams.get(0).cancelled().get());
+        // The hedge is subscribed on the timer's thread, so its cancellation may land a moment later
+        await(() -> upstreams.get(1).cancelled().get());
+        assertDiscarded(upstreams.get(1));
+        assertEquals(1, requests("primary-won"));
+    }
+
+    @Test
+    void hedgeWinningTheRaceCancelsThePrimary() {
+        Mono<Void> result = filter(new RetryBudget(10, 20, meterRegistryProvider(registry)), AT_ONCE);
+
+        result.subscribe();
+        await(() -> upstreams.size() == 2);
+        Upstream primary = upstreams.get(0);
+        Upstream hedge = upstreams.get(1);
+        assertTrue(hedge.attempt().hedge);
+        assertEquals(primary.instance(), hedge.avoided());
+
+        hedge.answer(HttpStatus.OK);
+
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertTrue(primary.cancelled().get());
+        assertDiscarded(primary);
+        assertEquals(1, requests("hedge-won"));
+        // The answer the primary gives after losing is ignored
+        primary.answer(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+    }
+
+    @Test
+    void serviceUnavailableIsRetriedOnceOnAnotherInstance() {
+        Mono<Void> result = filter(new RetryBudget(10, 20, meterRegistryProvider(registry)), NEVER);
+
+        result.subscribe();
+        upstreams.get(0).answer(HttpStatus.SERVICE_UNAVAILABLE);
+
+        assertEquals(2, upstreams.size());
+        Upstream retry = upstreams.get(1);
+        assertFalse(retry.attempt().hedge);
+        assertEquals(upstreams.get(0).instance(), retry.avoided());
+
+        retry.answer(HttpStatus.OK);
+
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertEquals(1, requests("retried"));
+    }
+
+    @Test
+    void failedRetryAnswerStands() {
+        Mono<Void> result = filter(new RetryBudget(10, 20, meterRegistryProvider(registry)), NEVER);
+
+        result.subscribe();
+        upstreams.get(0).answer(HttpStatus.SERVICE_UNAVAILABLE);
+        upstreams.get(1).answer(HttpStatus.SERVICE_UNAVAILABLE);
+
+        // Only one retry; its answer stands
+        assertEquals(2, upstreams.size());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exchange.getResponse().getStatusCode());
+        assertEquals(1, requests("retried"));
+    }
+
+    @Test
+    void connectionErrorOfBothAttemptsPropagates() {
+        Mono<Void> result = filter(new RetryBudget(10, 20, meterRegistryProvider(registry)), NEVER);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        result.subscribe(null, error::set);
+        upstreams.get(0).fail(new IllegalStateException("connection refused"));
+        assertEquals(2, upstreams.size());
+        IllegalStateException last = new IllegalStateException("connection reset");
+        upstreams.get(1).fail(last);
+
+        assertSame(last, error.get());
+        assertNull(exchange.getResponse().getStatusCode());
+        assertTrue(registry.find("gateway.hedge.requests").counters().isEmpty());
+    }
+
+    @Test
+    void clientGoingAwayCancelsEveryAttempt() {
+        Mono<Void> result = filter(new RetryBudget(10, 20, meterRegistryProvider(registry)), AT_ONCE);
+
+        Disposable subscription = result.subscribe();
+        await(() -> upstreams.size() == 2);
+        subscription.dispose();
+
+        assertTrue(upstreams.get(0).cancelled().get());
+        await(() -> upstreams.get(1).cancelled().get());
+        assertDiscarded(upstreams.get(0));
+        assertDiscarded(upstreams.get(1));
+        assertTrue(registry.find("gateway.hedge.requests").counters().isEmpty());
+    }
+
+    @Test
+    void clientGoingAwayBeforeTheDelayStopsTheHedge() throws InterruptedException {
+        Mono<Void> result = filter(new RetryBudget(10, 20, meterRegistryProvider(registry)), Duration.ofMillis(50));
+
+        result.subscribe().dispose();
+        TimeUnit.MILLISECONDS.sleep(200);
+
+        assertEquals(1, upstreams.size());
+        assertTrue(upstreams.get(0).cancelled().get());
+    }
+
+    @Test
+    void spentBudgetSkipsTheHedge() throws InterruptedException {
+        // No burst, and one request only deposits a tenth of a token
+        Mono<Void> result = filter(new RetryBudget(10, 0, meterRegistryProvider(registry)), AT_ONCE);
+
+        result.subscribe();
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertEquals(1, upstreams.size());
+        upstreams.get(0).answer(HttpStatus.OK);
+
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertEquals(1, requests("no-budget"));
+    }
+
+    @Test
+    void spentBudgetSkipsTheRetry() {
+        Mono<Void> result = filter(new RetryBudget(10, 0, meterRegistryProvider(registry)), NEVER);
+
+        result.subscribe();
+        upstreams.get(0).answer(HttpStatus.SERVICE_UNAVAILABLE);
+
+        assertEquals(1, upstreams.size());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exchange.getResponse().getStatusCode());
+        assertEquals(1, requests("no-budget"));
+    }
+
+    private Mono<Void> filter(RetryBudget budget, Duration delay) {
+        HedgeGatewayFilterFactory factory = new HedgeGatewayFilterFactory(budget, loadBalancerClientFactory(),
+                meterRegistryProvider(registry));
+        HedgeGatewayFilterFactory.Config config = new HedgeGatewayFilterFactory.Config();
+        config.setMinDelay(delay);
+        config.setMaxDelay(delay);
+        GatewayFilter filter = factory.apply(config);
+
+        Route route = Route.async().id("products").uri("lb://product-service").predicate(exchange -> true).build();
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        return filter.filter(exchange, attemptExchange -> {
+            HedgeAttempt attempt = (HedgeAttempt) attemptExchange;
+            ServiceInstance instance = new DefaultServiceInstance("instance-" + upstreams.size(),
+                    "product-service", "10.0.0." + upstreams.size(), 8080, false);
+            attempt.getAttributes().put(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR,
+                    new DefaultResponse(instance));
+            Upstream upstream = new Upstream(attempt, instance, Sinks.one(), new AtomicReference<>(false));
+            upstreams.add(upstream);
+            return upstream.answer().asMono()
+                    .doOnNext(status -> attempt.getResponse().setStatusCode(status))
+                    .doOnCancel(() -> upstream.cancelled().set(true))
+                    .then();
+        });
+    }
+
+    // Hands the hedge filter a lifecycle that records what the load balancer is told
+    private LoadBalancerClientFactory loadBalancerClientFactory() {
+        LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> lifecycle = new LoadBalancerLifecycle<>() {
+            @Override
+            public void onStart(Request<RequestDataContext> request) {
+            }
+
+            @Override
+            public void onStartRequest(Request<RequestDataContext> request,
+                                       Response<ServiceInstance> lbResponse) {
+            }
+
+            @Override
+            public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> completion) {
+                completions.add(completion);
+            }
+        };
+        return new LoadBalancerClientFactory(new LoadBalancerClientsProperties()) {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> Map<String, T> getInstances(String name, Class<T> type) {
+                return Map.of("recording", (T) lifecycle);
+            }
+        };
+    }
+
+    private void assertDiscarded(Upstream upstream) {
+        assertTrue(completions.stream().anyMatch(completion ->
+                completion.status() == CompletionContext.Status.DISCARD
+                        && completion.getLoadBalancerResponse().getServer().equals(upstream.instance())),
+                upstream.instance().getInstanceId() + " was not discarded");
+    }
+
+    private double requests(String result) {
+        return registry.get("gateway.hedge.requests").tags("route", "products", "result", result).counter().count();
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new AssertionError("condition not met within 5 seconds");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static ObjectProvider<MeterRegistry> meterRegistryProvider(MeterRegistry registry) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", registry);
+        return beanFactory.getBeanProvider(MeterRegistry.class);
+    }
+}
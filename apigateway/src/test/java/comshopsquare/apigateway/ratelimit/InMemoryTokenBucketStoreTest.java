@@ -0,0 +1,157 @@
+package comshopsquare.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryTokenBucketStoreTest {
+
+    // 10 tokens per second: one every 100 ms
+    private static final double RATE = 10;
+    private static final long INTERVAL = 100_000_000L;
+    private static final long BURST = 5;
+
+    // An arbitrary origin, since System.nanoTime() may be negative too
+    private static final long T0 = -1_000_000_000_000L;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final InMemoryTokenBucketStore store = new InMemoryTokenBucketStore(meterRegistryProvider(registry));
+
+    @Test
+    void newBucketAllowsABurstThenRefuses() {
+        for (int i = 1; i <= BURST; i++) {
+            TokenBucketStore.Decision decision = store.consume("a", RATE, BURST, 1, T0);
+            assertTrue(decision.allowed());
+            assertEquals(BURST - i, decision.remaining());
+            assertEquals(0, decision.retryAfterNanos());
+        }
+
+        TokenBucketStore.Decision refused = store.consume("a", RATE, BURST, 1, T0);
+        assertFalse(refused.allowed());
+        assertEquals(0, refused.remaining());
+        assertEquals(INTERVAL, refused.retryAfterNanos());
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        drain("a", T0);
+
+        assertFalse(store.consume("a", RATE, BURST, 1, T0 + INTERVAL - 1).allowed());
+        assertTrue(store.consume("a", RATE, BURST, 1, T0 + INTERVAL).allowed());
+        assertFalse(store.consume("a", RATE, BURST, 1, T0 + INTERVAL).allowed());
+
+        TokenBucketStore.Decision partial = store.consume("a", RATE, BURST, 1, T0 + INTERVAL + INTERVAL / 4);
+        assertFalse(partial.allowed());
+        assertEquals(INTERVAL * 3 / 4, partial.retryAfterNanos());
+    }
+
+    @Test
+    void refillStopsAtTheBurstCapacity() {
+        drain("a", T0);
+
+        long later = T0 + 100 * INTERVAL;
+        for (int i = 0; i < BURST; i++) {
+            assertTrue(store.consume("a", RATE, BURST, 1, later).allowed());
+        }
+        assertFalse(store.consume("a", RATE, BURST, 1, later).allowed());
+    }
+
+    @Test
+    void refusedRequestTakesNothing() {
+        assertTrue(store.consume("a", RATE, BURST, 3, T0).allowed());
+
+        TokenBucketStore.Decision refused = store.consume("a", RATE, BURST, 3, T0);
+        assertFalse(refused.allowed());
+        assertEquals(2, refused.remaining());
+        assertEquals(INTERVAL, refused.retryAfterNanos());
+
+        TokenBucketStore.Decision allowed = store.consume("a", RATE, BURST, 2, T0);
+        assertTrue(allowed.allowed());
+        assertEquals(0, allowed.remaining());
+    }
+
+    @Test
+    void requestLargerThanTheBucketIsAlwaysRefused() {
+        TokenBucketStore.Decision decision = store.consume("a", RATE, BURST, (int) BURST + 1, T0);
+
+        assertFalse(decision.allowed());
+        assertEquals(BURST, decision.remaining());
+    }
+
+    @Test
+    void keysHaveSeparateBuckets() {
+        drain("a", T0);
+
+        assertTrue(store.consume("b", RATE, BURST, 1, T0).allowed());
+    }
+
+    @Test
+    void sweepDropsOnlyFullBuckets() {
+        drain("a", T0);
+        store.consume("b", RATE, BURST, 1, T0);
+        assertEquals(2, bucketCount());
+
+        store.sweep(T0 + INTERVAL);
+        assertEquals(1, bucketCount());
+
+        store.sweep(T0 + BURST * INTERVAL);
+        assertEquals(0, bucketCount());
+    }
+
+    @Test
+    void concurrentRequestsNeverOverspend() throws Exception {
+        int threads = 8;
+        int attemptsPerThread = 1_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> {
+                    int allowed = 0;
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        if (store.consume("shared", RATE, 100, 1, T0).allowed()) {
+                            allowed++;
+                        }
+                    }
+                    return allowed;
+                });
+            }
+            int total = 0;
+            for (Future<Integer> result : executor.invokeAll(tasks)) {
+                total += result.get();
+            }
+            assertEquals(100, total);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void drain(String key, long now) {
+        for (int i = 0; i < BURST; i++) {
+            store.consume(key, RATE, BURST, 1, now);
+        }
+    }
+
+    private double bucketCount() {
+        return registry.get("gateway.ratelimit.buckets").gauge().value();
+    }
+
+    private static ObjectProvider<MeterRegistry> meterRegistryProvider(MeterRegistry registry) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", registry);
+        return beanFactory.getBeanProvider(MeterRegistry.class);
+    }
+}
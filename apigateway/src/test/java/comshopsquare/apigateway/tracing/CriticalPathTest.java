@@ -0,0 +1,150 @@
+package comshopsquare.apigateway.tracing;
+
+import com.shopsquare.common.tracing.FileSpanExporter.ExportedSpan;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CriticalPathTest {
+
+    private static final String TRACE = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+    // Epoch nanos are large; the report must only depend on differences
+    private static final long T0 = 1_700_000_000_000_000_000L;
+
+    @Test
+    void noSpansGivesANote() {
+        assertTrue(CriticalPath.describe(TRACE, List.of()).startsWith("No spans for trace " + TRACE));
+    }
+
+    @Test
+    void sequentialCallsAndTheGapsBetweenThemAreAllOnThePath() {
+        String report = CriticalPath.describe(TRACE, List.of(
+                span("root", null, "apigateway", "GET /api/orders", 0, 100),
+                span("products", "root", "product-service", "GET /api/products", 10, 40),
+                span("shops", "root", "shop-service", "GET /api/shops", 50, 90)));
+
+        assertTrue(report.startsWith("trace " + TRACE + ": 100.0 ms, 3 spans across apigateway, product-service, "
+                + "shop-service\nroot: apigateway GET /api/orders\n"));
+        assertOnPath(report, "GET /api/orders", "30.0 ms", "30.0%");
+        assertOnPath(report, "GET /api/products", "30.0 ms", "30.0%");
+        assertOnPath(report, "GET /api/shops", "40.0 ms", "40.0%");
+        assertInOrder(pathSection(report), "GET /api/orders", "GET /api/products", "GET /api/shops");
+        assertInOrder(serviceSection(report), "shop-service", "apigateway", "product-service");
+    }
+
+    @Test
+    void callsOverlappedByALongerOneAreLeftOut() {
+        String report = CriticalPath.describe(TRACE, List.of(
+                span("root", null, "apigateway", "GET /api/orders", 0, 100),
+                span("products", "root", "product-service", "GET /api/products", 10, 60),
+                span("shops", "root", "shop-service", "GET /api/shops", 10, 90)));
+
+        assertOnPath(report, "GET /api/orders", "20.0 ms", "20.0%");
+        assertOnPath(report, "GET /api/shops", "80.0 ms", "80.0%");
+        assertFalse(pathSection(report).contains("GET /api/products"));
+        assertFalse(serviceSection(report).contains("product-service"));
+        // Still counted among the trace's spans and services
+        assertTrue(report.startsWith("trace " + TRACE + ": 100.0 ms, 3 spans across apigateway, product-service"));
+    }
+
+    @Test
+    void pathFollowsTheChildThatWasStillRunning() {
+        // orders ends last, and stock was what the root was waiting for before orders started
+        String report = CriticalPath.describe(TRACE, List.of(
+                span("root", null, "apigateway", "POST /api/checkout", 0, 100),
+                span("stock", "root", "product-service", "POST /api/products/reserve", 5, 50),
+                span("cart", "root", "cart-service", "GET /api/carts", 5, 20),
+                span("orders", "root", "order-service", "POST /api/orders", 40, 95)));
+
+        assertOnPath(report, "POST /api/orders", "55.0 ms", "55.0%");
+        assertOnPath(report, "POST /api/products/reserve", "35.0 ms", "35.0%");
+        assertFalse(pathSection(report).contains("GET /api/carts"));
+        // 5 ms before stock started and 5 ms after orders ended
+        assertTrue(serviceSection(report).lines().anyMatch(line -> line.contains("apigateway")
+                && line.contains("10.0 ms") && line.contains("10.0%")));
+    }
+
+    @Test
+    void nestedCallsSplitTheirParentsTime() {
+        String report = CriticalPath.describe(TRACE, List.of(
+                span("root", null, "apigateway", "GET /api/products/{id}", 0, 100),
+                span("http", "root", "product-service", "GET /api/products/{id}", 10, 90),
+                span("sql", "http", "product-service", "query", 20, 80)));
+
+        assertOnPath(report, "query", "60.0 ms", "60.0%");
+        assertTrue(serviceSection(report).lines().anyMatch(line -> line.contains("product-service")
+                && line.contains("80.0 ms") && line.contains("80.0%")));
+        assertTrue(serviceSection(report).lines().anyMatch(line -> line.contains("apigateway")
+                && line.contains("20.0 ms") && line.contains("20.0%")));
+    }
+
+    @Test
+    void longestSpanWithoutAKnownParentIsTheRoot() {
+        // The gateway's span is not exported yet, so its children have a parent that is missing
+        String report = CriticalPath.describe(TRACE, List.of(
+                span("products", "gateway", "product-service", "GET /api/products", 0, 30),
+                span("shops", "gateway", "shop-service", "GET /api/shops", 0, 80)));
+
+        assertTrue(report.contains("root: shop-service GET /api/shops\n"));
+        assertOnPath(report, "GET /api/shops", "80.0 ms", "100.0%");
+    }
+
+    @Test
+    void labelsCarryTheMostSpecificDetailAndErrors() {
+        String query = "select p.id, p.name from product p where p.shop_id = ? " + "and p.stock > 0 ".repeat(10);
+        String report = CriticalPath.describe(TRACE, List.of(
+                span("root", null, "apigateway", "GET", 0, 100,
+                        Map.of("spring.cloud.gateway.route.id", "product-service", "http.url", "/api/products")),
+                new ExportedSpan(TRACE, "sql", "root", "product-service", "query", "CLIENT",
+                        T0 + ms(10), T0 + ms(90), true, Map.of("jdbc.query[0]", query))));
+
+        assertTrue(report.contains("root: apigateway GET product-service\n"));
+        String sqlLine = pathSection(report).lines().filter(line -> line.contains("query select")).findFirst().orElseThrow();
+        assertTrue(sqlLine.endsWith("...  [error]"));
+        assertEquals(80, sqlLine.substring(sqlLine.indexOf("select"), sqlLine.indexOf("  [error]")).length());
+    }
+
+    private static void assertOnPath(String report, String label, String time, String share) {
+        assertTrue(pathSection(report).lines().anyMatch(line -> line.endsWith(label)
+                        && line.contains(time) && line.contains(share)),
+                "no path line for " + label + " with " + time + " and " + share + " in\n" + report);
+    }
+
+    private static void assertInOrder(String section, String... labels) {
+        int[] positions = Arrays.stream(labels).mapToInt(section::indexOf).toArray();
+        for (int i = 0; i < positions.length; i++) {
+            assertTrue(positions[i] >= 0 && (i == 0 || positions[i] > positions[i - 1]),
+                    Arrays.toString(labels) + " not in order in\n" + section);
+        }
+    }
+
+    private static String pathSection(String report) {
+        return report.substring(report.indexOf("critical path"), report.indexOf("by service:"));
+    }
+
+    private static String serviceSection(String report) {
+        return report.substring(report.indexOf("by service:"));
+    }
+
+    private static ExportedSpan span(String id, String parent, String service, String name, long startMs, long endMs) {
+        return span(id, parent, service, name, startMs, endMs, Map.of());
+    }
+
+    private static ExportedSpan span(String id, String parent, String service, String name, long startMs, long endMs,
+                                     Map<String, String> attributes) {
+        return new ExportedSpan(TRACE, id, parent, service, name, "SERVER", T0 + ms(startMs), T0 + ms(endMs), false,
+                attributes);
+    }
+
+    private static long ms(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
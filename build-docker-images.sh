@@ -32,15 +32,15 @@ for service_info in "${services[@]}"; do
     echo "📦 Building $image_name..."
     echo "   Directory: $directory"
     
-    cd "$directory"
-    
-    # Build the Docker image
-    docker build -t "${IMAGE_PREFIX}/${image_name}:latest" .
+    # Modules using the shared common module are built from the repository root
+    if grep -q "COPY common/" "$directory/Dockerfile"; then
+        docker build -t "${IMAGE_PREFIX}/${image_name}:latest" -f "$directory/Dockerfile" .
+    else
+        docker build -t "${IMAGE_PREFIX}/${image_name}:latest" "$directory"
+    fi
     
     echo "   ✓ $image_name built successfully!"
     echo ""
-    
-    cd ..
 done
 
 echo ""
@@ -2,11 +2,13 @@ package com.shopsquare.cartitem.controller;
 
 import com.shopsquare.cartitem.entity.CartItem;
 import com.shopsquare.cartitem.service.CartItemService;
+import com.shopsquare.common.exception.DependencyUnavailableException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -34,6 +36,8 @@ public class CartItemController {
             return ResponseEntity.ok(cartItemService.createCartItem(cartItem));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
+        } catch (DependencyUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -80,6 +84,8 @@ public class CartItemController {
             return ResponseEntity.ok(cartItemService.updateCartItem(id, cartItem));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
+        } catch (DependencyUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -103,5 +109,9 @@ public class CartItemController {
             return ResponseEntity.notFound().build();
         }
     }
-}
 
+    @ExceptionHandler(DependencyUnavailableException.class)
+    public ResponseEntity<String> handleDependencyUnavailable(DependencyUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
+}
@@ -3,9 +3,9 @@ package com.shopsquare.cartitem.service;
 import com.shopsquare.cartitem.entity.CartItem;
 import com.shopsquare.cartitem.repository.CartItemRepository;
 import com.shopsquare.cartitem.service.CartItemService;
+import com.shopsquare.common.resilience.DownstreamCalls;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.List;
 import java.util.Optional;
@@ -14,14 +14,14 @@ import java.util.Optional;
 public class CartItemServiceImpl implements CartItemService {
 
     private final CartItemRepository cartItemRepository;
-    private final RestTemplate restTemplate;
+    private final DownstreamCalls downstreamCalls;
 
     @Value("${service.product-service.name:product-service}")
     private String productServiceName;
 
-    public CartItemServiceImpl(CartItemRepository cartItemRepository, RestTemplate restTemplate) {
+    public CartItemServiceImpl(CartItemRepository cartItemRepository, DownstreamCalls downstreamCalls) {
         this.cartItemRepository = cartItemRepository;
-        this.restTemplate = restTemplate;
+        this.downstreamCalls = downstreamCalls;
     }
 
     @Override
@@ -43,11 +43,9 @@ public class CartItemServiceImpl implements CartItemService {
         }
         
         // Validate product exists via PRODUCT-SERVICE
-        try {
-            String url = "http://" + productServiceName + "/api/products/" + cartItem.getProductId();
-            restTemplate.getForObject(url, Object.class);
-        } catch (Exception e) {
-            throw new RuntimeException("Product with ID " + cartItem.getProductId() + " does not exist or is not accessible", e);
+        String url = "http://" + productServiceName + "/api/products/" + cartItem.getProductId();
+        if (!downstreamCalls.exists(productServiceName, url)) {
+            throw new RuntimeException("Product with ID " + cartItem.getProductId() + " does not exist or is not accessible");
         }
         
         return cartItemRepository.save(cartItem);
@@ -94,11 +92,9 @@ public class CartItemServiceImpl implements CartItemService {
             
             // Validate product exists if product ID is being changed
             if (existingCartItem.getProductId() != cartItem.getProductId()) {
-                try {
-                    String url = "http://" + productServiceName + "/api/products/" + cartItem.getProductId();
-                    restTemplate.getForObject(url, Object.class);
-                } catch (Exception e) {
-                    throw new RuntimeException("Product with ID " + cartItem.getProductId() + " does not exist or is not accessible", e);
+                String url = "http://" + productServiceName + "/api/products/" + cartItem.getProductId();
+                if (!downstreamCalls.exists(productServiceName, url)) {
+                    throw new RuntimeException("Product with ID " + cartItem.getProductId() + " does not exist or is not accessible");
                 }
             }
             
@@ -3,11 +3,13 @@ package com.shopsquare.cartservice.controller;
 
 import com.shopsquare.cartservice.entity.Cart;
 import com.shopsquare.cartservice.service.CartService;
+import com.shopsquare.common.exception.DependencyUnavailableException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -36,6 +38,8 @@ public class CartController {
             return ResponseEntity.ok(cartService.createCart(cart));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
+        } catch (DependencyUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -90,6 +94,8 @@ public class CartController {
             return ResponseEntity.ok(cartService.updateCart(id, cart));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
+        } catch (DependencyUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -123,4 +129,9 @@ public class CartController {
     public ResponseEntity<List<?>> getItems(@PathVariable int id) {
         return ResponseEntity.ok(cartService.getItemsForCart(id));
     }
+
+    @ExceptionHandler(DependencyUnavailableException.class)
+    public ResponseEntity<String> handleDependencyUnavailable(DependencyUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
 }
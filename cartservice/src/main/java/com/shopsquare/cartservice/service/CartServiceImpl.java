@@ -3,6 +3,7 @@ package com.shopsquare.cartservice.service;
 import com.shopsquare.cartservice.entity.Cart;
 import com.shopsquare.cartservice.repository.CartRepository;
 import com.shopsquare.cartservice.service.CartService;
+import com.shopsquare.common.resilience.DownstreamCalls;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
@@ -18,6 +19,7 @@ public class CartServiceImpl implements CartService {
 
     private final CartRepository cartRepository;
     private final RestTemplate restTemplate;
+    private final DownstreamCalls downstreamCalls;
 
     @Value("${service.user-service.name:user-service}")
     private String userServiceName;
@@ -25,9 +27,10 @@ public class CartServiceImpl implements CartService {
     @Value("${service.cart-item-service.name:cartitem}")
     private String cartItemServiceName;
 
-    public CartServiceImpl(CartRepository cartRepository, RestTemplate restTemplate) {
+    public CartServiceImpl(CartRepository cartRepository, RestTemplate restTemplate, DownstreamCalls downstreamCalls) {
         this.cartRepository = cartRepository;
         this.restTemplate = restTemplate;
+        this.downstreamCalls = downstreamCalls;
     }
 
     @Override
@@ -45,11 +48,9 @@ public class CartServiceImpl implements CartService {
         }
         
         // validate user exists via USER-SERVICE
-        try {
-            String url = "http://" + userServiceName + "/api/users/" + cart.getUserId();
-            restTemplate.getForObject(url, Object.class);
-        } catch (Exception e) {
-            throw new RuntimeException("User with ID " + cart.getUserId() + " does not exist or is not accessible", e);
+        String url = "http://" + userServiceName + "/api/users/" + cart.getUserId();
+        if (!downstreamCalls.exists(userServiceName, url)) {
+            throw new RuntimeException("User with ID " + cart.getUserId() + " does not exist or is not accessible");
         }
         
         cart.setUpdatedAt(LocalDateTime.now());
@@ -61,13 +62,14 @@ public class CartServiceImpl implements CartService {
         String url = "http://" + cartItemServiceName + "/api/cart-items";
         Map<String, Object> payloadWithCartId = new HashMap<>(cartItemPayload);
         payloadWithCartId.putIfAbsent("cartId", cartId);
-        return restTemplate.postForObject(url, payloadWithCartId, Object.class);
+        return downstreamCalls.call(cartItemServiceName, false,
+                () -> restTemplate.postForObject(url, payloadWithCartId, Object.class));
     }
 
     @Override
     public List<?> getItemsForCart(int cartId) {
         String url = "http://" + cartItemServiceName + "/api/cart-items?cartId=" + cartId;
-        return restTemplate.getForObject(url, List.class);
+        return downstreamCalls.call(cartItemServiceName, true, () -> restTemplate.getForObject(url, List.class));
     }
 
     @Override
@@ -109,11 +111,9 @@ public class CartServiceImpl implements CartService {
             
             // Validate user exists if user ID is being changed
             if (existingCart.getUserId() != cart.getUserId()) {
-                try {
-                    String url = "http://" + userServiceName + "/api/users/" + cart.getUserId();
-                    restTemplate.getForObject(url, Object.class);
-                } catch (Exception e) {
-                    throw new RuntimeException("User with ID " + cart.getUserId() + " does not exist or is not accessible", e);
+                String url = "http://" + userServiceName + "/api/users/" + cart.getUserId();
+                if (!downstreamCalls.exists(userServiceName, url)) {
+                    throw new RuntimeException("User with ID " + cart.getUserId() + " does not exist or is not accessible");
                 }
             }
             
@@ -0,0 +1,79 @@
+package com.shopsquare.common.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.metamodel.EntityType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Moves every pooled ID sequence past the highest ID already stored in its table, so rows created
+ * while the entity still used IDENTITY keep their IDs and new blocks never collide with them.
+ * Runs once at startup, after Hibernate has created the sequences and before the server takes traffic.
+ */
+@Component
+public class IdSequenceInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceInitializer.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdSequenceInitializer(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignSequences() {
+        String database = jdbcTemplate.execute((Connection connection) ->
+                connection.getMetaData().getDatabaseProductName()).toLowerCase(Locale.ROOT);
+        for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+            Class<?> type = entity.getJavaType();
+            Table table = type.getAnnotation(Table.class);
+            for (Field field : type.getDeclaredFields()) {
+                SequenceGenerator generator = field.getAnnotation(SequenceGenerator.class);
+                if (table != null && generator != null && field.isAnnotationPresent(Id.class)) {
+                    align(database, table.name(), field.getName(), generator);
+                }
+            }
+        }
+    }
+
+    private void align(String database, String table, String idColumn, SequenceGenerator generator) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(" + idColumn + "), 0) FROM " + table, Long.class);
+        if (maxId == null || maxId == 0) {
+            return;
+        }
+        String sequence = generator.sequenceName();
+        long nextId = maxId + 1;
+        if (database.contains("postgres")) {
+            Map<String, Object> state = jdbcTemplate.queryForMap("SELECT last_value, is_called FROM " + sequence);
+            long lastValue = ((Number) state.get("last_value")).longValue();
+            boolean called = (Boolean) state.get("is_called");
+            long next = called ? lastValue + generator.allocationSize() : lastValue;
+            if (next < nextId) {
+                jdbcTemplate.queryForObject("SELECT setval('" + sequence + "', ?, false)", Long.class, nextId);
+                log.info("Advanced sequence {} to {} to clear existing {} rows", sequence, nextId, table);
+            }
+        } else if (database.contains("mysql") || database.contains("mariadb")) {
+            // No native sequences: Hibernate keeps the next value in a single-row table
+            int updated = jdbcTemplate.update("UPDATE " + sequence + " SET next_val = ? WHERE next_val < ?", nextId, nextId);
+            if (updated > 0) {
+                log.info("Advanced sequence table {} to {} to clear existing {} rows", sequence, nextId, table);
+            }
+        } else {
+            log.warn("Cannot align sequence {} on {}; make sure it starts above {}", sequence, database, maxId);
+        }
+    }
+}
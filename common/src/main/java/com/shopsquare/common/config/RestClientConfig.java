@@ -0,0 +1,243 @@
+package com.shopsquare.common.config;
+
+import com.shopsquare.common.loadbalancer.LatencyAwareLoadBalancerConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.message.HttpResponseWrapper;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Outbound HTTP for calls to other services. Requests share a pooled Apache HttpClient with keep-alive,
+ * a per-route connection cap, and connect, read, pool-acquire and total timeouts, so a slow dependency
+ * fails fast instead of holding this service's request threads. Pool state is published as
+ * {@code httpcomponents.httpclient.pool.*} and lease latency as {@code http.client.pool.acquire}.
+ * With {@code http-client.http2-enabled} the JDK client is used instead: it negotiates HTTP/2, but its
+ * connections cannot be capped or measured. Instances are picked by latency and
+ * outstanding calls rather than round robin. Services pull it in through their {@code CommonConfig}.
+ */
+@Configuration
+@LoadBalancerClients(defaultConfiguration = LatencyAwareLoadBalancerConfiguration.class)
+public class RestClientConfig {
+
+    @Value("${http-client.max-total:200}")
+    private int maxTotal;
+
+    @Value("${http-client.max-per-route:50}")
+    private int maxPerRoute;
+
+    @Value("${http-client.connect-timeout-ms:1000}")
+    private long connectTimeoutMs;
+
+    @Value("${http-client.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+
+    @Value("${http-client.acquire-timeout-ms:1000}")
+    private long acquireTimeoutMs;
+
+    @Value("${http-client.total-timeout-ms:10000}")
+    private long totalTimeoutMs;
+
+    @Value("${http-client.keep-alive-ms:30000}")
+    private long keepAliveMs;
+
+    @Value("${http-client.http2-enabled:false}")
+    private boolean http2Enabled;
+
+    @Bean
+    public ClientHttpRequestFactory downstreamRequestFactory(ObjectProvider<MeterRegistry> meterRegistry) {
+        if (http2Enabled) {
+            JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                    .build());
+            // The JDK client applies this to the whole exchange
+            factory.setReadTimeout(Duration.ofMillis(totalTimeoutMs));
+            return factory;
+        }
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        TimedConnectionManager connectionManager = new TimedConnectionManager(
+                registry == null ? null : Timer.builder("http.client.pool.acquire")
+                        .description("Time spent waiting for a pooled connection to another service")
+                        .publishPercentileHistogram()
+                        .register(registry));
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        connectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .build());
+        if (registry != null) {
+            new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "downstream").bindTo(registry);
+        }
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(acquireTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofMilliseconds(keepAliveMs))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(keepAliveMs))
+                .build();
+        return new HttpComponentsClientHttpRequestFactory(new DeadlineHttpClient(httpClient, totalTimeoutMs));
+    }
+
+    @Bean
+    @LoadBalanced
+    public RestTemplate restTemplate(RestTemplateBuilder builder, ClientHttpRequestFactory downstreamRequestFactory) {
+        return builder.requestFactory(() -> downstreamRequestFactory).build();
+    }
+
+    // Records how long each caller waited for a connection lease, including waits that time out
+    static final class TimedConnectionManager extends PoolingHttpClientConnectionManager {
+
+        private final Timer acquireTimer;
+
+        TimedConnectionManager(Timer acquireTimer) {
+            this.acquireTimer = acquireTimer;
+        }
+
+        @Override
+        public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+            LeaseRequest lease = super.lease(id, route, requestTimeout, state);
+            if (acquireTimer == null) {
+                return lease;
+            }
+            long start = System.nanoTime();
+            return new LeaseRequest() {
+                @Override
+                public ConnectionEndpoint get(Timeout timeout)
+                        throws InterruptedException, ExecutionException, TimeoutException {
+                    try {
+                        return lease.get(timeout);
+                    } finally {
+                        acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return lease.cancel();
+                }
+            };
+        }
+    }
+
+    // Aborts any exchange still running after the total timeout, however the time was spent. The timer
+    // starts when the request is sent and is cancelled as soon as the response is closed or the send fails.
+    static final class DeadlineHttpClient extends CloseableHttpClient {
+
+        private final CloseableHttpClient delegate;
+        private final long totalTimeoutMs;
+        private final ScheduledThreadPoolExecutor deadlines;
+
+        DeadlineHttpClient(CloseableHttpClient delegate, long totalTimeoutMs) {
+            this.delegate = delegate;
+            this.totalTimeoutMs = totalTimeoutMs;
+            this.deadlines = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "http-client-deadlines");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Otherwise every cancelled timer stays queued, holding its request, until it would have fired
+            this.deadlines.setRemoveOnCancelPolicy(true);
+        }
+
+        @Override
+        protected CloseableHttpResponse doExecute(HttpHost target, ClassicHttpRequest request, HttpContext context)
+                throws IOException {
+            if (!(request instanceof HttpUriRequestBase cancellable)) {
+                return CloseableHttpResponse.adapt(delegate.executeOpen(target, request, context));
+            }
+            ScheduledFuture<?> deadline = deadlines.schedule(cancellable::cancel, totalTimeoutMs, TimeUnit.MILLISECONDS);
+            try {
+                return CloseableHttpResponse.adapt(new DeadlineResponse(delegate.executeOpen(target, request, context), deadline));
+            } catch (IOException | RuntimeException e) {
+                deadline.cancel(false);
+                throw e;
+            }
+        }
+
+        @Override
+        public void close(CloseMode closeMode) {
+            deadlines.shutdownNow();
+            delegate.close(closeMode);
+        }
+
+        @Override
+        public void close() throws IOException {
+            deadlines.shutdownNow();
+            delegate.close();
+        }
+    }
+
+    // Stops the deadline timer when the caller is done with the response
+    private static final class DeadlineResponse extends HttpResponseWrapper implements ClassicHttpResponse {
+
+        private final ClassicHttpResponse response;
+        private final ScheduledFuture<?> deadline;
+
+        DeadlineResponse(ClassicHttpResponse response, ScheduledFuture<?> deadline) {
+            super(response);
+            this.response = response;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public HttpEntity getEntity() {
+            return response.getEntity();
+        }
+
+        @Override
+        public void setEntity(HttpEntity entity) {
+            response.setEntity(entity);
+        }
+
+        @Override
+        public void close() throws IOException {
+            deadline.cancel(false);
+            response.close();
+        }
+    }
+}
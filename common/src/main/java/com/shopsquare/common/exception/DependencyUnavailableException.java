@@ -0,0 +1,12 @@
+package com.shopsquare.common.exception;
+
+/**
+ * Thrown when another service cannot serve a call right now: its circuit is open, its bulkhead is full,
+ * or the call failed and the retry budget did not allow another attempt.
+ */
+public class DependencyUnavailableException extends RuntimeException {
+
+    public DependencyUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,74 @@
+package com.shopsquare.common.loadbalancer;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the affinity key of a call comes from: a list of sources tried in order, the first one that
+ * yields a value wins. A source is {@code header:<name>}, {@code query:<name>}, or {@code path:<pattern>}
+ * with a {@code {key}} variable, e.g. {@code path:/api/carts/{key}/**}. Calls without a key are balanced
+ * as usual.
+ */
+public final class AffinityKeyRule {
+
+    private static final AntPathMatcher PATHS = new AntPathMatcher();
+
+    private record Source(String kind, String value) {}
+
+    private final List<Source> sources;
+
+    private AffinityKeyRule(List<Source> sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * Parses {@code sources}; throws {@link IllegalArgumentException} for a source it does not understand.
+     */
+    public static AffinityKeyRule parse(List<String> sources) {
+        List<Source> parsed = new ArrayList<>(sources.size());
+        for (String source : sources) {
+            String trimmed = source.trim();
+            int colon = trimmed.indexOf(':');
+            String kind = colon > 0 ? trimmed.substring(0, colon) : "";
+            String value = trimmed.substring(colon + 1);
+            if (!List.of("header", "query", "path").contains(kind) || value.isEmpty()
+                    || (kind.equals("path") && !value.contains("{key}"))) {
+                throw new IllegalArgumentException("Invalid affinity key source '" + source
+                        + "'; expected header:<name>, query:<name> or path:<pattern with {key}>");
+            }
+            parsed.add(new Source(kind, value));
+        }
+        return new AffinityKeyRule(List.copyOf(parsed));
+    }
+
+    /**
+     * The affinity key of a call to {@code uri} with {@code headers}, or {@code null} if no source yields one.
+     */
+    public String extract(URI uri, HttpHeaders headers) {
+        for (Source source : sources) {
+            String key = switch (source.kind()) {
+                case "header" -> headers != null ? headers.getFirst(source.value()) : null;
+                case "query" -> uri.getRawQuery() != null
+                        ? UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst(source.value()) : null;
+                default -> {
+                    String path = uri.getRawPath();
+                    if (path == null || !PATHS.match(source.value(), path)) {
+                        yield null;
+                    }
+                    Map<String, String> variables = PATHS.extractUriTemplateVariables(source.value(), path);
+                    yield variables.get("key");
+                }
+            };
+            if (key != null && !key.isEmpty()) {
+                return key;
+            }
+        }
+        return null;
+    }
+}
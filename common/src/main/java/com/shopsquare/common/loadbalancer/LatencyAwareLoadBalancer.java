@@ -0,0 +1,393 @@
+package com.shopsquare.common.loadbalancer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks an instance for each call with "power of two choices": two instances are drawn at random and
+ * the cheaper one gets the call. An instance's cost is its peak-EWMA latency times its outstanding calls
+ * plus one, so an instance that slows down (a GC pause, a noisy neighbour) or piles up calls is avoided
+ * within a few calls, while the random draw still sends it some traffic so it can recover. Latency decays
+ * with {@code decay} while nothing is measured, so an avoided instance is tried again.
+ *
+ * <p>Instances whose calls fail {@code failureThreshold} times in a row (connection errors, 502, 504)
+ * are ejected for {@code ejection}. A 503 does not count: the services answer 503 when one of their own
+ * dependencies is down, and ejecting a healthy caller for that only moves its load onto the others. If
+ * more than {@code maxEjectedPercent} of the instances are ejected, ejection is ignored and all of them
+ * are used.
+ *
+ * <p>Calls that carry an affinity key (see {@link AffinityKeyRule}) are instead placed by consistent
+ * hashing with bounded loads: the key is hashed onto a ring of the instances, and the first instance
+ * clockwise whose outstanding calls stay within {@code affinityLoadFactor} times the average gets the
+ * call. Calls for one key therefore keep reaching the same instance, and its caches, while an instance
+ * joining or leaving only moves the keys next to it; a key only moves off its instance while that
+ * instance is overloaded or ejected. The key comes from the {@link #AFFINITY_KEY_ATTRIBUTE} request
+ * attribute, set by the gateway's {@code Affinity} route filter, or from the called service's rule in
+ * {@code loadbalancer.affinity.<service-id>}.
+ *
+ * <p>It learns the outcome of each call as a {@link LoadBalancerLifecycle}, which both lb:// gateway
+ * routes and {@code @LoadBalanced} clients notify.
+ */
+public class LatencyAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer,
+        LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+    public static final String AFFINITY_KEY_ATTRIBUTE = LatencyAwareLoadBalancer.class.getName() + ".affinityKey";
+
+    // A ServiceInstance not to pick unless it is the only one, e.g. the one a hedged call is waiting on
+    public static final String AVOID_INSTANCE_ATTRIBUTE = LatencyAwareLoadBalancer.class.getName() + ".avoidInstance";
+
+    // Identifies the call in place of the Request, for callers that discard calls with a Request of their own
+    public static final String CALL_ATTRIBUTE = LatencyAwareLoadBalancer.class.getName() + ".call";
+
+    private static final Logger log = LoggerFactory.getLogger(LatencyAwareLoadBalancer.class);
+
+    // Points per instance on the hash ring; more points spread keys more evenly
+    private static final int RING_POINTS_PER_INSTANCE = 100;
+
+    // Cost of an instance with calls outstanding but no latency measured yet, so a new instance is not flooded
+    private static final double UNMEASURED_PENALTY = TimeUnit.SECONDS.toNanos(1);
+
+    // Calls never reported as complete (the caller went away) stop counting as outstanding after this
+    private static final long STALE_CALL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final String serviceId;
+    private final ObjectProvider<ServiceInstanceListSupplier> instanceSupplier;
+    private final long decayNanos;
+    private final int failureThreshold;
+    private final long ejectionNanos;
+    private final int maxEjectedPercent;
+    private final AffinityKeyRule affinityRule;
+    private final double affinityLoadFactor;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, InstanceStats> stats = new ConcurrentHashMap<>();
+    private volatile Ring ring;
+
+    public LatencyAwareLoadBalancer(String serviceId, ObjectProvider<ServiceInstanceListSupplier> instanceSupplier,
+                                    Duration decay, int failureThreshold, Duration ejection, int maxEjectedPercent,
+                                    AffinityKeyRule affinityRule, double affinityLoadFactor,
+                                    MeterRegistry meterRegistry) {
+        this.serviceId = serviceId;
+        this.instanceSupplier = instanceSupplier;
+        this.decayNanos = decay.toNanos();
+        this.failureThreshold = failureThreshold;
+        this.ejectionNanos = ejection.toNanos();
+        this.maxEjectedPercent = maxEjectedPercent;
+        this.affinityRule = affinityRule;
+        this.affinityLoadFactor = affinityLoadFactor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Instances sorted by hash point; rebuilt only when the set of instances changes
+    private record Ring(List<String> instanceIds, long[] points, ServiceInstance[] owners) {}
+
+    private final class InstanceStats {
+        // Guarded by this
+        private final Map<Object, Long> outstanding = new IdentityHashMap<>();
+        private double latencyNanos;
+        private long measuredAt;
+        private long purgedAt;
+        private int consecutiveFailures;
+        private long ejectedUntil;
+        private boolean ejected;
+
+        synchronized double cost(long now) {
+            int calls = outstanding.size();
+            if (latencyNanos == 0) {
+                return calls == 0 ? 0 : UNMEASURED_PENALTY + calls;
+            }
+            return latencyNanos * Math.exp(-(double) (now - measuredAt) / decayNanos) * (calls + 1);
+        }
+
+        synchronized int outstanding() {
+            return outstanding.size();
+        }
+
+        synchronized boolean isEjected(long now) {
+            return ejected && ejectedUntil - now > 0;
+        }
+
+        synchronized void started(Object call, long now) {
+            if (now - purgedAt > STALE_CALL_NANOS) {
+                outstanding.values().removeIf(start -> now - start > STALE_CALL_NANOS);
+                purgedAt = now;
+            }
+            outstanding.put(call, now);
+        }
+
+        // A cancelled call ran for at least this long, which only matters if that is slower than the estimate
+        synchronized void cancelled(Object call, long now) {
+            Long start = outstanding.remove(call);
+            if (start != null && now - start > latencyNanos) {
+                latencyNanos = now - start;
+                measuredAt = now;
+            }
+        }
+
+        // Whether this call got the instance ejected
+        synchronized boolean finished(Object call, boolean failed, long now) {
+            Long start = outstanding.remove(call);
+            if (start != null) {
+                long sample = now - start;
+                double weight = Math.exp(-(double) (now - measuredAt) / decayNanos);
+                // Peak EWMA: a slow call counts in full at once, recovery is gradual
+                latencyNanos = sample > latencyNanos ? sample : latencyNanos * weight + sample * (1 - weight);
+                measuredAt = now;
+            }
+            if (!failed) {
+                consecutiveFailures = 0;
+                return false;
+            }
+            if (++consecutiveFailures < failureThreshold) {
+                return false;
+            }
+            consecutiveFailures = 0;
+            ejected = true;
+            ejectedUntil = now + ejectionNanos;
+            return true;
+        }
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = instanceSupplier.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        String affinityKey = affinityKey(request);
+        ServiceInstance avoid = attribute(request, AVOID_INSTANCE_ATTRIBUTE) instanceof ServiceInstance instance
+                ? instance : null;
+        return supplier.get(request).next().map(instances -> {
+            List<ServiceInstance> allowed = instances;
+            if (avoid != null && instances.size() > 1) {
+                allowed = instances.stream().filter(instance -> !key(instance).equals(key(avoid))).toList();
+            }
+            return pick(allowed.isEmpty() ? instances : allowed, affinityKey, System.nanoTime());
+        });
+    }
+
+    /**
+     * The instance for one call among {@code instances}, at time {@code now} in {@link System#nanoTime()}
+     * units; {@code affinityKey} may be {@code null}.
+     */
+    public Response<ServiceInstance> pick(List<ServiceInstance> instances, String affinityKey, long now) {
+        if (instances.isEmpty()) {
+            log.warn("No instances available for {}", serviceId);
+            return new EmptyResponse();
+        }
+        List<ServiceInstance> candidates = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            if (!stats(instance).isEjected(now)) {
+                candidates.add(instance);
+            }
+        }
+        int ejected = instances.size() - candidates.size();
+        if (candidates.isEmpty() || ejected * 100 > instances.size() * maxEjectedPercent) {
+            candidates = instances;
+        }
+        if (candidates.size() == 1) {
+            return new DefaultResponse(candidates.get(0));
+        }
+        if (affinityKey != null) {
+            return new DefaultResponse(hashed(candidates, affinityKey));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = candidates.get(first);
+        ServiceInstance b = candidates.get(second);
+        return new DefaultResponse(stats(a).cost(now) <= stats(b).cost(now) ? a : b);
+    }
+
+    private ServiceInstance hashed(List<ServiceInstance> candidates, String affinityKey) {
+        Ring current = ring(candidates);
+        int total = 0;
+        for (ServiceInstance candidate : candidates) {
+            total += stats(candidate).outstanding();
+        }
+        // The bound counts this call, so some instance is always under it
+        int capacity = (int) Math.ceil(affinityLoadFactor * (total + 1) / candidates.size());
+        long[] points = current.points();
+        int start = Arrays.binarySearch(points, hash(affinityKey));
+        if (start < 0) {
+            start = -start - 1;
+        }
+        for (int i = 0; i < points.length; i++) {
+            ServiceInstance owner = current.owners()[(start + i) % points.length];
+            if (stats(owner).outstanding() + 1 <= capacity) {
+                return owner;
+            }
+        }
+        return current.owners()[start % points.length];
+    }
+
+    private Ring ring(List<ServiceInstance> candidates) {
+        List<String> ids = new ArrayList<>(candidates.size());
+        for (ServiceInstance candidate : candidates) {
+            ids.add(key(candidate));
+        }
+        Collections.sort(ids);
+        Ring current = ring;
+        if (current != null && current.instanceIds().equals(ids)) {
+            return current;
+        }
+        int size = candidates.size() * RING_POINTS_PER_INSTANCE;
+        long[][] entries = new long[size][];
+        List<ServiceInstance> owners = new ArrayList<>(candidates);
+        for (int i = 0; i < owners.size(); i++) {
+            String id = key(owners.get(i));
+            for (int point = 0; point < RING_POINTS_PER_INSTANCE; point++) {
+                entries[i * RING_POINTS_PER_INSTANCE + point] = new long[] {hash(id + "#" + point), i};
+            }
+        }
+        Arrays.sort(entries, Comparator.comparingLong(entry -> entry[0]));
+        long[] points = new long[size];
+        ServiceInstance[] pointOwners = new ServiceInstance[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = entries[i][0];
+            pointOwners[i] = owners.get((int) entries[i][1]);
+        }
+        Ring built = new Ring(List.copyOf(ids), points, pointOwners);
+        ring = built;
+        return built;
+    }
+
+    // FNV-1a with a MurmurHash3 finalizer, so similar keys (user 41, user 42) land far apart
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private String affinityKey(Request request) {
+        if (attribute(request, AFFINITY_KEY_ATTRIBUTE) instanceof String key) {
+            return key;
+        }
+        if (affinityRule == null || !(request.getContext() instanceof RequestDataContext context)
+                || context.getClientRequest() == null || context.getClientRequest().getUrl() == null) {
+            return null;
+        }
+        RequestData data = context.getClientRequest();
+        return affinityRule.extract(data.getUrl(), data.getHeaders());
+    }
+
+    private static Object attribute(Request<?> request, String name) {
+        if (request.getContext() instanceof RequestDataContext context && context.getClientRequest() != null
+                && context.getClientRequest().getAttributes() != null) {
+            return context.getClientRequest().getAttributes().get(name);
+        }
+        return null;
+    }
+
+    private static Object call(Request<?> request) {
+        Object call = attribute(request, CALL_ATTRIBUTE);
+        return call != null ? call : request;
+    }
+
+    /**
+     * Records that {@code call} was sent to {@code instance}.
+     */
+    public void started(ServiceInstance instance, Object call, long now) {
+        stats(instance).started(call, now);
+    }
+
+    /**
+     * Records that {@code call} to {@code instance} was given up before it ended.
+     */
+    public void cancelled(ServiceInstance instance, Object call, long now) {
+        stats(instance).cancelled(call, now);
+    }
+
+    /**
+     * Records how {@code call} to {@code instance} ended.
+     */
+    public void finished(ServiceInstance instance, Object call, boolean failed, long now) {
+        if (stats(instance).finished(call, failed, now)) {
+            log.warn("Ejecting {} instance {} for {} ms after {} failed calls in a row", serviceId,
+                    instance.getInstanceId(), TimeUnit.NANOSECONDS.toMillis(ejectionNanos), failureThreshold);
+            if (meterRegistry != null) {
+                meterRegistry.counter("loadbalancer.ejections", "service", serviceId).increment();
+            }
+        }
+    }
+
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return ServiceInstance.class.isAssignableFrom(serverTypeClass);
+    }
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (lbResponse != null && lbResponse.hasServer()) {
+            started(lbResponse.getServer(), call(request), System.nanoTime());
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+        if (completionContext.status() == CompletionContext.Status.DISCARD) {
+            cancelled(lbResponse.getServer(), call(completionContext.getLoadBalancerRequest()), System.nanoTime());
+            return;
+        }
+        boolean failed = completionContext.status() == CompletionContext.Status.FAILED;
+        if (completionContext.getClientResponse() instanceof ResponseData response && response.getHttpStatus() != null) {
+            int status = response.getHttpStatus().value();
+            failed |= status == 502 || status == 504;
+        }
+        finished(lbResponse.getServer(), call(completionContext.getLoadBalancerRequest()), failed, System.nanoTime());
+    }
+
+    private InstanceStats stats(ServiceInstance instance) {
+        String key = key(instance);
+        InstanceStats instanceStats = stats.get(key);
+        return instanceStats != null ? instanceStats : stats.computeIfAbsent(key, k -> new InstanceStats());
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getInstanceId() != null
+                ? instance.getInstanceId() : instance.getHost() + ":" + instance.getPort();
+    }
+}
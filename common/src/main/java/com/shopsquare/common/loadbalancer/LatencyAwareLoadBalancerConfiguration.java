@@ -0,0 +1,40 @@
+package com.shopsquare.common.loadbalancer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Load balancer of every service called through Spring Cloud LoadBalancer, registered with
+ * {@code @LoadBalancerClients(defaultConfiguration = ...)}. Not a {@code @Configuration} on purpose:
+ * it is instantiated once per called service, in that service's own load-balancer context.
+ */
+public class LatencyAwareLoadBalancerConfiguration {
+
+    @Bean
+    public LatencyAwareLoadBalancer latencyAwareLoadBalancer(
+            Environment environment, LoadBalancerClientFactory loadBalancerClientFactory,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${loadbalancer.latency-aware.decay-ms:10000}") long decayMs,
+            @Value("${loadbalancer.latency-aware.failure-threshold:5}") int failureThreshold,
+            @Value("${loadbalancer.latency-aware.ejection-ms:30000}") long ejectionMs,
+            @Value("${loadbalancer.latency-aware.max-ejected-percent:50}") int maxEjectedPercent,
+            @Value("${loadbalancer.latency-aware.affinity-load-factor:1.25}") double affinityLoadFactor) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        // Optional, e.g. loadbalancer.affinity.profile-service=path:/api/profiles/user/{key}
+        String[] affinitySources = environment.getProperty("loadbalancer.affinity." + serviceId, String[].class);
+        AffinityKeyRule affinityRule = affinitySources != null && affinitySources.length > 0
+                ? AffinityKeyRule.parse(List.of(affinitySources)) : null;
+        return new LatencyAwareLoadBalancer(serviceId,
+                loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class),
+                Duration.ofMillis(decayMs), failureThreshold, Duration.ofMillis(ejectionMs), maxEjectedPercent,
+                affinityRule, affinityLoadFactor, meterRegistry.getIfAvailable());
+    }
+}
@@ -0,0 +1,257 @@
+package com.shopsquare.common.resilience;
+
+import com.shopsquare.common.exception.DependencyUnavailableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Guards calls to other services. Each dependency gets its own circuit breaker and semaphore bulkhead, so
+ * once a service is failing, or already has {@code resilience.bulkhead.max-concurrent-calls} requests
+ * outstanding, further calls are rejected immediately instead of queueing request threads behind it.
+ * Idempotent calls that fail on a connection error or a 502/503/504 are retried while the dependency's
+ * {@link RetryBudget} allows. Breaker state, transitions, bulkhead usage, retries and fallbacks are
+ * published as metrics.
+ */
+@Component
+public class DownstreamCalls {
+
+    private static final Logger log = LoggerFactory.getLogger(DownstreamCalls.class);
+
+    private final RestTemplate restTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${resilience.circuit-breaker.failure-rate-threshold:50}")
+    private float failureRateThreshold;
+
+    @Value("${resilience.circuit-breaker.slow-call-rate-threshold:80}")
+    private float slowCallRateThreshold;
+
+    @Value("${resilience.circuit-breaker.slow-call-duration-ms:2000}")
+    private long slowCallDurationMs;
+
+    @Value("${resilience.circuit-breaker.sliding-window-size:50}")
+    private int slidingWindowSize;
+
+    @Value("${resilience.circuit-breaker.minimum-calls:20}")
+    private int minimumCalls;
+
+    @Value("${resilience.circuit-breaker.open-duration-ms:10000}")
+    private long openDurationMs;
+
+    @Value("${resilience.circuit-breaker.half-open-calls:5}")
+    private int halfOpenCalls;
+
+    @Value("${resilience.bulkhead.max-concurrent-calls:25}")
+    private int maxConcurrentCalls;
+
+    @Value("${resilience.retry.max-retries:2}")
+    private int maxRetries;
+
+    @Value("${resilience.retry.backoff-ms:50}")
+    private long retryBackoffMs;
+
+    @Value("${resilience.retry.budget-ratio:0.1}")
+    private double retryBudgetRatio;
+
+    @Value("${resilience.retry.budget-max-tokens:10}")
+    private double retryBudgetMaxTokens;
+
+    @Value("${resilience.fallback.trust-cached-validation:true}")
+    private boolean trustCachedValidation;
+
+    @Value("${resilience.fallback.validation-ttl-ms:600000}")
+    private long validationTtlMs;
+
+    @Value("${resilience.fallback.validation-cache-size:10000}")
+    private int validationCacheSize;
+
+    private CircuitBreakerRegistry circuitBreakers;
+    private BulkheadRegistry bulkheads;
+    private final Map<String, RetryBudget> retryBudgets = new ConcurrentHashMap<>();
+
+    // URL of each recently confirmed resource -> when it was confirmed; guarded by itself
+    private Map<String, Long> validated;
+
+    public DownstreamCalls(RestTemplate restTemplate, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.meterRegistry = meterRegistry.getIfAvailable();
+    }
+
+    @PostConstruct
+    void init() {
+        circuitBreakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slowCallDurationThreshold(Duration.ofMillis(slowCallDurationMs))
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .waitDurationInOpenState(Duration.ofMillis(openDurationMs))
+                .permittedNumberOfCallsInHalfOpenState(halfOpenCalls)
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                // A 4xx is a healthy answer about the request, and a full bulkhead says nothing about the dependency
+                .ignoreExceptions(HttpClientErrorException.class, BulkheadFullException.class)
+                .build());
+        bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        validated = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > validationCacheSize;
+            }
+        };
+
+        circuitBreakers.getEventPublisher().onEntryAdded(added -> added.getAddedEntry().getEventPublisher()
+                .onStateTransition(event -> {
+                    log.warn("Circuit for {} went {}", event.getCircuitBreakerName(), event.getStateTransition());
+                    if (meterRegistry != null) {
+                        Counter.builder("resilience4j.circuitbreaker.transitions")
+                                .tag("name", event.getCircuitBreakerName())
+                                .tag("from", event.getStateTransition().getFromState().name())
+                                .tag("to", event.getStateTransition().getToState().name())
+                                .register(meterRegistry)
+                                .increment();
+                    }
+                }));
+        if (meterRegistry != null) {
+            TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakers).bindTo(meterRegistry);
+            TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(meterRegistry);
+        }
+    }
+
+    /**
+     * Runs {@code request} against {@code dependency}. Client errors (4xx) are passed through unchanged;
+     * every other failure surfaces as {@link DependencyUnavailableException}. Only idempotent requests are
+     * retried.
+     */
+    public <T> T call(String dependency, boolean idempotent, Supplier<T> request) {
+        CircuitBreaker circuitBreaker = circuitBreakers.circuitBreaker(dependency);
+        Supplier<T> guarded = CircuitBreaker.decorateSupplier(circuitBreaker,
+                Bulkhead.decorateSupplier(bulkheads.bulkhead(dependency), request));
+        RetryBudget budget = retryBudgets.computeIfAbsent(dependency, this::newRetryBudget);
+        budget.deposit();
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return guarded.get();
+            } catch (CallNotPermittedException e) {
+                throw new DependencyUnavailableException(dependency + " is failing; circuit is open", e);
+            } catch (BulkheadFullException e) {
+                throw new DependencyUnavailableException(dependency + " has too many calls in flight", e);
+            } catch (HttpClientErrorException e) {
+                throw e;
+            } catch (RestClientException e) {
+                if (!idempotent || !isRetryable(e) || attempt >= maxRetries) {
+                    throw new DependencyUnavailableException("Call to " + dependency + " failed", e);
+                }
+                if (!budget.tryWithdraw()) {
+                    countRetry(dependency, "denied");
+                    throw new DependencyUnavailableException("Call to " + dependency + " failed; retry budget spent", e);
+                }
+                countRetry(dependency, "attempted");
+                backOff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Whether HEAD {@code url} finds the resource. When {@code dependency} is unavailable, a resource that
+     * was confirmed within {@code resilience.fallback.validation-ttl-ms} is still trusted to exist.
+     */
+    public boolean exists(String dependency, String url) {
+        try {
+            call(dependency, true, () -> restTemplate.headForHeaders(url));
+        } catch (HttpClientErrorException e) {
+            synchronized (validated) {
+                validated.remove(url);
+            }
+            return false;
+        } catch (DependencyUnavailableException e) {
+            if (trustCachedValidation && wasValidatedRecently(url)) {
+                if (meterRegistry != null) {
+                    meterRegistry.counter("downstream.fallbacks", "name", dependency, "fallback", "cached-validation")
+                            .increment();
+                }
+                return true;
+            }
+            throw e;
+        }
+        synchronized (validated) {
+            validated.put(url, System.currentTimeMillis());
+        }
+        return true;
+    }
+
+    private boolean wasValidatedRecently(String url) {
+        synchronized (validated) {
+            Long confirmedAt = validated.get(url);
+            return confirmedAt != null && System.currentTimeMillis() - confirmedAt <= validationTtlMs;
+        }
+    }
+
+    private static boolean isRetryable(RestClientException e) {
+        if (e instanceof ResourceAccessException) {
+            return true;
+        }
+        if (e instanceof HttpServerErrorException serverError) {
+            int status = serverError.getStatusCode().value();
+            return status == 502 || status == 503 || status == 504;
+        }
+        return false;
+    }
+
+    private void backOff(int attempt) {
+        try {
+            Thread.sleep(retryBackoffMs * (1L << attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DependencyUnavailableException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    private RetryBudget newRetryBudget(String dependency) {
+        RetryBudget budget = new RetryBudget(retryBudgetRatio, retryBudgetMaxTokens);
+        if (meterRegistry != null) {
+            Gauge.builder("downstream.retry.budget", budget, RetryBudget::available)
+                    .description("Retries currently allowed before the budget runs out")
+                    .tag("name", dependency)
+                    .register(meterRegistry);
+        }
+        return budget;
+    }
+
+    private void countRetry(String dependency, String outcome) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("downstream.retries", "name", dependency, "outcome", outcome).increment();
+        }
+    }
+}
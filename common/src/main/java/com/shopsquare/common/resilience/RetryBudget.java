@@ -0,0 +1,37 @@
+package com.shopsquare.common.resilience;
+
+/**
+ * Token bucket that caps retries to one service at a fraction of its call volume. Every call deposits
+ * {@code ratio} tokens and every retry spends a whole one, so during an outage retries add at most
+ * {@code ratio} extra load instead of multiplying it.
+ */
+final class RetryBudget {
+
+    private final double ratio;
+    private final double maxTokens;
+
+    // Guarded by this
+    private double tokens;
+
+    RetryBudget(double ratio, double maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    synchronized boolean tryWithdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    synchronized double available() {
+        return tokens;
+    }
+}
@@ -0,0 +1,138 @@
+package com.shopsquare.common.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes finished spans as JSON lines to {@code <directory>/<application>-<host>-<pid>.jsonl}. There is
+ * one file per process, so every service on a host (and every instance of one) can share the directory;
+ * the host name tells apart containers, where every process is PID 1.
+ * Past {@code max-file-mb} the file is moved to {@code .jsonl.1}, replacing the previous one, so a
+ * process keeps at most twice that on disk. The gateway's {@code /actuator/traces} reads the directory
+ * back to print a trace's critical path.
+ */
+@Component
+public class FileSpanExporter implements SpanExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(FileSpanExporter.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String application;
+    private final Path file;
+    private final Path previousFile;
+    private final long maxFileBytes;
+
+    // Guarded by this
+    private Writer writer;
+    private long written;
+
+    public FileSpanExporter(@Value("${tracing.export.directory:${java.io.tmpdir}/shopsquare-traces}") String directory,
+                            @Value("${tracing.export.max-file-mb:64}") long maxFileMb,
+                            @Value("${spring.application.name:application}") String application) {
+        String name = application + "-" + hostName() + "-" + ProcessHandle.current().pid();
+        this.application = application;
+        this.file = Path.of(directory, name + ".jsonl");
+        this.previousFile = Path.of(directory, name + ".jsonl.1");
+        this.maxFileBytes = maxFileMb * 1024 * 1024;
+    }
+
+    // The container ID in Docker and the pod name in Kubernetes
+    private static String hostName() {
+        String hostName = System.getenv("HOSTNAME");
+        if (hostName == null || hostName.isBlank()) {
+            try {
+                hostName = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                hostName = "localhost";
+            }
+        }
+        return hostName.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        try {
+            if (writer == null) {
+                Files.createDirectories(file.getParent());
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                written = Files.size(file);
+            }
+            for (SpanData span : spans) {
+                String line = objectMapper.writeValueAsString(ExportedSpan.of(application, span)) + "\n";
+                writer.write(line);
+                written += line.length();
+            }
+            writer.flush();
+            if (written >= maxFileBytes) {
+                closeWriter();
+                Files.move(file, previousFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            log.warn("Could not write {} spans to {}", spans.size(), file, e);
+            closeWriter();
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        closeWriter();
+        return CompletableResultCode.ofSuccess();
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.debug("Could not close {}", file, e);
+        }
+        writer = null;
+    }
+
+    /**
+     * One line of the span files. Times are epoch nanoseconds; {@code parentSpanId} is null for a root.
+     */
+    public record ExportedSpan(String traceId, String spanId, String parentSpanId, String service, String name,
+                               String kind, long startNanos, long endNanos, boolean error,
+                               Map<String, String> attributes) {
+
+        static ExportedSpan of(String service, SpanData span) {
+            Map<String, String> attributes = new LinkedHashMap<>();
+            span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), String.valueOf(value)));
+            String parentSpanId = span.getParentSpanContext().isValid() ? span.getParentSpanId() : null;
+            return new ExportedSpan(span.getTraceId(), span.getSpanId(), parentSpanId, service, span.getName(),
+                    span.getKind().name(), span.getStartEpochNanos(), span.getEndEpochNanos(),
+                    span.getStatus().getStatusCode() == StatusCode.ERROR, attributes);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.shopsquare.common.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.LinkedMultiValueMap;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyAwareLoadBalancerTest {
+
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long EJECTION = TimeUnit.SECONDS.toNanos(30);
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // Enough picks that an instance with a fair chance is all but certain to get one
+    private static final int PICKS = 200;
+
+    private static final long T0 = -1_000_000_000_000L;
+
+    private final ServiceInstance a = instance("a");
+    private final ServiceInstance b = instance("b");
+    private final ServiceInstance c = instance("c");
+    private final ServiceInstance d = instance("d");
+    private final ServiceInstance e = instance("e");
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void noInstancesGivesAnEmptyResponse() {
+        assertFalse(balancer(50).pick(List.of(), null, T0).hasServer());
+    }
+
+    @Test
+    void prefersTheFasterOfTwoInstances() {
+        LatencyAwareLoadBalancer balancer = balancer(50);
+        call(balancer, a, T0, 200 * MILLI, false);
+        call(balancer, b, T0, 10 * MILLI, false);
+
+        // With two instances both are always drawn, so the cheaper one wins every time
+        assertEquals(Set.of(b), picks(balancer, List.of(a, b), T0 + 200 * MILLI));
+    }
+
+    @Test
+    void prefersTheInstanceWithFewerCallsOutstanding() {
+        LatencyAwareLoadBalancer balancer = balancer(50);
+        call(balancer, a, T0, 10 * MILLI, false);
+        call(balancer, b, T0, 10 * MILLI, false);
+        balancer.started(a, new Object(), T0 + 10 * MILLI);
+        balancer.started(a, new Object(), T0 + 10 * MILLI);
+
+        assertEquals(Set.of(b), picks(balancer, List.of(a, b), T0 + 10 * MILLI));
+    }
+
+    @Test
+    void ejectsAnInstanceAfterConsecutiveFailures() {
+        LatencyAwareLoadBalancer balancer = balancer(50);
+        long now = fail(balancer, a, T0, FAILURE_THRESHOLD);
+
+        assertEquals(Set.of(b, c), picks(balancer, List.of(a, b, c), now));
+        assertEquals(1, registry.get("loadbalancer.ejections").counter().count());
+    }
+
+    @Test
+    void ejectedInstanceReturnsWhenTheEjectionEnds() {
+        LatencyAwareLoadBalancer balancer = balancer(50);
+        long now = fail(balancer, a, T0, FAILURE_THRESHOLD);
+        slow(balancer, now + EJECTION, b, c);
+
+        assertFalse(picks(balancer, List.of(a, b, c), now + EJECTION - 1).contains(a));
+        assertTrue(picks(balancer, List.of(a, b, c), now + EJECTION).contains(a));
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        LatencyAwareLoadBalancer balancer = balancer(50);
+        long now = fail(balancer, a, T0, FAILURE_THRESHOLD - 1);
+        now = call(balancer, a, now, MILLI, false);
+        now = fail(balancer, a, now, FAILURE_THRESHOLD - 1);
+        slow(balancer, now, b, c);
+
+        assertTrue(picks(balancer, List.of(a, b, c), now).contains(a));
+        assertTrue(registry.find("loadbalancer.ejections").counters().isEmpty());
+    }
+
+    @Test
+    void ejectionIsIgnoredPastMaxEjectedPercent() {
+        // One of two instances is 50%, over the 34% allowed, so both keep getting calls
+        LatencyAwareLoadBalancer balancer = balancer(34);
+        long now = fail(balancer, a, T0, FAILURE_THRESHOLD);
+        slow(balancer, now, b, c);
+        assertTrue(picks(balancer, List.of(a, b), now).contains(a));
+
+        // One of three is 33%, within it
+        assertFalse(picks(balancer, List.of(a, b, c), now).contains(a));
+    }
+
+    @Test
+    void serviceUnavailableDoesNotCountTowardEjection() {
+        // A service answers 503 when its own dependency is down; the instance itself is healthy
+        LatencyAwareLoadBalancer balancer = balancer(50);
+        for (int i = 0; i < FAILURE_THRESHOLD * 2; i++) {
+            complete(balancer, a, CompletionContext.Status.SUCCESS, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        // Checked on the counter rather than by picking: these calls are timed on the real clock
+        assertTrue(registry.find("loadbalancer.ejections").counters().isEmpty());
+    }
+
+    @Test
+    void badGatewayAndTimeoutsCountTowardEjection() {
+        LatencyAwareLoadBalancer balancer = balancer(50);
+        complete(balancer, a, CompletionContext.Status.SUCCESS, HttpStatus.BAD_GATEWAY);
+        complete(balancer, a, CompletionContext.Status.SUCCESS, HttpStatus.GATEWAY_TIMEOUT);
+        complete(balancer, a, CompletionContext.Status.FAILED, null);
+
+        assertFalse(picks(balancer, List.of(a, b, c), System.nanoTime()).contains(a));
+    }
+
+    @Test
+    void sameKeyKeepsReachingTheSameInstance() {
+        LatencyAwareLoadBalancer balancer = balancer(50);
+        List<ServiceInstance> instances = List.of(a, b, c, d);
+
+        for (int user = 1; user <= 100; user++) {
+            ServiceInstance first = balancer.pick(instances, "user-" + user, T0).getServer();
+            // The order the instances are listed in does not matter
+            assertEquals(first, balancer.pick(instances.reversed(), "user-" + user, T0 + MILLI).getServer());
+        }
+    }
+
+    @Test
+    void keysSpreadOverAllInstances() {
+        Map<String, ServiceInstance> placed = place(balancer(50), List.of(a, b, c, d), 4_000);
+
+        Map<ServiceInstance, Long> perInstance = placed.values().stream()
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        assertEquals(4, perInstance.size());
+        perInstance.values().forEach(keys -> assertTrue(keys > 600 && keys < 1_400, "keys per instance " + keys));
+    }
+
+    @Test
+    void addingAnInstanceOnlyMovesKeysOntoIt() {
+        LatencyAwareLoadBalancer balancer = balancer(50);
+        Map<String, ServiceInstance> before = place(balancer, List.of(a, b, c, d), 4_000);
+        Map<String, ServiceInstance> after = place(balancer, List.of(a, b, c, d, e), 4_000);
+
+        int moved = 0;
+        for (Map.Entry<String, ServiceInstance> entry : after.entrySet()) {
+            if (!entry.getValue().equals(before.get(entry.getKey()))) {
+                assertEquals(e, entry.getValue());
+                moved++;
+            }
+        }
+        // About a fifth of the keys belong to the new instance
+        assertTrue(moved > 400 && moved < 1_200, "moved " + moved);
+    }
+
+    @Test
+    void ejectingAnInstanceOnlyMovesItsOwnKeys() {
+        LatencyAwareLoadBalancer balancer = balancer(50);
+        Map<String, ServiceInstance> before = place(balancer, List.of(a, b, c, d), 1_000);
+        long now = fail(balancer, a, T0, FAILURE_THRESHOLD);
+
+        before.forEach((key, instance) -> {
+            ServiceInstance picked = balancer.pick(List.of(a, b, c, d), key, now).getServer();
+            if (instance.equals(a)) {
+                assertNotEquals(a, picked, key + " stayed on the ejected instance");
+            } else {
+                assertEquals(instance, picked, key + " moved");
+            }
+        });
+    }
+
+    @Test
+    void overloadedInstanceSendsTheKeyOnUntilItsLoadDrops() {
+        LatencyAwareLoadBalancer balancer = balancer(50);
+        List<ServiceInstance> instances = List.of(a, b, c);
+        ServiceInstance home = balancer.pick(instances, "cart-7", T0).getServer();
+
+        // Three calls on one instance and none elsewhere: (3 + 1) * 1.25 / 3 rounds up to 2, so home is full
+        List<Object> calls = List.of(new Object(), new Object(), new Object());
+        calls.forEach(call -> balancer.started(home, call, T0));
+        ServiceInstance overflow = balancer.pick(instances, "cart-7", T0).getServer();
+        assertNotEquals(home, overflow);
+        assertEquals(overflow, balancer.pick(instances, "cart-7", T0).getServer());
+
+        calls.forEach(call -> balancer.finished(home, call, false, T0 + MILLI));
+        assertEquals(home, balancer.pick(instances, "cart-7", T0 + MILLI).getServer());
+    }
+
+    private LatencyAwareLoadBalancer balancer(int maxEjectedPercent) {
+        return new LatencyAwareLoadBalancer("test-service", null, Duration.ofSeconds(10), FAILURE_THRESHOLD,
+                Duration.ofNanos(EJECTION), maxEjectedPercent, null, 1.25, registry);
+    }
+
+    private static Set<ServiceInstance> picks(LatencyAwareLoadBalancer balancer, List<ServiceInstance> instances,
+                                              long now) {
+        Set<ServiceInstance> picked = new HashSet<>();
+        for (int i = 0; i < PICKS; i++) {
+            picked.add(balancer.pick(instances, null, now).getServer());
+        }
+        return picked;
+    }
+
+    // Runs one call of the given duration and returns when it ended
+    private static long call(LatencyAwareLoadBalancer balancer, ServiceInstance instance, long start, long duration,
+                             boolean failed) {
+        Object call = new Object();
+        balancer.started(instance, call, start);
+        balancer.finished(instance, call, failed, start + duration);
+        return start + duration;
+    }
+
+    // Gives each instance a 100 ms call ending at now, so an instance measured faster wins whenever drawn
+    private static void slow(LatencyAwareLoadBalancer balancer, long now, ServiceInstance... instances) {
+        for (ServiceInstance instance : instances) {
+            call(balancer, instance, now - 100 * MILLI, 100 * MILLI, false);
+        }
+    }
+
+    private static Map<String, ServiceInstance> place(LatencyAwareLoadBalancer balancer,
+                                                      List<ServiceInstance> instances, int keys) {
+        Map<String, ServiceInstance> placed = new HashMap<>();
+        for (int user = 1; user <= keys; user++) {
+            placed.put("user-" + user, balancer.pick(instances, "user-" + user, T0).getServer());
+        }
+        return placed;
+    }
+
+    private static long fail(LatencyAwareLoadBalancer balancer, ServiceInstance instance, long start, int times) {
+        long now = start;
+        for (int i = 0; i < times; i++) {
+            now = call(balancer, instance, now, MILLI, true);
+        }
+        return now;
+    }
+
+    private static void complete(LatencyAwareLoadBalancer balancer, ServiceInstance instance,
+                                 CompletionContext.Status status, HttpStatus httpStatus) {
+        DefaultRequest<Object> request = new DefaultRequest<>();
+        balancer.onStartRequest(request, new DefaultResponse(instance));
+        ResponseData response = httpStatus == null ? null
+                : new ResponseData(httpStatus, new HttpHeaders(), new LinkedMultiValueMap<>(), null);
+        balancer.onComplete(new CompletionContext<>(status, request, new DefaultResponse(instance), response));
+    }
+
+    private static ServiceInstance instance(String id) {
+        return new DefaultServiceInstance(id, "test-service", id + ".local", 8080, false);
+    }
+}
@@ -0,0 +1,118 @@
+package com.shopsquare.orderitem.analytics;
+
+import com.shopsquare.orderitem.dto.ProductRecommendation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Item-to-item co-occurrence counts: for each product, how many orders also contained each other product.
+ * Each product keeps at most {@code 1.5 * neighborsPerProduct} counters; when it outgrows that, only the
+ * {@code neighborsPerProduct} highest are kept. Counts are therefore exact for strong pairs and
+ * approximate near the cut-off, and memory grows with the number of products rather than with order history.
+ */
+public class CoPurchaseIndex {
+
+    private static final Comparator<ProductRecommendation> BY_COUNT = Comparator
+            .comparingLong(ProductRecommendation::getCoPurchases)
+            .thenComparing(ProductRecommendation::getProductId, Comparator.reverseOrder());
+
+    private final int neighborsPerProduct;
+    private final int pruneAbove;
+    private final Map<Integer, IntLongHashMap> neighbors = new HashMap<>();
+
+    public CoPurchaseIndex(int neighborsPerProduct) {
+        if (neighborsPerProduct <= 0) {
+            throw new IllegalArgumentException("neighborsPerProduct must be positive");
+        }
+        this.neighborsPerProduct = neighborsPerProduct;
+        this.pruneAbove = neighborsPerProduct + Math.max(1, neighborsPerProduct / 2);
+    }
+
+    /**
+     * Counts the pairs formed when {@code added} products join an order that already held {@code existing}.
+     * Both arrays must hold distinct products, and no product may appear in both.
+     */
+    public synchronized void addToOrder(int[] existing, int[] added) {
+        for (int i = 0; i < added.length; i++) {
+            for (int product : existing) {
+                increment(added[i], product);
+            }
+            for (int j = i + 1; j < added.length; j++) {
+                increment(added[i], added[j]);
+            }
+        }
+    }
+
+    public synchronized List<ProductRecommendation> recommend(int productId, int limit) {
+        IntLongHashMap counts = neighbors.get(productId);
+        if (counts == null || limit <= 0) {
+            return List.of();
+        }
+        PriorityQueue<ProductRecommendation> heap = new PriorityQueue<>(limit + 1, BY_COUNT);
+        counts.forEach((other, count) -> {
+            heap.add(new ProductRecommendation(other, count));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        });
+        List<ProductRecommendation> top = new ArrayList<>(heap);
+        top.sort(BY_COUNT.reversed());
+        return top;
+    }
+
+    public synchronized int productCount() {
+        return neighbors.size();
+    }
+
+    public synchronized long pairCount() {
+        long pairs = 0;
+        for (IntLongHashMap counts : neighbors.values()) {
+            pairs += counts.size();
+        }
+        return pairs;
+    }
+
+    private void increment(int a, int b) {
+        incrementOneWay(a, b);
+        incrementOneWay(b, a);
+    }
+
+    private void incrementOneWay(int product, int other) {
+        IntLongHashMap counts = neighbors.computeIfAbsent(product, p -> new IntLongHashMap());
+        counts.addTo(other, 1);
+        if (counts.size() > pruneAbove) {
+            prune(counts);
+        }
+    }
+
+    // Keeps the neighborsPerProduct highest counts; ties at the cut-off are broken arbitrarily
+    private void prune(IntLongHashMap counts) {
+        int[] keys = new int[counts.size()];
+        long[] values = new long[counts.size()];
+        int[] n = {0};
+        counts.forEach((key, value) -> {
+            keys[n[0]] = key;
+            values[n[0]++] = value;
+        });
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        long threshold = sorted[sorted.length - neighborsPerProduct];
+        int keptAtThreshold = neighborsPerProduct;
+        for (long value : sorted) {
+            if (value > threshold) {
+                keptAtThreshold--;
+            }
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] < threshold || (values[i] == threshold && keptAtThreshold-- <= 0)) {
+                counts.remove(keys[i]);
+            }
+        }
+    }
+}
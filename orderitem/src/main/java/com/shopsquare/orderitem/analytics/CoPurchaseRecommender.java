@@ -0,0 +1,226 @@
+package com.shopsquare.orderitem.analytics;
+
+import com.shopsquare.orderitem.dto.ProductRecommendation;
+import com.shopsquare.orderitem.repository.OrderItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a {@link CoPurchaseIndex} in step with order-item creation. The products already in recently
+ * touched orders are cached, so adding an item normally costs no query. On startup the index is rebuilt
+ * in the background by scanning {@code order_items} in order-ID order; items created meanwhile for orders
+ * the scan has already passed are replayed into the new index before it replaces the old one.
+ * Updates and deletions of order items are not subtracted; the next rebuild reflects them.
+ */
+@Component
+public class CoPurchaseRecommender {
+
+    private static final Logger log = LoggerFactory.getLogger(CoPurchaseRecommender.class);
+
+    private final OrderItemRepository orderItemRepository;
+
+    @Value("${order-item.recommendations.enabled:true}")
+    private boolean enabled;
+
+    @Value("${order-item.recommendations.neighbors-per-product:20}")
+    private int neighborsPerProduct;
+
+    @Value("${order-item.recommendations.max-order-products:50}")
+    private int maxOrderProducts;
+
+    @Value("${order-item.recommendations.recent-orders:50000}")
+    private int recentOrderCapacity;
+
+    @Value("${order-item.recommendations.rebuild-page-size:10000}")
+    private int rebuildPageSize;
+
+    private volatile CoPurchaseIndex index;
+
+    // Guarded by this
+    private Map<Integer, int[]> recentOrders;
+    private boolean rebuilding;
+    private int scanPosition;
+    private final List<int[][]> pendingDuringRebuild = new ArrayList<>();
+
+    public CoPurchaseRecommender(OrderItemRepository orderItemRepository) {
+        this.orderItemRepository = orderItemRepository;
+    }
+
+    public List<ProductRecommendation> recommend(int productId, int limit) {
+        if (limit <= 0 || limit > neighborsPerProduct) {
+            throw new IllegalArgumentException("limit must be between 1 and " + neighborsPerProduct);
+        }
+        CoPurchaseIndex current = index;
+        return current == null ? List.of() : current.recommend(productId, limit);
+    }
+
+    /**
+     * Counts the new pairs formed by products just saved under an order. {@code itemIds} are the IDs of
+     * the rows just saved; on a cache miss the rest of the order is read back without them, so a product
+     * the order already had is neither paired again nor dropped from the pairs it already counts.
+     */
+    public void record(int orderId, int[] productIds, Collection<Integer> itemIds) {
+        if (!enabled || orderId <= 0 || productIds.length == 0) {
+            return;
+        }
+        int[] cached;
+        synchronized (this) {
+            cached = recentOrders().get(orderId);
+        }
+        int[] stored = cached != null ? null : orderItemRepository.findDistinctProductIdsByOrderIdExcluding(orderId, itemIds)
+                .stream().mapToInt(Integer::intValue).toArray();
+        synchronized (this) {
+            int[] existing = recentOrders().get(orderId);
+            if (existing == null) {
+                existing = stored != null ? stored : cached;
+            }
+            int[] added = without(distinct(productIds), existing);
+            int room = Math.max(0, maxOrderProducts - existing.length);
+            if (added.length > room) {
+                added = Arrays.copyOf(added, room);
+            }
+            if (added.length == 0) {
+                recentOrders.put(orderId, existing);
+                return;
+            }
+            index().addToOrder(existing, added);
+            if (rebuilding && orderId <= scanPosition) {
+                pendingDuringRebuild.add(new int[][]{existing, added});
+            }
+            int[] all = Arrays.copyOf(existing, existing.length + added.length);
+            System.arraycopy(added, 0, all, existing.length, added.length);
+            recentOrders.put(orderId, all);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::rebuild, "co-purchase-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void rebuild() {
+        synchronized (this) {
+            rebuilding = true;
+            scanPosition = 0;
+            pendingDuringRebuild.clear();
+        }
+        long start = System.currentTimeMillis();
+        CoPurchaseIndex rebuilt = new CoPurchaseIndex(neighborsPerProduct);
+        int[] none = new int[0];
+        long orders = 0;
+        try {
+            int after = 0;
+            while (true) {
+                List<Object[]> rows = orderItemRepository.findOrderProductsAfter(after, PageRequest.of(0, rebuildPageSize));
+                if (rows.isEmpty()) {
+                    break;
+                }
+                boolean lastPage = rows.size() < rebuildPageSize;
+                int lastOrderInPage = ((Number) rows.get(rows.size() - 1)[0]).intValue();
+                int firstOrderInPage = ((Number) rows.get(0)[0]).intValue();
+                // The last order of a full page may continue on the next one, so it is re-read from there
+                boolean holdBackLast = !lastPage && lastOrderInPage != firstOrderInPage;
+
+                int currentOrder = 0;
+                List<Integer> products = new ArrayList<>();
+                for (Object[] row : rows) {
+                    int orderId = ((Number) row[0]).intValue();
+                    if (orderId != currentOrder) {
+                        if (currentOrder != 0) {
+                            rebuilt.addToOrder(none, cap(distinct(products)));
+                            orders++;
+                        }
+                        if (holdBackLast && orderId == lastOrderInPage) {
+                            currentOrder = 0;
+                            break;
+                        }
+                        currentOrder = orderId;
+                        products.clear();
+                    }
+                    products.add(((Number) row[1]).intValue());
+                }
+                if (currentOrder != 0) {
+                    rebuilt.addToOrder(none, cap(distinct(products)));
+                    orders++;
+                    after = currentOrder;
+                } else {
+                    after = lastOrderInPage - 1;
+                }
+                synchronized (this) {
+                    scanPosition = after;
+                }
+                if (lastPage) {
+                    break;
+                }
+            }
+            synchronized (this) {
+                for (int[][] pending : pendingDuringRebuild) {
+                    rebuilt.addToOrder(pending[0], pending[1]);
+                }
+                index = rebuilt;
+            }
+            log.info("Co-purchase index rebuilt from {} orders in {} ms: {} products, {} pairs",
+                    orders, System.currentTimeMillis() - start, rebuilt.productCount(), rebuilt.pairCount());
+        } catch (RuntimeException e) {
+            log.warn("Co-purchase index rebuild failed; serving live updates only", e);
+        } finally {
+            synchronized (this) {
+                rebuilding = false;
+                pendingDuringRebuild.clear();
+            }
+        }
+    }
+
+    private CoPurchaseIndex index() {
+        if (index == null) {
+            index = new CoPurchaseIndex(neighborsPerProduct);
+        }
+        return index;
+    }
+
+    private Map<Integer, int[]> recentOrders() {
+        if (recentOrders == null) {
+            int capacity = recentOrderCapacity;
+            recentOrders = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+        return recentOrders;
+    }
+
+    private int[] cap(int[] products) {
+        return products.length > maxOrderProducts ? Arrays.copyOf(products, maxOrderProducts) : products;
+    }
+
+    private static int[] distinct(List<Integer> products) {
+        return products.stream().mapToInt(Integer::intValue).distinct().toArray();
+    }
+
+    private static int[] distinct(int[] products) {
+        return Arrays.stream(products).filter(p -> p > 0).distinct().toArray();
+    }
+
+    private static int[] without(int[] products, int[] excluded) {
+        return Arrays.stream(products).filter(p -> Arrays.stream(excluded).noneMatch(e -> e == p)).toArray();
+    }
+}
@@ -0,0 +1,188 @@
+package com.shopsquare.orderitem.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from positive {@code int} keys to {@code long} values, without boxing.
+ * Key {@code 0} marks an empty slot and cannot be stored. Entries whose value drops to zero through
+ * {@link #addTo} are removed, so the map stays as sparse as the data. Not thread-safe.
+ */
+public class IntLongHashMap {
+
+    private static final int MIN_CAPACITY = 8;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private long[] values;
+    private int size;
+    private int resizeAt;
+
+    public IntLongHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntLongHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long get(int key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : values[slot];
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    public void put(int key, long value) {
+        checkKey(key);
+        int slot = slotFor(key);
+        if (keys[slot] == key) {
+            values[slot] = value;
+            return;
+        }
+        insertAt(slot, key, value);
+    }
+
+    /**
+     * Adds {@code delta} to the value for {@code key} (absent keys count as zero) and returns the new value.
+     */
+    public long addTo(int key, long delta) {
+        checkKey(key);
+        int slot = slotFor(key);
+        if (keys[slot] == key) {
+            long updated = values[slot] + delta;
+            if (updated == 0) {
+                removeAt(slot);
+            } else {
+                values[slot] = updated;
+            }
+            return updated;
+        }
+        if (delta != 0) {
+            insertAt(slot, key, delta);
+        }
+        return delta;
+    }
+
+    public long remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return 0;
+        }
+        long previous = values[slot];
+        removeAt(slot);
+        return previous;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    public void forEach(Consumer consumer) {
+        int[] k = keys;
+        long[] v = values;
+        for (int i = 0; i < k.length; i++) {
+            if (k[i] != 0) {
+                consumer.accept(k[i], v[i]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Consumer {
+        void accept(int key, long value);
+    }
+
+    private int find(int key) {
+        if (key == 0) {
+            return -1;
+        }
+        int slot = slotFor(key);
+        return keys[slot] == key ? slot : -1;
+    }
+
+    // Slot holding the key, or the empty slot where it would be inserted
+    private int slotFor(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insertAt(int slot, int key, long value) {
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void removeAt(int slot) {
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != 0) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = 0;
+        values[gap] = 0;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slotFor(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        size = 0;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit(needed - 1) << 1);
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static void checkKey(int key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.shopsquare.orderitem.analytics;
+
+import com.shopsquare.orderitem.dto.ProductSales;
+import com.shopsquare.orderitem.entity.ProductSalesBucket;
+import com.shopsquare.orderitem.exception.ProductServiceUnavailableException;
+import com.shopsquare.orderitem.repository.OrderItemRepository;
+import com.shopsquare.orderitem.repository.ProductSalesBucketRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sliding-window units-sold counters per product, kept in memory so top-K queries never scan
+ * {@code order_items}. The window is a ring of time buckets; {@link #record} adds to the open bucket and
+ * to the running window totals, and dropping a bucket that leaves the window subtracts it again.
+ * <p>
+ * Each refresh re-aggregates the open bucket from the table, which folds in items written by other
+ * replicas and corrects any drift. Closed buckets are checkpointed to {@code product_sales_buckets},
+ * so a cold start reads the checkpoints and only aggregates the buckets that were never closed.
+ */
+@Component
+public class SalesLeaderboard {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesLeaderboard.class);
+
+    private static final Comparator<ProductSales> BY_UNITS = Comparator
+            .comparingLong(ProductSales::getUnitsSold)
+            .thenComparing(ProductSales::getProductId, Comparator.reverseOrder());
+
+    private final OrderItemRepository orderItemRepository;
+    private final ProductSalesBucketRepository bucketRepository;
+    private final RestTemplate restTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    @Value("${service.product-service.name:product-service}")
+    private String productServiceName;
+
+    @Value("${order-item.leaderboard.enabled:true}")
+    private boolean enabled;
+
+    @Value("${order-item.leaderboard.bucket-minutes:60}")
+    private int bucketMinutes;
+
+    @Value("${order-item.leaderboard.window-buckets:168}")
+    private int windowBuckets;
+
+    @Value("${order-item.leaderboard.max-k:100}")
+    private int maxK;
+
+    @Value("${order-item.leaderboard.shop-products-ttl-ms:300000}")
+    private long shopProductsTtlMs;
+
+    // Guarded by this: ring slot i holds bucket bucketIndexes[i], or nothing when the map is null
+    private IntLongHashMap[] buckets;
+    private long[] bucketIndexes;
+    private long newestIndex = Long.MIN_VALUE;
+    private final IntLongHashMap windowTotals = new IntLongHashMap(1024);
+    private long lastCheckpointedIndex = Long.MIN_VALUE;
+    private volatile boolean ready;
+
+    private final Map<Integer, ShopProducts> shopProducts = new ConcurrentHashMap<>();
+
+    public SalesLeaderboard(OrderItemRepository orderItemRepository, ProductSalesBucketRepository bucketRepository,
+                            RestTemplate restTemplate, TransactionTemplate transactionTemplate) {
+        this.orderItemRepository = orderItemRepository;
+        this.bucketRepository = bucketRepository;
+        this.restTemplate = restTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Counts units sold by a newly persisted order item. Items outside the current window are ignored.
+     */
+    public synchronized void record(int productId, int quantity, LocalDateTime createdAt) {
+        if (!enabled || productId <= 0 || quantity <= 0 || createdAt == null) {
+            return;
+        }
+        ensureRing();
+        long index = bucketIndex(createdAt);
+        advanceTo(Math.max(index, bucketIndex(LocalDateTime.now())));
+        int slot = slot(index);
+        if (bucketIndexes[slot] != index || buckets[slot] == null) {
+            if (index <= newestIndex - windowBuckets) {
+                return;
+            }
+            evict(slot);
+            buckets[slot] = new IntLongHashMap();
+            bucketIndexes[slot] = index;
+        }
+        buckets[slot].addTo(productId, quantity);
+        windowTotals.addTo(productId, quantity);
+    }
+
+    /**
+     * The {@code k} best-selling products over the window, optionally restricted to one shop's products.
+     */
+    public List<ProductSales> topProducts(Integer shopId, int k) {
+        if (k <= 0 || k > maxK) {
+            throw new IllegalArgumentException("k must be between 1 and " + maxK);
+        }
+        int[] candidates = shopId == null ? null : productsOfShop(shopId);
+
+        // Min-heap of the k best seen so far; its head is the one to displace
+        PriorityQueue<ProductSales> heap = new PriorityQueue<>(k + 1, BY_UNITS);
+        synchronized (this) {
+            ensureRing();
+            advanceTo(bucketIndex(LocalDateTime.now()));
+            if (candidates == null) {
+                windowTotals.forEach((productId, units) -> offer(heap, k, productId, units));
+            } else {
+                for (int productId : candidates) {
+                    long units = windowTotals.get(productId);
+                    if (units > 0) {
+                        offer(heap, k, productId, units);
+                    }
+                }
+            }
+        }
+        List<ProductSales> top = new ArrayList<>(heap);
+        top.sort(BY_UNITS.reversed());
+        return top;
+    }
+
+    private static void offer(PriorityQueue<ProductSales> heap, int k, int productId, long units) {
+        if (heap.size() < k) {
+            heap.add(new ProductSales(productId, units));
+        } else {
+            ProductSales smallest = heap.peek();
+            if (units > smallest.getUnitsSold()
+                    || (units == smallest.getUnitsSold() && productId < smallest.getProductId())) {
+                heap.poll();
+                heap.add(new ProductSales(productId, units));
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long now = bucketIndex(LocalDateTime.now());
+        long first = now - windowBuckets + 1;
+        try {
+            Map<Long, IntLongHashMap> checkpointed = new HashMap<>();
+            for (ProductSalesBucket row : bucketRepository.findByBucketStartGreaterThanEqual(bucketStart(first))) {
+                checkpointed.computeIfAbsent(bucketIndex(row.getBucketStart()), index -> new IntLongHashMap())
+                        .put(row.getProductId(), row.getUnits());
+            }
+            synchronized (this) {
+                ensureRing();
+                advanceTo(now);
+                checkpointed.forEach(this::replaceBucket);
+                lastCheckpointedIndex = Math.max(lastCheckpointedIndex, now - 1);
+            }
+            for (long index = first; index < now; index++) {
+                if (!checkpointed.containsKey(index)) {
+                    closeBucket(index);
+                }
+            }
+            refreshOpenBucket(now);
+            ready = true;
+            log.info("Sales leaderboard rebuilt: {} checkpointed and {} aggregated buckets, {} products",
+                    checkpointed.size(), now - first - checkpointed.size(), windowTotals.size());
+        } catch (RuntimeException e) {
+            log.warn("Sales leaderboard rebuild failed; retrying on the next refresh", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order-item.leaderboard.refresh-interval-ms:60000}",
+            initialDelayString = "${order-item.leaderboard.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        if (!ready) {
+            rebuild();
+            return;
+        }
+        try {
+            long now = bucketIndex(LocalDateTime.now());
+            long from;
+            synchronized (this) {
+                advanceTo(now);
+                from = Math.max(lastCheckpointedIndex + 1, now - windowBuckets + 1);
+                lastCheckpointedIndex = now - 1;
+            }
+            for (long index = from; index < now; index++) {
+                closeBucket(index);
+            }
+            refreshOpenBucket(now);
+            transactionTemplate.executeWithoutResult(status ->
+                    bucketRepository.deleteByBucketStartBefore(bucketStart(now - windowBuckets + 1)));
+        } catch (RuntimeException e) {
+            log.warn("Sales leaderboard refresh failed", e);
+        }
+    }
+
+    // Final aggregate of a bucket that has ended, written as its checkpoint
+    private void closeBucket(long index) {
+        IntLongHashMap counts = aggregate(index);
+        synchronized (this) {
+            replaceBucket(index, counts);
+        }
+        List<ProductSalesBucket> rows = new ArrayList<>(counts.size());
+        LocalDateTime start = bucketStart(index);
+        counts.forEach((productId, units) -> rows.add(new ProductSalesBucket(start, productId, units)));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                bucketRepository.deleteByBucketStart(start);
+                bucketRepository.saveAll(rows);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another replica checkpointed the same bucket concurrently; its rows are equivalent
+            log.debug("Bucket {} already checkpointed", start);
+        }
+    }
+
+    private void refreshOpenBucket(long index) {
+        IntLongHashMap counts = aggregate(index);
+        synchronized (this) {
+            replaceBucket(index, counts);
+        }
+    }
+
+    private IntLongHashMap aggregate(long index) {
+        IntLongHashMap counts = new IntLongHashMap();
+        for (Object[] row : orderItemRepository.sumQuantityByProduct(bucketStart(index), bucketStart(index + 1))) {
+            counts.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    private void replaceBucket(long index, IntLongHashMap counts) {
+        if (index <= newestIndex - windowBuckets) {
+            return;
+        }
+        int slot = slot(index);
+        evict(slot);
+        buckets[slot] = counts;
+        bucketIndexes[slot] = index;
+        counts.forEach(windowTotals::addTo);
+    }
+
+    // Moves the window forward so that index is its newest bucket, dropping buckets that fall out
+    private void advanceTo(long index) {
+        if (index <= newestIndex) {
+            return;
+        }
+        long oldest = index - windowBuckets + 1;
+        for (int slot = 0; slot < windowBuckets; slot++) {
+            if (buckets[slot] != null && bucketIndexes[slot] < oldest) {
+                evict(slot);
+            }
+        }
+        newestIndex = index;
+    }
+
+    private void evict(int slot) {
+        IntLongHashMap bucket = buckets[slot];
+        if (bucket != null) {
+            bucket.forEach((productId, units) -> windowTotals.addTo(productId, -units));
+            buckets[slot] = null;
+        }
+    }
+
+    private void ensureRing() {
+        if (buckets == null) {
+            buckets = new IntLongHashMap[windowBuckets];
+            bucketIndexes = new long[windowBuckets];
+        }
+    }
+
+    private int slot(long index) {
+        return (int) Math.floorMod(index, (long) windowBuckets);
+    }
+
+    private long bucketIndex(LocalDateTime time) {
+        long epochMinutes = time.atZone(zone).toEpochSecond() / 60;
+        return Math.floorDiv(epochMinutes, bucketMinutes);
+    }
+
+    private LocalDateTime bucketStart(long index) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(index * bucketMinutes * 60L), zone);
+    }
+
+    // Product IDs of a shop, cached; a stale list is served if PRODUCT-SERVICE cannot be reached
+    private int[] productsOfShop(int shopId) {
+        ShopProducts cached = shopProducts.get(shopId);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt < shopProductsTtlMs) {
+            return cached.productIds;
+        }
+        try {
+            List<Map<String, Object>> products = restTemplate.exchange(
+                    "http://" + productServiceName + "/api/products/shop/" + shopId,
+                    HttpMethod.GET,
+                    null,
+                    new ParameterizedTypeReference<List<Map<String, Object>>>() {}
+            ).getBody();
+            Set<Integer> ids = new HashSet<>();
+            if (products != null) {
+                for (Map<String, Object> product : products) {
+                    if (product.get("id") instanceof Number id) {
+                        ids.add(id.intValue());
+                    }
+                }
+            }
+            int[] productIds = ids.stream().mapToInt(Integer::intValue).toArray();
+            shopProducts.put(shopId, new ShopProducts(productIds, System.currentTimeMillis()));
+            return productIds;
+        } catch (RestClientException e) {
+            if (cached != null) {
+                return cached.productIds;
+            }
+            throw new ProductServiceUnavailableException("Could not load products of shop " + shopId, e);
+        }
+    }
+
+    private record ShopProducts(int[] productIds, long loadedAt) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.shopsquare.orderitem.config;
+
+import com.shopsquare.common.config.IdSequenceInitializer;
+import com.shopsquare.common.config.RestClientConfig;
+import com.shopsquare.common.tracing.FileSpanExporter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Registers the classes this service uses from the shared common module. Kept off the application
+ * class so that test slices such as {@code @DataJpaTest} do not pull them in.
+ */
+@Configuration
+@Import({RestClientConfig.class, IdSequenceInitializer.class, FileSpanExporter.class})
+public class CommonConfig {
+}
@@ -1,16 +1,22 @@
 package com.shopsquare.orderitem.controller;
 
+import com.shopsquare.orderitem.dto.OrderItemBatchResult;
+import com.shopsquare.orderitem.dto.ProductRecommendation;
+import com.shopsquare.orderitem.dto.ProductSales;
 import com.shopsquare.orderitem.entity.OrderItem;
+import com.shopsquare.orderitem.exception.ProductServiceUnavailableException;
 import com.shopsquare.orderitem.service.OrderItemService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/order-items")
@@ -33,6 +39,62 @@ public class OrderItemController {
         return ResponseEntity.ok(orderItemService.createOrderItem(orderItem));
     }
 
+    @PostMapping("/batch")
+    @Operation(summary = "Create all order items of an order", description = "Reserves stock for every line with one grouped product-service call and inserts the accepted lines in one batch")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Per-line results, including lines rejected for insufficient stock"),
+            @ApiResponse(responseCode = "400", description = "Empty or oversized batch"),
+            @ApiResponse(responseCode = "503", description = "Product service unavailable or the reservation was released before the items were saved; no order items were created, and any stock reserved for them is given back")
+    })
+    public ResponseEntity<OrderItemBatchResult> createOrderItems(@RequestBody List<OrderItem> orderItems) {
+        try {
+            return ResponseEntity.ok(orderItemService.createOrderItems(orderItems));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (ProductServiceUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @GetMapping("/top-products")
+    @Operation(summary = "Get best-selling products", description = "Returns the products with the most units sold over the leaderboard window, overall or for one shop, from in-memory counters")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Best sellers, highest first"),
+            @ApiResponse(responseCode = "400", description = "k out of range"),
+            @ApiResponse(responseCode = "503", description = "Product service unavailable to resolve the shop's products")
+    })
+    public ResponseEntity<List<ProductSales>> getTopProducts(
+            @Parameter(description = "Restrict to the products of this shop")
+            @RequestParam(required = false) Integer shopId,
+            @Parameter(description = "Number of products to return")
+            @RequestParam(defaultValue = "10") int k) {
+        try {
+            return ResponseEntity.ok(orderItemService.getTopProducts(shopId, k));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (ProductServiceUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @GetMapping("/recommendations/{productId}")
+    @Operation(summary = "Get products frequently bought together", description = "Returns the products that most often appear in the same orders as the given product, from an in-memory co-purchase index")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Recommendations, strongest first; empty when the product has no co-purchases"),
+            @ApiResponse(responseCode = "400", description = "limit out of range")
+    })
+    public ResponseEntity<List<ProductRecommendation>> getRecommendations(
+            @Parameter(description = "ID of the product", required = true)
+            @PathVariable int productId,
+            @Parameter(description = "Number of products to return")
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(orderItemService.getRecommendations(productId, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get order item by ID", description = "Retrieves a specific order item by its ID")
     @ApiResponses(value = {
@@ -56,6 +118,22 @@ public class OrderItemController {
         return ResponseEntity.ok(orderItemService.getAllOrderItems());
     }
 
+    @GetMapping(params = "orderIds")
+    @Operation(summary = "Get order items for several orders", description = "Retrieves the order items of multiple orders in one call, grouped by order ID")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Order items found successfully"),
+            @ApiResponse(responseCode = "400", description = "Too many order IDs requested")
+    })
+    public ResponseEntity<Map<Integer, List<OrderItem>>> getOrderItemsByOrderIds(
+            @Parameter(description = "Comma-separated IDs of the orders", required = true)
+            @RequestParam List<Integer> orderIds) {
+        try {
+            return ResponseEntity.ok(orderItemService.getOrderItemsByOrderIds(orderIds));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/order/{orderId}")
     @Operation(summary = "Get order items by order ID", description = "Retrieves all order items for a specific order")
     @ApiResponses(value = {
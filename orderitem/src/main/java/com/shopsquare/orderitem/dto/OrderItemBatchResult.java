@@ -0,0 +1,46 @@
+package com.shopsquare.orderitem.dto;
+
+import java.util.List;
+
+/**
+ * Response of {@code POST /api/order-items/batch}: one result per submitted line plus totals.
+ */
+public class OrderItemBatchResult {
+
+    private int created;
+    private int rejected;
+    private List<OrderItemLineResult> lines;
+
+    public OrderItemBatchResult() {
+    }
+
+    public OrderItemBatchResult(int created, int rejected, List<OrderItemLineResult> lines) {
+        this.created = created;
+        this.rejected = rejected;
+        this.lines = lines;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(int rejected) {
+        this.rejected = rejected;
+    }
+
+    public List<OrderItemLineResult> getLines() {
+        return lines;
+    }
+
+    public void setLines(List<OrderItemLineResult> lines) {
+        this.lines = lines;
+    }
+}
@@ -0,0 +1,92 @@
+package com.shopsquare.orderitem.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.shopsquare.orderitem.entity.OrderItem;
+
+/**
+ * Result for one submitted line of a batch order-item creation, in submission order.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderItemLineResult {
+
+    public enum Status {
+        CREATED,
+        INSUFFICIENT_STOCK,
+        PRODUCT_NOT_FOUND,
+        INVALID
+    }
+
+    private int line;
+    private int productId;
+    private int quantity;
+    private Status status;
+    private OrderItem orderItem;
+    private Integer availableStock;
+    private String message;
+
+    public OrderItemLineResult() {
+    }
+
+    public OrderItemLineResult(int line, int productId, int quantity, Status status) {
+        this.line = line;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.status = status;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public void setLine(int line) {
+        this.line = line;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public void setProductId(int productId) {
+        this.productId = productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public OrderItem getOrderItem() {
+        return orderItem;
+    }
+
+    public void setOrderItem(OrderItem orderItem) {
+        this.orderItem = orderItem;
+    }
+
+    public Integer getAvailableStock() {
+        return availableStock;
+    }
+
+    public void setAvailableStock(Integer availableStock) {
+        this.availableStock = availableStock;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,34 @@
+package com.shopsquare.orderitem.dto;
+
+/**
+ * A product bought in the same orders as the requested one, with the number of such orders.
+ */
+public class ProductRecommendation {
+
+    private int productId;
+    private long coPurchases;
+
+    public ProductRecommendation() {
+    }
+
+    public ProductRecommendation(int productId, long coPurchases) {
+        this.productId = productId;
+        this.coPurchases = coPurchases;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public void setProductId(int productId) {
+        this.productId = productId;
+    }
+
+    public long getCoPurchases() {
+        return coPurchases;
+    }
+
+    public void setCoPurchases(long coPurchases) {
+        this.coPurchases = coPurchases;
+    }
+}
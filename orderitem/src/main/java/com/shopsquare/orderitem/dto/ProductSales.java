@@ -0,0 +1,34 @@
+package com.shopsquare.orderitem.dto;
+
+/**
+ * Units of one product sold within the leaderboard window.
+ */
+public class ProductSales {
+
+    private int productId;
+    private long unitsSold;
+
+    public ProductSales() {
+    }
+
+    public ProductSales(int productId, long unitsSold) {
+        this.productId = productId;
+        this.unitsSold = unitsSold;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public void setProductId(int productId) {
+        this.productId = productId;
+    }
+
+    public long getUnitsSold() {
+        return unitsSold;
+    }
+
+    public void setUnitsSold(long unitsSold) {
+        this.unitsSold = unitsSold;
+    }
+}
@@ -0,0 +1,34 @@
+package com.shopsquare.orderitem.dto;
+
+/**
+ * One line of the grouped stock reservation sent to PRODUCT-SERVICE.
+ */
+public class StockReservationRequest {
+
+    private Long productId;
+    private int quantity;
+
+    public StockReservationRequest() {
+    }
+
+    public StockReservationRequest(Long productId, int quantity) {
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+}
@@ -0,0 +1,61 @@
+package com.shopsquare.orderitem.dto;
+
+/**
+ * Per-product reservation outcome returned by PRODUCT-SERVICE. Either the whole requested quantity
+ * was taken or none of it.
+ */
+public class StockReservationResult {
+
+    public enum Status {
+        RESERVED,
+        INSUFFICIENT_STOCK,
+        NOT_FOUND
+    }
+
+    private Long productId;
+    private int requested;
+    private Status status;
+    private Integer remainingStock;
+
+    public StockReservationResult() {
+    }
+
+    public StockReservationResult(Long productId, int requested, Status status, Integer remainingStock) {
+        this.productId = productId;
+        this.requested = requested;
+        this.status = status;
+        this.remainingStock = remainingStock;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public int getRequested() {
+        return requested;
+    }
+
+    public void setRequested(int requested) {
+        this.requested = requested;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Integer getRemainingStock() {
+        return remainingStock;
+    }
+
+    public void setRemainingStock(Integer remainingStock) {
+        this.remainingStock = remainingStock;
+    }
+}
@@ -3,12 +3,18 @@ package com.shopsquare.orderitem.entity;
 import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.time.LocalDateTime;
+
 @Entity
-@Table(name = "order_items")
+@Table(name = "order_items", indexes = {
+        @Index(name = "idx_order_items_order_id", columnList = "order_id"),
+        @Index(name = "idx_order_items_created_at", columnList = "created_at")
+})
 public class OrderItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+    @SequenceGenerator(name = "order_items_seq", sequenceName = "order_items_seq", allocationSize = 50)
     private int id;
 
     @Column(name = "order_id", nullable = false)
@@ -24,6 +30,10 @@ public class OrderItem {
     @JsonProperty("price")
     private double priceAtTime;
 
+    // Null for rows created before the column existed
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
     // ---- Constructors ----
     public OrderItem() {
     }
@@ -36,6 +46,11 @@ public class OrderItem {
         this.priceAtTime = priceAtTime;
     }
 
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+
     // ---- Getters and Setters ----
     public int getId() {
         return id;
@@ -77,6 +92,14 @@ public class OrderItem {
         this.priceAtTime = priceAtTime;
     }
 
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
     // ---- toString() (optional for debugging) ----
     @Override
     public String toString() {
@@ -86,6 +109,7 @@ public class OrderItem {
                 ", productId=" + productId +
                 ", quantity=" + quantity +
                 ", priceAtTime=" + priceAtTime +
+                ", createdAt=" + createdAt +
                 '}';
     }
 }
@@ -0,0 +1,60 @@
+package com.shopsquare.orderitem.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stock reservation requested from PRODUCT-SERVICE whose order items are not saved yet. It is written
+ * before the reservation call and deleted in the same transaction that saves the items; one still here
+ * afterwards belongs to a batch that failed, and its stock is given back. Once {@code releasing} is
+ * set the items can no longer be saved against it.
+ */
+@Entity
+@Table(name = "pending_stock_reservations", indexes = {
+        @Index(name = "idx_pending_stock_reservations_created_at", columnList = "created_at")
+})
+public class PendingStockReservation {
+
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "releasing", nullable = false)
+    private boolean releasing;
+
+    public PendingStockReservation() {
+    }
+
+    public PendingStockReservation(String id) {
+        this.id = id;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public boolean isReleasing() {
+        return releasing;
+    }
+
+    public void setReleasing(boolean releasing) {
+        this.releasing = releasing;
+    }
+}
@@ -0,0 +1,70 @@
+package com.shopsquare.orderitem.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Checkpointed units sold for one product in one closed leaderboard time bucket.
+ */
+@Entity
+@Table(name = "product_sales_buckets", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_product_sales_buckets", columnNames = {"bucket_start", "product_id"})
+})
+public class ProductSalesBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_sales_buckets_seq")
+    @SequenceGenerator(name = "product_sales_buckets_seq", sequenceName = "product_sales_buckets_seq", allocationSize = 50)
+    private long id;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "product_id", nullable = false)
+    private int productId;
+
+    @Column(name = "units", nullable = false)
+    private long units;
+
+    public ProductSalesBucket() {
+    }
+
+    public ProductSalesBucket(LocalDateTime bucketStart, int productId, long units) {
+        this.bucketStart = bucketStart;
+        this.productId = productId;
+        this.units = units;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public void setProductId(int productId) {
+        this.productId = productId;
+    }
+
+    public long getUnits() {
+        return units;
+    }
+
+    public void setUnits(long units) {
+        this.units = units;
+    }
+}
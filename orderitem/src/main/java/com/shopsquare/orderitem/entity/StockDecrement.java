@@ -0,0 +1,119 @@
+package com.shopsquare.orderitem.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stock decrement owed to PRODUCT-SERVICE, written in the same transaction as its order item and
+ * deleted once the decrement has been applied. While a worker is sending it, {@code nextAttemptAt} is
+ * its lease; {@code claimId} is the Idempotency-Key of the call it was first sent in, kept for retries
+ * so product-service applies it only once.
+ */
+@Entity
+@Table(name = "stock_decrements", indexes = {
+        @Index(name = "idx_stock_decrements_next_attempt", columnList = "next_attempt_at")
+})
+public class StockDecrement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_decrements_seq")
+    @SequenceGenerator(name = "stock_decrements_seq", sequenceName = "stock_decrements_seq", allocationSize = 50)
+    private long id;
+
+    @Column(name = "product_id", nullable = false)
+    private int productId;
+
+    @Column(name = "quantity", nullable = false)
+    private int quantity;
+
+    @Column(name = "order_item_id", nullable = false)
+    private int orderItemId;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "claim_id", length = 64)
+    private String claimId;
+
+    public StockDecrement() {
+    }
+
+    public StockDecrement(int productId, int quantity, int orderItemId) {
+        this.productId = productId;
+        this.quantity = quantity;
+        this.orderItemId = orderItemId;
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public void setProductId(int productId) {
+        this.productId = productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public int getOrderItemId() {
+        return orderItemId;
+    }
+
+    public void setOrderItemId(int orderItemId) {
+        this.orderItemId = orderItemId;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getClaimId() {
+        return claimId;
+    }
+
+    public void setClaimId(String claimId) {
+        this.claimId = claimId;
+    }
+}
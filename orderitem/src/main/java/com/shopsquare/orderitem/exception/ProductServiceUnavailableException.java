@@ -0,0 +1,12 @@
+package com.shopsquare.orderitem.exception;
+
+/**
+ * Thrown when PRODUCT-SERVICE cannot be reached to reserve stock, or the reservation was released
+ * before the items it was for could be saved.
+ */
+public class ProductServiceUnavailableException extends RuntimeException {
+
+    public ProductServiceUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,12 +1,31 @@
 package com.shopsquare.orderitem.repository;
 
 import com.shopsquare.orderitem.entity.OrderItem;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Integer> {
     List<OrderItem> findByOrderId(int orderId);
+    List<OrderItem> findByOrderIdIn(Collection<Integer> orderIds);
+
+    @Query("select distinct oi.productId from OrderItem oi where oi.orderId = :orderId and oi.id not in :excludedIds")
+    List<Integer> findDistinctProductIdsByOrderIdExcluding(@Param("orderId") int orderId,
+                                                           @Param("excludedIds") Collection<Integer> excludedIds);
+
+    // Keyset scan of {orderId, productId} pairs in order-ID order, for rebuilding in-memory indexes
+    @Query("select oi.orderId, oi.productId from OrderItem oi where oi.orderId > :afterOrderId order by oi.orderId")
+    List<Object[]> findOrderProductsAfter(@Param("afterOrderId") int afterOrderId, Pageable pageable);
+
+    // Units sold per product in [from, to); each row is {productId, units}
+    @Query("select oi.productId, sum(oi.quantity) from OrderItem oi "
+            + "where oi.createdAt >= :from and oi.createdAt < :to group by oi.productId")
+    List<Object[]> sumQuantityByProduct(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 }
@@ -0,0 +1,30 @@
+package com.shopsquare.orderitem.repository;
+
+import com.shopsquare.orderitem.entity.PendingStockReservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PendingStockReservationRepository extends JpaRepository<PendingStockReservation, String> {
+
+    // 0 if the items were saved first (the row is gone)
+    @Modifying
+    @Query("update PendingStockReservation r set r.releasing = true where r.id = :id")
+    int markReleasing(@Param("id") String id);
+
+    // 0 if a release got there first, in which case the items must not be saved
+    @Modifying
+    @Query("delete from PendingStockReservation r where r.id = :id and r.releasing = false")
+    int deleteUnlessReleasing(@Param("id") String id);
+
+    @Query("select r.id from PendingStockReservation r where r.releasing = true or r.createdAt < :staleBefore "
+            + "order by r.createdAt")
+    List<String> findIdsToRelease(@Param("staleBefore") LocalDateTime staleBefore, Pageable pageable);
+}
@@ -0,0 +1,24 @@
+package com.shopsquare.orderitem.repository;
+
+import com.shopsquare.orderitem.entity.ProductSalesBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProductSalesBucketRepository extends JpaRepository<ProductSalesBucket, Long> {
+    List<ProductSalesBucket> findByBucketStartGreaterThanEqual(LocalDateTime from);
+
+    @Modifying
+    @Query("delete from ProductSalesBucket b where b.bucketStart = :bucketStart")
+    void deleteByBucketStart(@Param("bucketStart") LocalDateTime bucketStart);
+
+    @Modifying
+    @Query("delete from ProductSalesBucket b where b.bucketStart < :before")
+    void deleteByBucketStartBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,25 @@
+package com.shopsquare.orderitem.repository;
+
+import com.shopsquare.orderitem.entity.StockDecrement;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockDecrementRepository extends JpaRepository<StockDecrement, Long> {
+
+    // SKIP LOCKED (timeout -2): concurrent workers on other replicas take disjoint rows
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<StockDecrement> findByNextAttemptAtLessThanEqualOrderByIdAsc(LocalDateTime now, Pageable pageable);
+
+    Optional<StockDecrement> findFirstByOrderByCreatedAtAsc();
+}
@@ -1,14 +1,22 @@
 package com.shopsquare.orderitem.service;
 
+import com.shopsquare.orderitem.dto.OrderItemBatchResult;
+import com.shopsquare.orderitem.dto.ProductRecommendation;
+import com.shopsquare.orderitem.dto.ProductSales;
 import com.shopsquare.orderitem.entity.OrderItem;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface OrderItemService {
     OrderItem createOrderItem(OrderItem orderItem);
+    OrderItemBatchResult createOrderItems(List<OrderItem> orderItems);
     Optional<OrderItem> getOrderItemById(int id);
     List<OrderItem> getAllOrderItems();
     List<OrderItem> getOrderItemsByOrderId(int orderId);
+    Map<Integer, List<OrderItem>> getOrderItemsByOrderIds(List<Integer> orderIds);
+    List<ProductSales> getTopProducts(Integer shopId, int k);
+    List<ProductRecommendation> getRecommendations(int productId, int limit);
     OrderItem updateOrderItem(int id, OrderItem orderItem);
     void deleteOrderItem(int id);
 }
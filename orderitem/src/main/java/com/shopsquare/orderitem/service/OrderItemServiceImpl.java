@@ -1,43 +1,197 @@
 package com.shopsquare.orderitem.service;
 
+import com.shopsquare.orderitem.analytics.CoPurchaseRecommender;
+import com.shopsquare.orderitem.analytics.SalesLeaderboard;
+import com.shopsquare.orderitem.dto.OrderItemBatchResult;
+import com.shopsquare.orderitem.dto.OrderItemLineResult;
+import com.shopsquare.orderitem.dto.ProductRecommendation;
+import com.shopsquare.orderitem.dto.ProductSales;
+import com.shopsquare.orderitem.dto.StockReservationRequest;
+import com.shopsquare.orderitem.dto.StockReservationResult;
 import com.shopsquare.orderitem.entity.OrderItem;
+import com.shopsquare.orderitem.entity.PendingStockReservation;
+import com.shopsquare.orderitem.entity.StockDecrement;
+import com.shopsquare.orderitem.exception.ProductServiceUnavailableException;
 import com.shopsquare.orderitem.repository.OrderItemRepository;
+import com.shopsquare.orderitem.repository.PendingStockReservationRepository;
+import com.shopsquare.orderitem.repository.StockDecrementRepository;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 @Service
 public class OrderItemServiceImpl implements OrderItemService {
 
     private final OrderItemRepository orderItemRepository;
+    private final StockDecrementRepository stockDecrementRepository;
+    private final PendingStockReservationRepository pendingStockReservationRepository;
+    private final StockReservationReconciler stockReservationReconciler;
+    private final TransactionTemplate transactionTemplate;
     private final RestTemplate restTemplate;
+    private final SalesLeaderboard salesLeaderboard;
+    private final CoPurchaseRecommender coPurchaseRecommender;
 
     @Value("${service.product-service.name:product-service}")
     private String productServiceName;
 
-    public OrderItemServiceImpl(OrderItemRepository orderItemRepository, RestTemplate restTemplate) {
+    @Value("${order-item.batch.max-order-ids:200}")
+    private int maxBatchOrderIds;
+
+    @Value("${order-item.batch.max-lines:200}")
+    private int maxBatchLines;
+
+    public OrderItemServiceImpl(OrderItemRepository orderItemRepository,
+                                StockDecrementRepository stockDecrementRepository,
+                                PendingStockReservationRepository pendingStockReservationRepository,
+                                StockReservationReconciler stockReservationReconciler,
+                                TransactionTemplate transactionTemplate,
+                                RestTemplate restTemplate,
+                                SalesLeaderboard salesLeaderboard,
+                                CoPurchaseRecommender coPurchaseRecommender) {
         this.orderItemRepository = orderItemRepository;
+        this.stockDecrementRepository = stockDecrementRepository;
+        this.pendingStockReservationRepository = pendingStockReservationRepository;
+        this.stockReservationReconciler = stockReservationReconciler;
+        this.transactionTemplate = transactionTemplate;
         this.restTemplate = restTemplate;
+        this.salesLeaderboard = salesLeaderboard;
+        this.coPurchaseRecommender = coPurchaseRecommender;
     }
 
     @Override
+    @Transactional
     public OrderItem createOrderItem(OrderItem orderItem) {
-        // ✅ FIX: Avoid comparing primitive int to null
-        // If productId is a primitive (int), it can never be null.
-        // We'll instead check that it's greater than 0 before calling the product service.
-        if (orderItem.getProductId() > 0) {
-            try {
-                restTemplate.postForLocation(
-                        "http://" + productServiceName + "/api/products/" + orderItem.getProductId()
-                                + "/decrement?qty=" + orderItem.getQuantity(),
-                        null
-                );
-            } catch (Exception ignored) {}
+        OrderItem saved = orderItemRepository.save(orderItem);
+        // Recorded with the item and applied by StockDecrementWorker, so product-service is off the request path
+        if (saved.getProductId() > 0 && saved.getQuantity() > 0) {
+            stockDecrementRepository.save(new StockDecrement(saved.getProductId(), saved.getQuantity(), saved.getId()));
+        }
+        salesLeaderboard.record(saved.getProductId(), saved.getQuantity(), saved.getCreatedAt());
+        coPurchaseRecommender.record(saved.getOrderId(), new int[]{saved.getProductId()}, List.of(saved.getId()));
+        return saved;
+    }
+
+    @Override
+    public OrderItemBatchResult createOrderItems(List<OrderItem> orderItems) {
+        if (orderItems == null || orderItems.isEmpty()) {
+            throw new IllegalArgumentException("At least one order item is required");
+        }
+        if (orderItems.size() > maxBatchLines) {
+            throw new IllegalArgumentException("At most " + maxBatchLines + " order items may be created at once");
+        }
+
+        List<OrderItemLineResult> results = new ArrayList<>(orderItems.size());
+        Map<Integer, Integer> quantities = new LinkedHashMap<>();
+        for (int line = 0; line < orderItems.size(); line++) {
+            OrderItem item = orderItems.get(line);
+            OrderItemLineResult result = new OrderItemLineResult(line, item.getProductId(), item.getQuantity(), null);
+            if (item.getOrderId() <= 0 || item.getProductId() <= 0 || item.getQuantity() <= 0) {
+                result.setStatus(OrderItemLineResult.Status.INVALID);
+                result.setMessage("Order ID, product ID and quantity must be positive");
+            } else {
+                quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+            results.add(result);
+        }
+
+        String reservationId = UUID.randomUUID().toString();
+        Map<Integer, StockReservationResult> reservations = reserveStock(reservationId, quantities);
+
+        List<OrderItem> toSave = new ArrayList<>();
+        for (OrderItemLineResult result : results) {
+            if (result.getStatus() != null) {
+                continue;
+            }
+            StockReservationResult reservation = reservations.get(result.getProductId());
+            if (reservation == null || reservation.getStatus() == StockReservationResult.Status.NOT_FOUND) {
+                result.setStatus(OrderItemLineResult.Status.PRODUCT_NOT_FOUND);
+            } else if (reservation.getStatus() == StockReservationResult.Status.INSUFFICIENT_STOCK) {
+                result.setStatus(OrderItemLineResult.Status.INSUFFICIENT_STOCK);
+                result.setAvailableStock(reservation.getRemainingStock());
+            } else {
+                OrderItem item = orderItems.get(result.getLine());
+                item.setId(0);
+                result.setStatus(OrderItemLineResult.Status.CREATED);
+                result.setOrderItem(item);
+                toSave.add(item);
+            }
+        }
+
+        // IDs come from a pooled sequence, so this is a single batched INSERT. The pending reservation is
+        // deleted in the same transaction, so the reserved stock ends up either in saved items or released
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                orderItemRepository.saveAll(toSave);
+                if (!quantities.isEmpty() && pendingStockReservationRepository.deleteUnlessReleasing(reservationId) == 0) {
+                    throw new ProductServiceUnavailableException(
+                            "Stock reservation " + reservationId + " was released before the order items were saved", null);
+                }
+            });
+        } catch (RuntimeException e) {
+            stockReservationReconciler.release(reservationId);
+            throw e;
+        }
+        Map<Integer, List<OrderItem>> itemsByOrder = new LinkedHashMap<>();
+        for (OrderItem item : toSave) {
+            salesLeaderboard.record(item.getProductId(), item.getQuantity(), item.getCreatedAt());
+            itemsByOrder.computeIfAbsent(item.getOrderId(), orderId -> new ArrayList<>()).add(item);
+        }
+        itemsByOrder.forEach((orderId, items) -> coPurchaseRecommender.record(
+                orderId,
+                items.stream().mapToInt(OrderItem::getProductId).toArray(),
+                items.stream().map(OrderItem::getId).toList()));
+        return new OrderItemBatchResult(toSave.size(), results.size() - toSave.size(), results);
+    }
+
+    // One grouped call to PRODUCT-SERVICE for every product in the batch, keyed so it can be released
+    private Map<Integer, StockReservationResult> reserveStock(String reservationId, Map<Integer, Integer> quantities) {
+        Map<Integer, StockReservationResult> reservations = new HashMap<>();
+        if (quantities.isEmpty()) {
+            return reservations;
+        }
+        List<StockReservationRequest> requests = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> requests.add(new StockReservationRequest((long) productId, quantity)));
+
+        // Recorded first, so the stock is given back even if this process stops before saving the items
+        pendingStockReservationRepository.save(new PendingStockReservation(reservationId));
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", reservationId);
+        List<StockReservationResult> response;
+        try {
+            response = restTemplate.exchange(
+                    "http://" + productServiceName + "/api/products/stock/reserve",
+                    HttpMethod.POST,
+                    new HttpEntity<>(requests, headers),
+                    new ParameterizedTypeReference<List<StockReservationResult>>() {}
+            ).getBody();
+        } catch (RestClientException e) {
+            // Product-service may have committed the reservation anyway, e.g. when the response timed out
+            stockReservationReconciler.release(reservationId);
+            throw new ProductServiceUnavailableException("Could not reserve stock with product service", e);
         }
-        return orderItemRepository.save(orderItem);
+        if (response != null) {
+            for (StockReservationResult reservation : response) {
+                reservations.put(reservation.getProductId().intValue(), reservation);
+            }
+        }
+        return reservations;
     }
 
     @Override
@@ -55,6 +209,36 @@ public class OrderItemServiceImpl implements OrderItemService {
         return orderItemRepository.findByOrderId(orderId);
     }
 
+    @Override
+    public Map<Integer, List<OrderItem>> getOrderItemsByOrderIds(List<Integer> orderIds) {
+        Set<Integer> distinctIds = new LinkedHashSet<>(orderIds);
+        if (distinctIds.size() > maxBatchOrderIds) {
+            throw new IllegalArgumentException("At most " + maxBatchOrderIds + " order IDs may be requested at once");
+        }
+        // Every requested order gets an entry, so callers can tell "no items" apart from "not asked for"
+        Map<Integer, List<OrderItem>> itemsByOrderId = new LinkedHashMap<>();
+        for (Integer orderId : distinctIds) {
+            itemsByOrderId.put(orderId, new ArrayList<>());
+        }
+        if (distinctIds.isEmpty()) {
+            return itemsByOrderId;
+        }
+        for (OrderItem item : orderItemRepository.findByOrderIdIn(distinctIds)) {
+            itemsByOrderId.get(item.getOrderId()).add(item);
+        }
+        return itemsByOrderId;
+    }
+
+    @Override
+    public List<ProductSales> getTopProducts(Integer shopId, int k) {
+        return salesLeaderboard.topProducts(shopId, k);
+    }
+
+    @Override
+    public List<ProductRecommendation> getRecommendations(int productId, int limit) {
+        return coPurchaseRecommender.recommend(productId, limit);
+    }
+
     @Override
     public OrderItem updateOrderItem(int id, OrderItem orderItem) {
         Optional<OrderItem> existingOrderItemOpt = orderItemRepository.findById(id);
@@ -0,0 +1,191 @@
+package com.shopsquare.orderitem.service;
+
+import com.shopsquare.orderitem.entity.StockDecrement;
+import com.shopsquare.orderitem.repository.StockDecrementRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies the stock decrements recorded by {@code createOrderItem}. Pending decrements for the same
+ * product are merged into one PRODUCT-SERVICE call; failed calls are retried with exponential backoff.
+ *
+ * <p>Rows are claimed in a short transaction that leases them for {@code lease-ms}, the calls are made
+ * outside any transaction, and a second short transaction deletes or reschedules them, so no connection
+ * or row lock is held while product-service answers. A call carries its rows' claim ID as the
+ * Idempotency-Key, and a retry reuses it, so a decrement re-sent after a lost response or a failed
+ * commit is applied once.
+ */
+@Component
+public class StockDecrementWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(StockDecrementWorker.class);
+
+    private final StockDecrementRepository stockDecrementRepository;
+    private final RestTemplate restTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter applied;
+    private final Counter retried;
+    private final Counter dropped;
+
+    @Value("${service.product-service.name:product-service}")
+    private String productServiceName;
+
+    @Value("${order-item.stock-decrement.batch-size:500}")
+    private int batchSize;
+
+    @Value("${order-item.stock-decrement.initial-backoff-ms:1000}")
+    private long initialBackoffMs;
+
+    @Value("${order-item.stock-decrement.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    @Value("${order-item.stock-decrement.lease-ms:60000}")
+    private long leaseMs;
+
+    // No call is started that could still be running when the lease ends
+    @Value("${http-client.total-timeout-ms:10000}")
+    private long callTimeoutMs;
+
+    public StockDecrementWorker(StockDecrementRepository stockDecrementRepository, RestTemplate restTemplate,
+                                TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.stockDecrementRepository = stockDecrementRepository;
+        this.restTemplate = restTemplate;
+        this.transactionTemplate = transactionTemplate;
+        Gauge.builder("stock.decrement.pending", pending, AtomicLong::get)
+                .description("Stock decrements not yet applied to product-service")
+                .register(meterRegistry);
+        Gauge.builder("stock.decrement.lag", lagMillis, value -> value.get() / 1000.0)
+                .description("Age of the oldest unapplied stock decrement")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.applied = Counter.builder("stock.decrement.applied")
+                .description("Order-item decrements applied to product-service")
+                .register(meterRegistry);
+        this.retried = Counter.builder("stock.decrement.retried")
+                .description("Order-item decrements rescheduled after a failed call")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("stock.decrement.dropped")
+                .description("Order-item decrements rejected by product-service and discarded")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${order-item.stock-decrement.poll-interval-ms:500}")
+    public void applyPendingDecrements() {
+        List<StockDecrement> claimed;
+        do {
+            claimed = transactionTemplate.execute(status -> claimBatch());
+            if (claimed != null && !claimed.isEmpty()) {
+                applyBatch(claimed);
+            }
+        } while (claimed != null && claimed.size() == batchSize);
+        refreshLag();
+    }
+
+    // SKIP LOCKED keeps replicas apart while this runs; the lease keeps them and later polls apart after
+    private List<StockDecrement> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<StockDecrement> due = stockDecrementRepository
+                .findByNextAttemptAtLessThanEqualOrderByIdAsc(now, PageRequest.of(0, batchSize));
+        Map<Integer, String> newClaims = new HashMap<>();
+        for (StockDecrement decrement : due) {
+            if (decrement.getClaimId() == null) {
+                decrement.setClaimId(newClaims.computeIfAbsent(decrement.getProductId(), id -> UUID.randomUUID().toString()));
+            }
+            decrement.setNextAttemptAt(now.plus(Duration.ofMillis(leaseMs)));
+        }
+        return due;
+    }
+
+    private void applyBatch(List<StockDecrement> claimed) {
+        // Rows claimed together before keep their key; rows new to this batch share one per product
+        Map<String, List<StockDecrement>> byClaim = new LinkedHashMap<>();
+        for (StockDecrement decrement : claimed) {
+            byClaim.computeIfAbsent(decrement.getClaimId(), id -> new ArrayList<>()).add(decrement);
+        }
+
+        long lastCallStart = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(leaseMs - callTimeoutMs);
+        List<Long> finished = new ArrayList<>();
+        List<StockDecrement> rescheduled = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        byClaim.forEach((claimId, decrements) -> {
+            int productId = decrements.get(0).getProductId();
+            int quantity = decrements.stream().mapToInt(StockDecrement::getQuantity).sum();
+            if (System.nanoTime() > lastCallStart) {
+                decrements.forEach(decrement -> decrement.setNextAttemptAt(now));
+                rescheduled.addAll(decrements);
+                return;
+            }
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("Idempotency-Key", claimId);
+            try {
+                restTemplate.exchange(
+                        "http://" + productServiceName + "/api/products/" + productId + "/decrement?qty=" + quantity,
+                        HttpMethod.POST,
+                        new HttpEntity<>(headers),
+                        Void.class
+                );
+                decrements.forEach(decrement -> finished.add(decrement.getId()));
+                applied.increment(decrements.size());
+            } catch (HttpClientErrorException e) {
+                // The product is gone or the request is malformed; retrying cannot succeed
+                log.warn("Dropping {} stock decrement(s) for product {}: {}", decrements.size(), productId, e.getStatusCode());
+                decrements.forEach(decrement -> finished.add(decrement.getId()));
+                dropped.increment(decrements.size());
+            } catch (RestClientException e) {
+                for (StockDecrement decrement : decrements) {
+                    decrement.setAttempts(decrement.getAttempts() + 1);
+                    decrement.setNextAttemptAt(LocalDateTime.now().plus(backoff(decrement.getAttempts())));
+                }
+                rescheduled.addAll(decrements);
+                retried.increment(decrements.size());
+                log.debug("Stock decrement for product {} failed, will retry: {}", productId, e.getMessage());
+            }
+        });
+
+        // If this fails the rows come due again when the lease ends and are re-sent under the same keys
+        transactionTemplate.executeWithoutResult(status -> {
+            stockDecrementRepository.deleteAllByIdInBatch(finished);
+            stockDecrementRepository.saveAll(rescheduled);
+        });
+    }
+
+    private Duration backoff(int attempts) {
+        long delay = initialBackoffMs << Math.min(attempts - 1, 20);
+        return Duration.ofMillis(Math.min(delay, maxBackoffMs));
+    }
+
+    private void refreshLag() {
+        pending.set(stockDecrementRepository.count());
+        lagMillis.set(stockDecrementRepository.findFirstByOrderByCreatedAtAsc()
+                .map(oldest -> Math.max(0, Duration.between(oldest.getCreatedAt(), LocalDateTime.now()).toMillis()))
+                .orElse(0L));
+    }
+}
@@ -0,0 +1,86 @@
+package com.shopsquare.orderitem.service;
+
+import com.shopsquare.orderitem.repository.PendingStockReservationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Gives back the stock PRODUCT-SERVICE reserved for an order-item batch whose items were not saved:
+ * at once when the batch fails, and from a periodic sweep for releases that failed as well and for
+ * batches that never finished (the process stopped mid-request, or the reservation call timed out after
+ * product-service had committed it). Releases go by the reservation's Idempotency-Key, so sending one
+ * twice, or before the reservation itself arrives, is safe.
+ */
+@Component
+public class StockReservationReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(StockReservationReconciler.class);
+
+    private final PendingStockReservationRepository pendingStockReservationRepository;
+    private final RestTemplate restTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter released;
+
+    @Value("${service.product-service.name:product-service}")
+    private String productServiceName;
+
+    // Well past the longest a batch request can take, so a sweep never releases one still running
+    @Value("${order-item.stock-reservation.stale-after-ms:60000}")
+    private long staleAfterMs;
+
+    @Value("${order-item.stock-reservation.batch-size:100}")
+    private int batchSize;
+
+    public StockReservationReconciler(PendingStockReservationRepository pendingStockReservationRepository,
+                                      RestTemplate restTemplate, TransactionTemplate transactionTemplate,
+                                      MeterRegistry meterRegistry) {
+        this.pendingStockReservationRepository = pendingStockReservationRepository;
+        this.restTemplate = restTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.released = Counter.builder("stock.reservation.released")
+                .description("Stock reservations given back because their order items were not saved")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Releases the reservation unless its items have already been saved. Once this starts they can no
+     * longer be; if product-service cannot be reached the sweep tries again.
+     */
+    public void release(String reservationId) {
+        Integer marked = transactionTemplate.execute(status -> pendingStockReservationRepository.markReleasing(reservationId));
+        if (marked == null || marked == 0) {
+            return;
+        }
+        try {
+            restTemplate.postForLocation(
+                    "http://" + productServiceName + "/api/products/stock/reservations/" + reservationId + "/release",
+                    null
+            );
+            pendingStockReservationRepository.deleteById(reservationId);
+            released.increment();
+        } catch (RestClientException e) {
+            log.debug("Releasing stock reservation {} failed, will retry: {}", reservationId, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order-item.stock-reservation.reconcile-interval-ms:10000}")
+    public void releaseAbandoned() {
+        LocalDateTime staleBefore = LocalDateTime.now().minus(Duration.ofMillis(staleAfterMs));
+        for (String reservationId : pendingStockReservationRepository.findIdsToRelease(staleBefore,
+                PageRequest.of(0, batchSize))) {
+            release(reservationId);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.shopsquare.orderitem.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntLongHashMapTest {
+
+    // The default table has 8 slots and grows when a fifth entry arrives
+    private static final int MASK = 7;
+
+    @Test
+    void putOverwritesAndGetDefaultsToZero() {
+        IntLongHashMap map = new IntLongHashMap();
+        map.put(5, 10);
+        map.put(5, 12);
+        map.put(-3, 7);
+
+        assertEquals(2, map.size());
+        assertEquals(12, map.get(5));
+        assertEquals(7, map.get(-3));
+        assertEquals(0, map.get(6));
+        assertFalse(map.containsKey(6));
+    }
+
+    @Test
+    void keyZeroIsRejected() {
+        IntLongHashMap map = new IntLongHashMap();
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> map.addTo(0, 1));
+        assertEquals(0, map.get(0));
+        assertEquals(0, map.remove(0));
+    }
+
+    @Test
+    void addToInsertsIncrementsAndRemovesAtZero() {
+        IntLongHashMap map = new IntLongHashMap();
+        assertEquals(3, map.addTo(9, 3));
+        assertEquals(5, map.addTo(9, 2));
+        assertEquals(0, map.addTo(4, 0));
+        assertFalse(map.containsKey(4));
+
+        assertEquals(0, map.addTo(9, -5));
+        assertFalse(map.containsKey(9));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void removeReturnsPreviousValue() {
+        IntLongHashMap map = new IntLongHashMap();
+        map.put(1, 11);
+        map.put(2, 22);
+
+        assertEquals(11, map.remove(1));
+        assertEquals(0, map.remove(1));
+        assertEquals(1, map.size());
+        assertEquals(22, map.get(2));
+    }
+
+    @Test
+    void removeShiftsBackAcrossTheEndOfTheTable() {
+        // Four keys that all hash to the last slot, so their probe chain wraps to slots 0, 1 and 2
+        int[] chain = keysWithHome(MASK, 4);
+        IntLongHashMap map = new IntLongHashMap();
+        for (int key : chain) {
+            map.put(key, key * 10L);
+        }
+
+        // Removing the head leaves a gap at slot 7 that the wrapped entries must be shifted back into
+        assertEquals(chain[0] * 10L, map.remove(chain[0]));
+        assertEquals(chain[2] * 10L, map.remove(chain[2]));
+
+        assertEquals(2, map.size());
+        assertFalse(map.containsKey(chain[0]));
+        assertFalse(map.containsKey(chain[2]));
+        assertEquals(chain[1] * 10L, map.get(chain[1]));
+        assertEquals(chain[3] * 10L, map.get(chain[3]));
+
+        // The freed slots are reused without losing the survivors
+        map.put(chain[0], 1);
+        assertEquals(1, map.get(chain[0]));
+        assertEquals(chain[3] * 10L, map.get(chain[3]));
+    }
+
+    @Test
+    void entryAtItsHomeSlotIsNotShiftedIntoAnEarlierGap() {
+        // b wraps past the end of the table; c sits at its own home slot 0 and must stay there
+        int a = keysWithHome(MASK, 1)[0];
+        int b = keysWithHome(MASK, 2)[1];
+        int c = keysWithHome(0, 1)[0];
+        IntLongHashMap map = new IntLongHashMap();
+        map.put(a, 1);
+        map.put(c, 3);
+        map.put(b, 2);
+
+        map.remove(a);
+
+        assertEquals(2, map.get(b));
+        assertEquals(3, map.get(c));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void growsPastTheLoadFactorAndKeepsEveryEntry() {
+        IntLongHashMap map = new IntLongHashMap();
+        for (int key = 1; key <= 1_000; key++) {
+            map.put(key, key);
+        }
+
+        assertEquals(1_000, map.size());
+        for (int key = 1; key <= 1_000; key++) {
+            assertEquals(key, map.get(key));
+        }
+    }
+
+    @Test
+    void forEachVisitsOnlyLiveEntriesAfterDeletes() {
+        IntLongHashMap map = new IntLongHashMap();
+        for (int key = 1; key <= 50; key++) {
+            map.put(key, key);
+        }
+        for (int key = 1; key <= 50; key += 2) {
+            map.remove(key);
+        }
+
+        Map<Integer, Long> seen = new HashMap<>();
+        map.forEach((key, value) -> assertNull(seen.put(key, value)));
+
+        assertEquals(25, seen.size());
+        for (int key = 2; key <= 50; key += 2) {
+            assertEquals(key, seen.get(key));
+        }
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        IntLongHashMap map = new IntLongHashMap();
+        map.put(1, 1);
+        map.put(2, 2);
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(1));
+        map.forEach((key, value) -> {
+            throw new AssertionError("unexpected entry " + key);
+        });
+    }
+
+    @Test
+    void matchesHashMapUnderRandomUpdates() {
+        SplittableRandom random = new SplittableRandom(7);
+        IntLongHashMap map = new IntLongHashMap();
+        Map<Integer, Long> expected = new HashMap<>();
+
+        // A small key range keeps chains long and forces many removals, wrapped or not
+        for (int i = 0; i < 200_000; i++) {
+            int key = 1 + random.nextInt(64);
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    long value = 1 + random.nextInt(100);
+                    map.put(key, value);
+                    expected.put(key, value);
+                }
+                case 1 -> {
+                    long delta = random.nextInt(5) - 2;
+                    long updated = expected.getOrDefault(key, 0L) + delta;
+                    if (updated == 0) {
+                        expected.remove(key);
+                    } else {
+                        expected.put(key, updated);
+                    }
+                    assertEquals(updated, map.addTo(key, delta));
+                }
+                default -> {
+                    Long previous = expected.remove(key);
+                    assertEquals(previous == null ? 0 : previous, map.remove(key));
+                }
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        Map<Integer, Long> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+    }
+
+    // Same spreading function as IntLongHashMap, to pick keys that collide in an 8-slot table
+    private static int[] keysWithHome(int home, int count) {
+        List<Integer> keys = new ArrayList<>();
+        for (int key = 1; keys.size() < count; key++) {
+            int h = key * 0x9E3779B9;
+            if (((h ^ (h >>> 16)) & MASK) == home) {
+                keys.add(key);
+            }
+        }
+        return keys.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
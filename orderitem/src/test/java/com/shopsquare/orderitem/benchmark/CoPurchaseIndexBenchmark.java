@@ -0,0 +1,93 @@
+package com.shopsquare.orderitem.benchmark;
+
+import com.shopsquare.orderitem.analytics.CoPurchaseIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Builds a {@link CoPurchaseIndex} from a synthetic history of 10M order lines and reports its heap
+ * footprint and lookup latency. Orders hold 1-6 distinct products drawn from a skewed catalogue of 100k,
+ * so a few products pair with almost everything and most pair with little.
+ *
+ * <pre>mvn test -Dtest=CoPurchaseIndexBenchmark -Dbenchmark=true -Dsurefire.failIfNoSpecifiedTests=false</pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CoPurchaseIndexBenchmark {
+
+    private static final int LINES = 10_000_000;
+    private static final int PRODUCTS = 100_000;
+    private static final int NEIGHBORS_PER_PRODUCT = 20;
+    private static final int LOOKUPS = 1_000_000;
+
+    @Test
+    void buildAndQuery() {
+        SplittableRandom random = new SplittableRandom(42);
+        long heapBefore = usedHeap();
+
+        CoPurchaseIndex index = new CoPurchaseIndex(NEIGHBORS_PER_PRODUCT);
+        int lines = 0;
+        int orders = 0;
+        long buildStart = System.nanoTime();
+        int[] none = new int[0];
+        while (lines < LINES) {
+            int[] order = randomOrder(random, 1 + random.nextInt(6));
+            index.addToOrder(none, order);
+            lines += order.length;
+            orders++;
+        }
+        long buildNanos = System.nanoTime() - buildStart;
+        long heapAfter = usedHeap();
+
+        // Warm up, then time individual lookups of products weighted like real traffic
+        for (int i = 0; i < 200_000; i++) {
+            index.recommend(skewedProduct(random), 10);
+        }
+        long[] nanos = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            int product = skewedProduct(random);
+            long start = System.nanoTime();
+            index.recommend(product, 10);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+
+        System.out.printf("history:  %,d lines in %,d orders, built in %,d ms%n",
+                lines, orders, buildNanos / 1_000_000);
+        System.out.printf("index:    %,d products, %,d stored pairs, %,.1f MB retained%n",
+                index.productCount(), index.pairCount(), (heapAfter - heapBefore) / (1024.0 * 1024.0));
+        System.out.printf("lookup:   p50 %.1f us, p99 %.1f us, p99.9 %.1f us%n",
+                nanos[LOOKUPS / 2] / 1e3, nanos[LOOKUPS * 99 / 100] / 1e3, nanos[LOOKUPS * 999 / 1000] / 1e3);
+    }
+
+    private static int[] randomOrder(SplittableRandom random, int size) {
+        int[] products = new int[size];
+        int n = 0;
+        while (n < size) {
+            int product = skewedProduct(random);
+            boolean duplicate = false;
+            for (int i = 0; i < n; i++) {
+                duplicate |= products[i] == product;
+            }
+            if (!duplicate) {
+                products[n++] = product;
+            }
+        }
+        return products;
+    }
+
+    // Roughly Zipfian: product k is picked with probability proportional to 1 / k
+    private static int skewedProduct(SplittableRandom random) {
+        return 1 + (int) Math.min(PRODUCTS - 1, Math.floor(Math.exp(random.nextDouble() * Math.log(PRODUCTS))) - 1);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
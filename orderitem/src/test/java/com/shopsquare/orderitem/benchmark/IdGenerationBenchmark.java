@@ -0,0 +1,61 @@
+package com.shopsquare.orderitem.benchmark;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.function.IntFunction;
+
+/**
+ * Compares inserting rows whose IDs come from IDENTITY with rows whose IDs come from a pooled sequence
+ * (the strategy all entities now use). Only IDs allocated up front let Hibernate batch the inserts.
+ * Runs against embedded H2, so absolute numbers understate the gap a networked database shows.
+ *
+ * <pre>mvn test -Dtest=IdGenerationBenchmark -Dbenchmark=true -Dsurefire.failIfNoSpecifiedTests=false</pre>
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.id.optimizer.pooled.preferred=pooled-lo",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.show-sql=false"
+})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class IdGenerationBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final int FLUSH_EVERY = 50;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void identityVersusPooledSequence() {
+        // Warm up both paths so JIT and connection setup do not skew the first measurement
+        insert(10_000, i -> new IdentityRow(i, i));
+        insert(10_000, i -> new SequenceRow(i, i));
+
+        long identityNanos = insert(ROWS, i -> new IdentityRow(i, i));
+        long sequenceNanos = insert(ROWS, i -> new SequenceRow(i, i));
+
+        System.out.printf("IDENTITY:        %,d inserts in %,d ms (%,.0f rows/s)%n",
+                ROWS, identityNanos / 1_000_000, ROWS / (identityNanos / 1e9));
+        System.out.printf("pooled sequence: %,d inserts in %,d ms (%,.0f rows/s)%n",
+                ROWS, sequenceNanos / 1_000_000, ROWS / (sequenceNanos / 1e9));
+    }
+
+    private long insert(int rows, IntFunction<Object> factory) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rows; i++) {
+            entityManager.persist(factory.apply(i));
+            if ((i + 1) % FLUSH_EVERY == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,30 @@
+package com.shopsquare.orderitem.benchmark;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "identity_rows")
+public class IdentityRow {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    @Column(name = "order_id", nullable = false)
+    private int orderId;
+
+    @Column(name = "product_id", nullable = false)
+    private int productId;
+
+    public IdentityRow() {
+    }
+
+    public IdentityRow(int orderId, int productId) {
+        this.orderId = orderId;
+        this.productId = productId;
+    }
+
+    public int getId() {
+        return id;
+    }
+}
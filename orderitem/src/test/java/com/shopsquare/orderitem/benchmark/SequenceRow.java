@@ -0,0 +1,31 @@
+package com.shopsquare.orderitem.benchmark;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "sequence_rows")
+public class SequenceRow {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequence_rows_seq")
+    @SequenceGenerator(name = "sequence_rows_seq", sequenceName = "sequence_rows_seq", allocationSize = 50)
+    private int id;
+
+    @Column(name = "order_id", nullable = false)
+    private int orderId;
+
+    @Column(name = "product_id", nullable = false)
+    private int productId;
+
+    public SequenceRow() {
+    }
+
+    public SequenceRow(int orderId, int productId) {
+        this.orderId = orderId;
+        this.productId = productId;
+    }
+
+    public int getId() {
+        return id;
+    }
+}
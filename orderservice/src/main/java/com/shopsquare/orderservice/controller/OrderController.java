@@ -1,15 +1,23 @@
 package com.shopsquare.orderservice.controller;
 
+import com.shopsquare.orderservice.dto.OrderIntakeStatus;
+import com.shopsquare.orderservice.dto.OrderWithItemsPage;
+import com.shopsquare.orderservice.dto.ShopOrderStats;
 import com.shopsquare.orderservice.entity.Order;
+import com.shopsquare.orderservice.exception.OrderIntakeRejectedException;
+import com.shopsquare.orderservice.service.OrderIntakeService;
 import com.shopsquare.orderservice.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,19 +27,57 @@ import java.util.Optional;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderIntakeService orderIntakeService;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderIntakeService orderIntakeService) {
         this.orderService = orderService;
+        this.orderIntakeService = orderIntakeService;
     }
 
     @PostMapping
-    @Operation(summary = "Create a new order", description = "Creates a new order in the system")
+    @Operation(summary = "Create a new order", description = "Creates a new order in the system. With asynchronous intake enabled the order may be queued and acknowledged with 202")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Order created successfully"),
-            @ApiResponse(responseCode = "400", description = "Invalid input data")
+            @ApiResponse(responseCode = "202", description = "Order queued; poll the status URL for the result"),
+            @ApiResponse(responseCode = "400", description = "Invalid input data"),
+            @ApiResponse(responseCode = "503", description = "Intake queue is full, retry later")
     })
-    public ResponseEntity<Order> createOrder(@RequestBody Order order) {
-        return ResponseEntity.ok(orderService.createOrder(order));
+    public ResponseEntity<?> createOrder(@RequestBody Order order) {
+        if (!orderIntakeService.isEnabled()) {
+            return ResponseEntity.ok(orderService.createOrder(order));
+        }
+        OrderIntakeStatus status;
+        try {
+            status = orderIntakeService.submit(order);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (OrderIntakeRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(e.getMessage());
+        }
+        switch (status.getStatus()) {
+            case PERSISTED:
+                return ResponseEntity.ok(status.getOrder());
+            case FAILED:
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(status);
+            default:
+                return ResponseEntity.accepted().location(URI.create(status.getStatusUrl())).body(status);
+        }
+    }
+
+    @GetMapping("/intake/{ticketId}")
+    @Operation(summary = "Get queued order status", description = "Retrieves the state of an order accepted by the asynchronous intake queue")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Ticket found successfully"),
+            @ApiResponse(responseCode = "404", description = "Ticket not found or expired")
+    })
+    public ResponseEntity<OrderIntakeStatus> getIntakeStatus(
+            @Parameter(description = "Ticket ID returned when the order was queued", required = true)
+            @PathVariable String ticketId) {
+        return orderIntakeService.getStatus(ticketId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @GetMapping
@@ -43,6 +89,46 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getAllOrders());
     }
 
+    @GetMapping("/with-items")
+    @Operation(summary = "Get a page of orders with their items", description = "Retrieves a page of orders, newest first, optionally filtered by user or shop, with each order's items attached")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Orders found successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid paging parameters")
+    })
+    public ResponseEntity<OrderWithItemsPage> getOrdersWithItems(
+            @Parameter(description = "ID of the user whose orders to retrieve")
+            @RequestParam(required = false) Long userId,
+            @Parameter(description = "ID of the shop whose orders to retrieve")
+            @RequestParam(required = false) Long shopId,
+            @Parameter(description = "Zero-based page number")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Number of orders per page")
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(orderService.getOrdersWithItems(userId, shopId, page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/shop-stats")
+    @Operation(summary = "Get recent order volume for several shops", description = "Returns the number of orders and their total amount over the last given days for each requested shop, computed in one grouped query")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "One entry per requested shop"),
+            @ApiResponse(responseCode = "400", description = "Too many shop IDs or days out of range")
+    })
+    public ResponseEntity<List<ShopOrderStats>> getShopStats(
+            @Parameter(description = "Comma-separated IDs of the shops", required = true)
+            @RequestParam List<Long> shopIds,
+            @Parameter(description = "Length of the period in days, ending now")
+            @RequestParam(defaultValue = "7") int days) {
+        try {
+            return ResponseEntity.ok(orderService.getShopStats(shopIds, days));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get order by ID", description = "Retrieves a specific order by its ID")
     @ApiResponses(value = {
@@ -0,0 +1,74 @@
+package com.shopsquare.orderservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.shopsquare.orderservice.entity.Order;
+
+/**
+ * State of an order submitted through the asynchronous intake queue.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderIntakeStatus {
+
+    public enum State {
+        QUEUED,
+        PERSISTED,
+        FAILED
+    }
+
+    private String ticketId;
+    private State status;
+    private String statusUrl;
+    private Order order;
+    private String error;
+
+    public OrderIntakeStatus() {
+    }
+
+    public OrderIntakeStatus(String ticketId, State status, String statusUrl, Order order, String error) {
+        this.ticketId = ticketId;
+        this.status = status;
+        this.statusUrl = statusUrl;
+        this.order = order;
+        this.error = error;
+    }
+
+    public String getTicketId() {
+        return ticketId;
+    }
+
+    public void setTicketId(String ticketId) {
+        this.ticketId = ticketId;
+    }
+
+    public State getStatus() {
+        return status;
+    }
+
+    public void setStatus(State status) {
+        this.status = status;
+    }
+
+    public String getStatusUrl() {
+        return statusUrl;
+    }
+
+    public void setStatusUrl(String statusUrl) {
+        this.statusUrl = statusUrl;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public void setOrder(Order order) {
+        this.order = order;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,41 @@
+package com.shopsquare.orderservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.shopsquare.orderservice.entity.Order;
+
+import java.util.List;
+
+/**
+ * An order together with its line items, serialized as the order's own fields plus an {@code items} array.
+ */
+public class OrderWithItems {
+
+    @JsonUnwrapped
+    private Order order;
+
+    private List<Object> items;
+
+    public OrderWithItems() {
+    }
+
+    public OrderWithItems(Order order, List<Object> items) {
+        this.order = order;
+        this.items = items;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public void setOrder(Order order) {
+        this.order = order;
+    }
+
+    public List<Object> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Object> items) {
+        this.items = items;
+    }
+}
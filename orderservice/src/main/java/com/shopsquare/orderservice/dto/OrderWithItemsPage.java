@@ -0,0 +1,57 @@
+package com.shopsquare.orderservice.dto;
+
+import java.util.List;
+
+/**
+ * One page of {@link OrderWithItems}. Pages are slices: {@code hasNext} is reported instead of a total count,
+ * so no count query is issued.
+ */
+public class OrderWithItemsPage {
+
+    private List<OrderWithItems> content;
+    private int page;
+    private int size;
+    private boolean hasNext;
+
+    public OrderWithItemsPage() {
+    }
+
+    public OrderWithItemsPage(List<OrderWithItems> content, int page, int size, boolean hasNext) {
+        this.content = content;
+        this.page = page;
+        this.size = size;
+        this.hasNext = hasNext;
+    }
+
+    public List<OrderWithItems> getContent() {
+        return content;
+    }
+
+    public void setContent(List<OrderWithItems> content) {
+        this.content = content;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
@@ -0,0 +1,46 @@
+package com.shopsquare.orderservice.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Order volume of one shop over a recent period, as used by shop-service's shop summaries.
+ */
+public class ShopOrderStats {
+
+    private Long shopId;
+    private long orderCount;
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    public ShopOrderStats() {
+    }
+
+    public ShopOrderStats(Long shopId, long orderCount, BigDecimal revenue) {
+        this.shopId = shopId;
+        this.orderCount = orderCount;
+        this.revenue = revenue;
+    }
+
+    public Long getShopId() {
+        return shopId;
+    }
+
+    public void setShopId(Long shopId) {
+        this.shopId = shopId;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+}
@@ -0,0 +1,11 @@
+package com.shopsquare.orderservice.exception;
+
+/**
+ * Thrown when the asynchronous order intake queue is full or shutting down and a new order cannot be accepted.
+ */
+public class OrderIntakeRejectedException extends RuntimeException {
+
+    public OrderIntakeRejectedException(String message) {
+        super(message);
+    }
+}
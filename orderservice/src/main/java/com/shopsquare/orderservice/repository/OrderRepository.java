@@ -1,13 +1,27 @@
 package com.shopsquare.orderservice.repository;
 
 import com.shopsquare.orderservice.entity.Order;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByShopId(Long shopId);
     List<Order> findByUserId(Long userId);
+    Slice<Order> findByShopId(Long shopId, Pageable pageable);
+    Slice<Order> findByUserId(Long userId, Pageable pageable);
+    Slice<Order> findBy(Pageable pageable);
+
+    // {shopId, orders, revenue} per shop since the given time; served by idx_orders_shop_id
+    @Query("select o.shopId, count(o), sum(o.totalAmount) from Order o "
+            + "where o.shopId in :shopIds and o.createdAt >= :since group by o.shopId")
+    List<Object[]> sumByShopIdsSince(@Param("shopIds") Collection<Long> shopIds, @Param("since") LocalDateTime since);
 }
@@ -0,0 +1,301 @@
+package com.shopsquare.orderservice.service;
+
+import com.shopsquare.orderservice.dto.OrderIntakeStatus;
+import com.shopsquare.orderservice.entity.Order;
+import com.shopsquare.orderservice.exception.OrderIntakeRejectedException;
+import com.shopsquare.orderservice.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Opt-in asynchronous order intake. Validated orders are put on a bounded queue and persisted by writer
+ * threads that group-commit everything queued since their last write in one transaction. Order IDs come
+ * from a pooled sequence, so Hibernate sends the group as a JDBC batch that the driver rewrites into a
+ * multi-row INSERT; throughput grows with batch size instead of with request threads and pooled connections.
+ */
+@Service
+public class OrderIntakeService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderIntakeService.class);
+
+    private static final String STATUS_PATH = "/api/orders/intake/";
+
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShopSummaryNotifier shopSummaryNotifier;
+
+    @Value("${order.intake.async-enabled:false}")
+    private boolean enabled;
+
+    @Value("${order.intake.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${order.intake.max-batch-size:500}")
+    private int maxBatchSize;
+
+    @Value("${order.intake.writer-threads:1}")
+    private int writerThreads;
+
+    @Value("${order.intake.sync-queue-threshold:50}")
+    private int syncQueueThreshold;
+
+    @Value("${order.intake.sync-wait-ms:200}")
+    private long syncWaitMs;
+
+    @Value("${order.intake.ticket-retention-ms:600000}")
+    private long ticketRetentionMs;
+
+    private final ConcurrentHashMap<String, PendingOrder> tickets = new ConcurrentHashMap<>();
+    private final List<Thread> writers = new ArrayList<>();
+    private BlockingQueue<PendingOrder> queue;
+    private volatile boolean running;
+    // Held shared while an order is enqueued and exclusively to stop, so nothing is enqueued once stopped
+    private final ReadWriteLock runningLock = new ReentrantReadWriteLock();
+    private volatile long lastEvictionNanos = System.nanoTime();
+
+    public OrderIntakeService(OrderRepository orderRepository, TransactionTemplate transactionTemplate,
+                              ShopSummaryNotifier shopSummaryNotifier) {
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.shopSummaryNotifier = shopSummaryNotifier;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Validates and enqueues an order. When the queue is short the call waits briefly for the write so the
+     * caller usually gets a persisted order back; otherwise it returns a QUEUED ticket immediately.
+     *
+     * @throws IllegalArgumentException     if a required field is missing
+     * @throws OrderIntakeRejectedException if the queue is full or intake is not running
+     */
+    public OrderIntakeStatus submit(Order order) {
+        validate(order);
+        if (order.getStatus() == null) {
+            order.setStatus("PENDING");
+        }
+        if (order.getPaymentStatus() == null) {
+            order.setPaymentStatus("PENDING");
+        }
+
+        PendingOrder pending = new PendingOrder(UUID.randomUUID().toString(), order);
+        int depth;
+        runningLock.readLock().lock();
+        try {
+            if (!running) {
+                throw new OrderIntakeRejectedException("Order intake is not accepting orders");
+            }
+            depth = queue.size();
+            tickets.put(pending.ticketId, pending);
+            if (!queue.offer(pending)) {
+                tickets.remove(pending.ticketId);
+                throw new OrderIntakeRejectedException("Order intake queue is full");
+            }
+        } finally {
+            runningLock.readLock().unlock();
+        }
+
+        if (depth <= syncQueueThreshold) {
+            try {
+                pending.result.get(syncWaitMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                // Reported through the ticket status below
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return toStatus(pending);
+    }
+
+    public Optional<OrderIntakeStatus> getStatus(String ticketId) {
+        return Optional.ofNullable(tickets.get(ticketId)).map(this::toStatus);
+    }
+
+    public int getQueueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    private void validate(Order order) {
+        if (order == null) {
+            throw new IllegalArgumentException("Order cannot be null");
+        }
+        if (order.getUserId() == null || order.getShopId() == null) {
+            throw new IllegalArgumentException("User ID and shop ID are required");
+        }
+        if (order.getTotalAmount() == null || order.getTotalAmount().signum() < 0) {
+            throw new IllegalArgumentException("Total amount is required and must not be negative");
+        }
+        if (order.getShippingAddress() == null || order.getPaymentMethod() == null) {
+            throw new IllegalArgumentException("Shipping address and payment method are required");
+        }
+        if (order.getCreatedAt() == null) {
+            throw new IllegalArgumentException("Created-at timestamp is required");
+        }
+    }
+
+    private OrderIntakeStatus toStatus(PendingOrder pending) {
+        String statusUrl = STATUS_PATH + pending.ticketId;
+        CompletableFuture<Order> result = pending.result;
+        if (!result.isDone()) {
+            return new OrderIntakeStatus(pending.ticketId, OrderIntakeStatus.State.QUEUED, statusUrl, null, null);
+        }
+        if (result.isCompletedExceptionally()) {
+            String error = result.exceptionNow().getMessage();
+            return new OrderIntakeStatus(pending.ticketId, OrderIntakeStatus.State.FAILED, statusUrl, null, error);
+        }
+        return new OrderIntakeStatus(pending.ticketId, OrderIntakeStatus.State.PERSISTED, statusUrl, result.resultNow(), null);
+    }
+
+    private void runWriter() {
+        List<PendingOrder> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatchSize - 1);
+                    persist(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("Order intake writer failed", e);
+                batch.forEach(pending -> pending.result.completeExceptionally(e));
+                batch.clear();
+            }
+            evictExpiredTickets();
+        }
+    }
+
+    private void persist(List<PendingOrder> batch) {
+        List<Order> orders = new ArrayList<>(batch.size());
+        for (PendingOrder pending : batch) {
+            orders.add(pending.order);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> orderRepository.saveAll(orders));
+            for (PendingOrder pending : batch) {
+                shopSummaryNotifier.orderCreated(pending.order);
+                pending.complete();
+            }
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).fail(e);
+                return;
+            }
+            // One bad row must not fail the whole group: retry row by row to isolate it
+            log.warn("Batch insert of {} orders failed, retrying individually: {}", batch.size(), e.getMessage());
+            for (PendingOrder pending : batch) {
+                pending.order.setId(null);
+                persist(List.of(pending));
+            }
+        }
+    }
+
+    private void evictExpiredTickets() {
+        long now = System.nanoTime();
+        if (now - lastEvictionNanos < TimeUnit.SECONDS.toNanos(1)) {
+            return;
+        }
+        lastEvictionNanos = now;
+        long cutoff = now - TimeUnit.MILLISECONDS.toNanos(ticketRetentionMs);
+        tickets.values().removeIf(pending -> pending.completedAtNanos != 0 && pending.completedAtNanos - cutoff < 0);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        for (int i = 0; i < writerThreads; i++) {
+            Thread writer = new Thread(this::runWriter, "order-intake-writer-" + i);
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+        log.info("Asynchronous order intake started (capacity={}, maxBatchSize={}, writers={})",
+                queueCapacity, maxBatchSize, writerThreads);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        runningLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            runningLock.writeLock().unlock();
+        }
+        // Writers keep draining until the queue is empty, so accepted orders are not lost on shutdown
+        for (Thread writer : writers) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        writers.clear();
+        // Only left if the writers did not finish in time; fail them so their callers are not left waiting
+        List<PendingOrder> unwritten = new ArrayList<>();
+        queue.drainTo(unwritten);
+        if (!unwritten.isEmpty()) {
+            log.warn("Order intake stopped with {} orders not written", unwritten.size());
+            OrderIntakeRejectedException stopped =
+                    new OrderIntakeRejectedException("Order intake stopped before the order was written");
+            unwritten.forEach(pending -> pending.fail(stopped));
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private static final class PendingOrder {
+        private final String ticketId;
+        private final Order order;
+        private final CompletableFuture<Order> result = new CompletableFuture<>();
+        private volatile long completedAtNanos;
+
+        private PendingOrder(String ticketId, Order order) {
+            this.ticketId = ticketId;
+            this.order = order;
+        }
+
+        private void complete() {
+            completedAtNanos = System.nanoTime();
+            result.complete(order);
+        }
+
+        private void fail(Throwable error) {
+            completedAtNanos = System.nanoTime();
+            result.completeExceptionally(error);
+        }
+    }
+}
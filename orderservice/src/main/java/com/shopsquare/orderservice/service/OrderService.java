@@ -1,5 +1,7 @@
 package com.shopsquare.orderservice.service;
 
+import com.shopsquare.orderservice.dto.OrderWithItemsPage;
+import com.shopsquare.orderservice.dto.ShopOrderStats;
 import com.shopsquare.orderservice.entity.Order;
 
 import java.util.List;
@@ -16,6 +18,10 @@ public interface OrderService {
 
     List<Order> getOrdersByUserId(Long userId);
 
+    List<ShopOrderStats> getShopStats(List<Long> shopIds, int days);
+
+    OrderWithItemsPage getOrdersWithItems(Long userId, Long shopId, int page, int size);
+
     Order updateOrder(Long id, Order orderDetails);
 
     Order updateOrderStatus(Long id, String status);
@@ -1,19 +1,38 @@
 package com.shopsquare.orderservice.service;
 
+import com.shopsquare.orderservice.dto.OrderWithItems;
+import com.shopsquare.orderservice.dto.OrderWithItemsPage;
+import com.shopsquare.orderservice.dto.ShopOrderStats;
 import com.shopsquare.orderservice.entity.Order;
 import com.shopsquare.orderservice.repository.OrderRepository;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class OrderServiceImpl implements OrderService {
 
     private final OrderRepository orderRepository;
     private final RestTemplate restTemplate;
+    private final ShopSummaryNotifier shopSummaryNotifier;
 
     @Value("${service.cart-service.name:cart-service}")
     private String cartServiceName;
@@ -27,9 +46,20 @@ public class OrderServiceImpl implements OrderService {
     @Value("${service.notification-service.name:notification-service}")
     private String notificationServiceName;
 
-    public OrderServiceImpl(OrderRepository orderRepository, RestTemplate restTemplate) {
+    @Value("${order.with-items.max-page-size:100}")
+    private int maxWithItemsPageSize;
+
+    @Value("${order.shop-stats.max-shop-ids:100}")
+    private int maxStatsShopIds;
+
+    @Value("${order.shop-stats.max-days:90}")
+    private int maxStatsDays;
+
+    public OrderServiceImpl(OrderRepository orderRepository, RestTemplate restTemplate,
+                            ShopSummaryNotifier shopSummaryNotifier) {
         this.orderRepository = orderRepository;
         this.restTemplate = restTemplate;
+        this.shopSummaryNotifier = shopSummaryNotifier;
     }
 
     @Override
@@ -43,7 +73,9 @@ public class OrderServiceImpl implements OrderService {
         }
         
         // Persist order only; UI will create order-items and handle payment/notifications
-        return orderRepository.save(order);
+        Order saved = orderRepository.save(order);
+        shopSummaryNotifier.orderCreated(saved);
+        return saved;
     }
 
     @Override
@@ -83,6 +115,74 @@ public class OrderServiceImpl implements OrderService {
         return orderRepository.findByUserId(userId);
     }
 
+    @Override
+    public List<ShopOrderStats> getShopStats(List<Long> shopIds, int days) {
+        Set<Long> distinctIds = new LinkedHashSet<>(shopIds);
+        if (distinctIds.size() > maxStatsShopIds) {
+            throw new IllegalArgumentException("At most " + maxStatsShopIds + " shop IDs may be requested at once");
+        }
+        if (days <= 0 || days > maxStatsDays) {
+            throw new IllegalArgumentException("days must be between 1 and " + maxStatsDays);
+        }
+        // Every requested shop gets an entry; shops without recent orders report zeros
+        Map<Long, ShopOrderStats> stats = new LinkedHashMap<>();
+        for (Long shopId : distinctIds) {
+            stats.put(shopId, new ShopOrderStats(shopId, 0, BigDecimal.ZERO));
+        }
+        if (!distinctIds.isEmpty()) {
+            LocalDateTime since = LocalDateTime.now().minusDays(days);
+            for (Object[] row : orderRepository.sumByShopIdsSince(distinctIds, since)) {
+                ShopOrderStats shopStats = stats.get(((Number) row[0]).longValue());
+                shopStats.setOrderCount(((Number) row[1]).longValue());
+                if (row[2] != null) {
+                    shopStats.setRevenue((BigDecimal) row[2]);
+                }
+            }
+        }
+        return new ArrayList<>(stats.values());
+    }
+
+    @Override
+    public OrderWithItemsPage getOrdersWithItems(Long userId, Long shopId, int page, int size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("Page must not be negative");
+        }
+        if (size <= 0 || size > maxWithItemsPageSize) {
+            throw new IllegalArgumentException("Size must be between 1 and " + maxWithItemsPageSize);
+        }
+        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
+        Slice<Order> orders;
+        if (userId != null) {
+            orders = orderRepository.findByUserId(userId, pageable);
+        } else if (shopId != null) {
+            orders = orderRepository.findByShopId(shopId, pageable);
+        } else {
+            orders = orderRepository.findBy(pageable);
+        }
+
+        Map<String, List<Object>> itemsByOrderId = fetchItemsByOrderId(orders.getContent());
+        List<OrderWithItems> content = new ArrayList<>(orders.getNumberOfElements());
+        for (Order order : orders) {
+            List<Object> items = itemsByOrderId.getOrDefault(String.valueOf(order.getId()), Collections.emptyList());
+            content.add(new OrderWithItems(order, items));
+        }
+        return new OrderWithItemsPage(content, page, size, orders.hasNext());
+    }
+
+    // One downstream call for the whole page, answered by a single IN query in ORDER-ITEM-SERVICE
+    private Map<String, List<Object>> fetchItemsByOrderId(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        String orderIds = orders.stream()
+                .map(order -> String.valueOf(order.getId()))
+                .collect(Collectors.joining(","));
+        String url = "http://" + orderItemServiceName + "/api/order-items?orderIds=" + orderIds;
+        Map<String, List<Object>> response = restTemplate.exchange(url, HttpMethod.GET, null,
+                new ParameterizedTypeReference<Map<String, List<Object>>>() {}).getBody();
+        return response != null ? response : Collections.emptyMap();
+    }
+
     @Override
     public Order updateOrderStatus(Long id, String status) {
         Optional<Order> optionalOrder = orderRepository.findById(id);
@@ -0,0 +1,89 @@
+package com.shopsquare.orderservice.service;
+
+import com.shopsquare.orderservice.dto.ShopSummaryChange;
+import com.shopsquare.orderservice.entity.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tells SHOP-SERVICE about new orders so its cached shop summaries count them without a recompute.
+ * Orders are merged per shop and sent once per flush interval, off the request path, to every
+ * shop-service instance registered in discovery, since each keeps its own summary cache. Only creations
+ * are reported; edits, deletions and orders ageing out of the recent window are picked up when an
+ * instance recomputes an expired summary, as are changes lost to a send that failed for it.
+ */
+@Component
+public class ShopSummaryNotifier {
+
+    private static final Logger log = LoggerFactory.getLogger(ShopSummaryNotifier.class);
+
+    private final DiscoveryClient discoveryClient;
+    // Not load-balanced: each instance is addressed directly
+    private final RestTemplate restTemplate;
+    private final Map<Long, ShopSummaryChange> pending = new ConcurrentHashMap<>();
+
+    @Value("${service.shop-service.name:shop-service}")
+    private String shopServiceName;
+
+    @Value("${shop-summary.notify.enabled:true}")
+    private boolean enabled;
+
+    public ShopSummaryNotifier(DiscoveryClient discoveryClient, RestTemplateBuilder builder,
+                               ClientHttpRequestFactory downstreamRequestFactory) {
+        this.discoveryClient = discoveryClient;
+        this.restTemplate = builder.requestFactory(() -> downstreamRequestFactory).build();
+    }
+
+    public void orderCreated(Order order) {
+        if (!enabled || order.getShopId() == null) {
+            return;
+        }
+        BigDecimal amount = order.getTotalAmount() == null ? BigDecimal.ZERO : order.getTotalAmount();
+        pending.merge(order.getShopId(), new ShopSummaryChange(order.getShopId(), 1, amount), (current, added) -> {
+            current.setRecentOrderDelta(current.getRecentOrderDelta() + added.getRecentOrderDelta());
+            current.setRecentRevenueDelta(current.getRecentRevenueDelta().add(added.getRecentRevenueDelta()));
+            return current;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${shop-summary.notify.interval-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<ShopSummaryChange> changes = new ArrayList<>();
+        for (Long shopId : pending.keySet()) {
+            ShopSummaryChange change = pending.remove(shopId);
+            if (change != null) {
+                changes.add(change);
+            }
+        }
+        List<ServiceInstance> instances = discoveryClient.getInstances(shopServiceName);
+        if (instances.isEmpty()) {
+            log.debug("Dropped {} shop summary changes: no {} instances", changes.size(), shopServiceName);
+            return;
+        }
+        for (ServiceInstance instance : instances) {
+            try {
+                restTemplate.postForLocation(instance.getUri().resolve("/api/shops/summary/changes"), changes);
+            } catch (RestClientException e) {
+                log.debug("Dropped {} shop summary changes for {}: {}", changes.size(), instance.getUri(), e.getMessage());
+            }
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.shopsquare.productservice.controller;
 
+import com.shopsquare.common.exception.DependencyUnavailableException;
+import com.shopsquare.productservice.dto.ShopProductStats;
+import com.shopsquare.productservice.dto.StockReservationRequest;
+import com.shopsquare.productservice.dto.StockReservationResult;
 import com.shopsquare.productservice.entity.Product;
 import com.shopsquare.productservice.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -7,6 +11,7 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -56,6 +61,32 @@ public class ProductController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    @Operation(summary = "Check that a product exists", description = "Answers 200 or 404 with no body, from a primary-key lookup")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Product exists"),
+            @ApiResponse(responseCode = "404", description = "Product not found")
+    })
+    public ResponseEntity<Void> productExists(
+            @Parameter(description = "ID of the product to check", required = true)
+            @PathVariable Long id) {
+        return productService.productExists(id) ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/exists")
+    @Operation(summary = "Check which products exist", description = "Returns the given IDs that belong to existing products, from one primary-key query")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "IDs of the products that exist"),
+            @ApiResponse(responseCode = "400", description = "Too many IDs in one request")
+    })
+    public ResponseEntity<List<Long>> findExistingProducts(@RequestBody List<Long> ids) {
+        try {
+            return ResponseEntity.ok(productService.findExistingProductIds(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/shop/{shopId}")
     @Operation(summary = "Get products by shop ID", description = "Retrieves all products for a specific shop")
     @ApiResponses(value = {
@@ -67,6 +98,22 @@ public class ProductController {
         return ResponseEntity.ok(productService.getProductsByShopId(shopId));
     }
 
+    @GetMapping("/shop-stats")
+    @Operation(summary = "Get product counts for several shops", description = "Returns the number of products and of out-of-stock products for each requested shop, computed in one grouped query")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "One entry per requested shop"),
+            @ApiResponse(responseCode = "400", description = "Too many shop IDs requested")
+    })
+    public ResponseEntity<List<ShopProductStats>> getShopStats(
+            @Parameter(description = "Comma-separated IDs of the shops", required = true)
+            @RequestParam List<Long> shopIds) {
+        try {
+            return ResponseEntity.ok(productService.getShopStats(shopIds));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Update product", description = "Updates an existing product's information")
     @ApiResponses(value = {
@@ -95,16 +142,48 @@ public class ProductController {
     }
 
     @PostMapping("/{id}/decrement")
-    @Operation(summary = "Decrement product stock", description = "Decrements stock by qty (query param)")
+    @Operation(summary = "Decrement product stock", description = "Decrements stock by qty (query param). With an Idempotency-Key a retried decrement is applied only once")
     public ResponseEntity<Product> decrementStock(
             @PathVariable Long id,
-            @RequestParam(name = "qty", defaultValue = "1") int qty
+            @RequestParam(name = "qty", defaultValue = "1") int qty,
+            @RequestHeader(name = "Idempotency-Key", required = false) String decrementId
     ) {
-        Product product = productService.getProductById(id).orElse(null);
-        if (product == null) return ResponseEntity.notFound().build();
-        int current = product.getStock() == null ? 0 : product.getStock();
-        int next = Math.max(0, current - Math.max(0, qty));
-        product.setStock(next);
-        return ResponseEntity.ok(productService.updateProduct(id, product));
+        return productService.decrementStock(id, qty, decrementId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/stock/reserve")
+    @Operation(summary = "Reserve stock for several products", description = "Decrements stock for a group of products in one transaction; each product is reserved in full or not at all. With an Idempotency-Key the outcome is recorded: a retry with the same key returns it again without taking more stock, and the key can be used to release the reservation")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Per-product reservation results"),
+            @ApiResponse(responseCode = "400", description = "Invalid input data")
+    })
+    public ResponseEntity<List<StockReservationResult>> reserveStock(
+            @Parameter(description = "Caller-chosen key identifying this reservation")
+            @RequestHeader(name = "Idempotency-Key", required = false) String reservationId,
+            @RequestBody List<StockReservationRequest> requests) {
+        try {
+            return ResponseEntity.ok(productService.reserveStock(reservationId, requests));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/stock/reservations/{reservationId}/release")
+    @Operation(summary = "Release a stock reservation", description = "Gives back the stock taken by the reservation made with this Idempotency-Key. Releasing twice has no further effect, and a reservation that arrives after its release takes nothing")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Reservation released")
+    })
+    public ResponseEntity<Void> releaseStock(
+            @Parameter(description = "Idempotency-Key of the reservation", required = true)
+            @PathVariable String reservationId) {
+        productService.releaseStock(reservationId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @ExceptionHandler(DependencyUnavailableException.class)
+    public ResponseEntity<String> handleDependencyUnavailable(DependencyUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
     }
 }
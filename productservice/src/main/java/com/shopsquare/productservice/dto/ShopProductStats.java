@@ -0,0 +1,44 @@
+package com.shopsquare.productservice.dto;
+
+/**
+ * Product counts of one shop, as used by shop-service's shop summaries.
+ */
+public class ShopProductStats {
+
+    private Long shopId;
+    private long productCount;
+    private long outOfStockCount;
+
+    public ShopProductStats() {
+    }
+
+    public ShopProductStats(Long shopId, long productCount, long outOfStockCount) {
+        this.shopId = shopId;
+        this.productCount = productCount;
+        this.outOfStockCount = outOfStockCount;
+    }
+
+    public Long getShopId() {
+        return shopId;
+    }
+
+    public void setShopId(Long shopId) {
+        this.shopId = shopId;
+    }
+
+    public long getProductCount() {
+        return productCount;
+    }
+
+    public void setProductCount(long productCount) {
+        this.productCount = productCount;
+    }
+
+    public long getOutOfStockCount() {
+        return outOfStockCount;
+    }
+
+    public void setOutOfStockCount(long outOfStockCount) {
+        this.outOfStockCount = outOfStockCount;
+    }
+}
@@ -0,0 +1,64 @@
+package com.shopsquare.productservice.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Net change to one shop's summary counters, sent to shop-service after product writes.
+ */
+public class ShopSummaryChange {
+
+    private Long shopId;
+    private long productCountDelta;
+    private long outOfStockDelta;
+    private long recentOrderDelta;
+    private BigDecimal recentRevenueDelta = BigDecimal.ZERO;
+
+    public ShopSummaryChange() {
+    }
+
+    public ShopSummaryChange(Long shopId, long productCountDelta, long outOfStockDelta) {
+        this.shopId = shopId;
+        this.productCountDelta = productCountDelta;
+        this.outOfStockDelta = outOfStockDelta;
+    }
+
+    public Long getShopId() {
+        return shopId;
+    }
+
+    public void setShopId(Long shopId) {
+        this.shopId = shopId;
+    }
+
+    public long getProductCountDelta() {
+        return productCountDelta;
+    }
+
+    public void setProductCountDelta(long productCountDelta) {
+        this.productCountDelta = productCountDelta;
+    }
+
+    public long getOutOfStockDelta() {
+        return outOfStockDelta;
+    }
+
+    public void setOutOfStockDelta(long outOfStockDelta) {
+        this.outOfStockDelta = outOfStockDelta;
+    }
+
+    public long getRecentOrderDelta() {
+        return recentOrderDelta;
+    }
+
+    public void setRecentOrderDelta(long recentOrderDelta) {
+        this.recentOrderDelta = recentOrderDelta;
+    }
+
+    public BigDecimal getRecentRevenueDelta() {
+        return recentRevenueDelta;
+    }
+
+    public void setRecentRevenueDelta(BigDecimal recentRevenueDelta) {
+        this.recentRevenueDelta = recentRevenueDelta;
+    }
+}
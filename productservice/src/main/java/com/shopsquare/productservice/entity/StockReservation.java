@@ -0,0 +1,81 @@
+package com.shopsquare.productservice.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of one keyed stock reservation or decrement, kept so a retried call returns the same
+ * results instead of taking stock twice, and so the caller can release a reservation it could not use.
+ * A release that arrives before its reservation is kept as an empty {@code RELEASED} row, and the late
+ * reservation then takes nothing.
+ */
+@Entity
+@Table(name = "stock_reservations", indexes = {
+        @Index(name = "idx_stock_reservations_created_at", columnList = "created_at")
+})
+public class StockReservation {
+
+    public enum Status {
+        RESERVED,
+        RELEASED
+    }
+
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16, nullable = false)
+    private Status status;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "stock_reservation_lines", joinColumns = @JoinColumn(name = "reservation_id"))
+    private List<StockReservationLine> lines = new ArrayList<>();
+
+    public StockReservation() {
+    }
+
+    public StockReservation(String id, Status status) {
+        this.id = id;
+        this.status = status;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public List<StockReservationLine> getLines() {
+        return lines;
+    }
+
+    public void setLines(List<StockReservationLine> lines) {
+        this.lines = lines;
+    }
+}
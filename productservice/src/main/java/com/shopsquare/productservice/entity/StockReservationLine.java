@@ -0,0 +1,70 @@
+package com.shopsquare.productservice.entity;
+
+import com.shopsquare.productservice.dto.StockReservationResult;
+import jakarta.persistence.*;
+
+/**
+ * One product's result within a {@link StockReservation}.
+ */
+@Embeddable
+public class StockReservationLine {
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "quantity", nullable = false)
+    private int quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 32, nullable = false)
+    private StockReservationResult.Status status;
+
+    @Column(name = "remaining_stock")
+    private Integer remainingStock;
+
+    public StockReservationLine() {
+    }
+
+    public StockReservationLine(StockReservationResult result) {
+        this.productId = result.getProductId();
+        this.quantity = result.getRequested();
+        this.status = result.getStatus();
+        this.remainingStock = result.getRemainingStock();
+    }
+
+    public StockReservationResult toResult() {
+        return new StockReservationResult(productId, quantity, status, remainingStock);
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public StockReservationResult.Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(StockReservationResult.Status status) {
+        this.status = status;
+    }
+
+    public Integer getRemainingStock() {
+        return remainingStock;
+    }
+
+    public void setRemainingStock(Integer remainingStock) {
+        this.remainingStock = remainingStock;
+    }
+}
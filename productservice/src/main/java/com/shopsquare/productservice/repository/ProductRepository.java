@@ -1,12 +1,31 @@
 package com.shopsquare.productservice.repository;
 
 import com.shopsquare.productservice.entity.Product;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByShopId(Long shopId);
+
+    // {shopId, products, products with no stock} per shop
+    @Query("select p.shopId, count(p), sum(case when p.stock is null or p.stock <= 0 then 1 else 0 end) "
+            + "from Product p where p.shopId in :shopIds group by p.shopId")
+    List<Object[]> countByShopIds(@Param("shopIds") Collection<Long> shopIds);
+
+    // Rows are locked in ID order so concurrent reservations cannot deadlock each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Product p where p.id in :ids order by p.id")
+    List<Product> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    // Index-only: reads just the primary key, never the row
+    @Query("select p.id from Product p where p.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
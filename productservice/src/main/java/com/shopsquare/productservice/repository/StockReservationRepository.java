@@ -0,0 +1,23 @@
+package com.shopsquare.productservice.repository;
+
+import com.shopsquare.productservice.entity.StockReservation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from StockReservation r where r.id = :id")
+    Optional<StockReservation> findByIdForUpdate(@Param("id") String id);
+
+    // Loads and removes each row, so their lines are deleted too
+    long deleteByCreatedAtBefore(LocalDateTime cutoff);
+}
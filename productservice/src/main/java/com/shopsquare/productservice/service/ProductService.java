@@ -1,5 +1,8 @@
 package com.shopsquare.productservice.service;
 
+import com.shopsquare.productservice.dto.ShopProductStats;
+import com.shopsquare.productservice.dto.StockReservationRequest;
+import com.shopsquare.productservice.dto.StockReservationResult;
 import com.shopsquare.productservice.entity.Product;
 
 import java.util.List;
@@ -13,9 +16,21 @@ public interface ProductService {
 
     Optional<Product> getProductById(Long id);
 
+    boolean productExists(Long id);
+
+    List<Long> findExistingProductIds(List<Long> ids);
+
     List<Product> getProductsByShopId(Long shopId);
 
+    List<ShopProductStats> getShopStats(List<Long> shopIds);
+
     Product updateProduct(Long id, Product productDetails);
 
     void deleteProduct(Long id);
+
+    List<StockReservationResult> reserveStock(String reservationId, List<StockReservationRequest> requests);
+
+    void releaseStock(String reservationId);
+
+    Optional<Product> decrementStock(Long id, int quantity, String decrementId);
 }
@@ -1,41 +1,70 @@
 package com.shopsquare.productservice.service;
 
+import com.shopsquare.common.resilience.DownstreamCalls;
+import com.shopsquare.productservice.dto.ShopProductStats;
+import com.shopsquare.productservice.dto.StockReservationRequest;
+import com.shopsquare.productservice.dto.StockReservationResult;
 import com.shopsquare.productservice.entity.Product;
+import com.shopsquare.productservice.entity.StockReservation;
+import com.shopsquare.productservice.entity.StockReservationLine;
 import com.shopsquare.productservice.repository.ProductRepository;
+import com.shopsquare.productservice.repository.StockReservationRepository;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class ProductServiceImpl implements ProductService {
 
     private final ProductRepository productRepository;
-    private final RestTemplate restTemplate;
+    private final StockReservationRepository stockReservationRepository;
+    private final DownstreamCalls downstreamCalls;
+    private final ShopSummaryNotifier shopSummaryNotifier;
 
     @Value("${service.shop-service.name:shop-service}")
     private String shopServiceName;
 
-    public ProductServiceImpl(ProductRepository productRepository, RestTemplate restTemplate) {
+    @Value("${product.shop-stats.max-shop-ids:100}")
+    private int maxStatsShopIds;
+
+    @Value("${product.exists.max-ids:1000}")
+    private int maxExistsIds;
+
+    @Value("${product.stock-reservation.retention-hours:168}")
+    private long reservationRetentionHours;
+
+    public ProductServiceImpl(ProductRepository productRepository,
+                              StockReservationRepository stockReservationRepository,
+                              DownstreamCalls downstreamCalls, ShopSummaryNotifier shopSummaryNotifier) {
         this.productRepository = productRepository;
-        this.restTemplate = restTemplate;
+        this.stockReservationRepository = stockReservationRepository;
+        this.downstreamCalls = downstreamCalls;
+        this.shopSummaryNotifier = shopSummaryNotifier;
     }
 
     @Override
     public Product createProduct(Product product) {
         // validate shop exists via SHOP-SERVICE
         if (product.getShopId() != null) {
-            try {
-                String url = "http://" + shopServiceName + "/api/shops/" + product.getShopId();
-                // Try to get shop details - if it throws exception, shop doesn't exist
-                restTemplate.getForObject(url, Object.class);
-            } catch (Exception e) {
+            String url = "http://" + shopServiceName + "/api/shops/" + product.getShopId();
+            if (!downstreamCalls.exists(shopServiceName, url)) {
                 throw new RuntimeException("Shop with ID " + product.getShopId() + " does not exist or is not accessible");
             }
         }
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        shopSummaryNotifier.productChanged(null, null, saved.getShopId(), saved.getStock());
+        return saved;
     }
 
     @Override
@@ -48,27 +77,181 @@ public class ProductServiceImpl implements ProductService {
         return productRepository.findById(id);
     }
 
+    @Override
+    public boolean productExists(Long id) {
+        return productRepository.existsById(id);
+    }
+
+    @Override
+    public List<Long> findExistingProductIds(List<Long> ids) {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.size() > maxExistsIds) {
+            throw new IllegalArgumentException("At most " + maxExistsIds + " product IDs may be checked at once");
+        }
+        return distinctIds.isEmpty() ? List.of() : productRepository.findExistingIds(distinctIds);
+    }
+
     @Override
     public List<Product> getProductsByShopId(Long shopId) {
         return productRepository.findByShopId(shopId);
     }
 
+    @Override
+    public List<ShopProductStats> getShopStats(List<Long> shopIds) {
+        Set<Long> distinctIds = new LinkedHashSet<>(shopIds);
+        if (distinctIds.size() > maxStatsShopIds) {
+            throw new IllegalArgumentException("At most " + maxStatsShopIds + " shop IDs may be requested at once");
+        }
+        // Every requested shop gets an entry; shops without products report zeros
+        Map<Long, ShopProductStats> stats = new LinkedHashMap<>();
+        for (Long shopId : distinctIds) {
+            stats.put(shopId, new ShopProductStats(shopId, 0, 0));
+        }
+        if (!distinctIds.isEmpty()) {
+            for (Object[] row : productRepository.countByShopIds(distinctIds)) {
+                ShopProductStats shopStats = stats.get(((Number) row[0]).longValue());
+                shopStats.setProductCount(((Number) row[1]).longValue());
+                shopStats.setOutOfStockCount(((Number) row[2]).longValue());
+            }
+        }
+        return new ArrayList<>(stats.values());
+    }
+
     @Override
     public Product updateProduct(Long id, Product productDetails) {
         Product product = productRepository.findById(id).orElseThrow(
                 () -> new RuntimeException("Product not found with id " + id)
         );
+        Long shopIdBefore = product.getShopId();
+        Integer stockBefore = product.getStock();
         product.setName(productDetails.getName());
         product.setDescription(productDetails.getDescription());
         product.setPrice(productDetails.getPrice());
         product.setStock(productDetails.getStock());
         product.setImageUrl(productDetails.getImageUrl());
         product.setShopId(productDetails.getShopId());
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        shopSummaryNotifier.productChanged(shopIdBefore, stockBefore, saved.getShopId(), saved.getStock());
+        return saved;
     }
 
     @Override
     public void deleteProduct(Long id) {
-        productRepository.deleteById(id);
+        productRepository.findById(id).ifPresent(product -> {
+            productRepository.delete(product);
+            shopSummaryNotifier.productChanged(product.getShopId(), product.getStock(), null, null);
+        });
+    }
+
+    @Override
+    @Transactional
+    public List<StockReservationResult> reserveStock(String reservationId, List<StockReservationRequest> requests) {
+        // Several lines may name the same product; reserve their combined quantity in one step
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (StockReservationRequest request : requests) {
+            if (request.getProductId() == null || request.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Each reservation needs a product ID and a positive quantity");
+            }
+            quantities.merge(request.getProductId(), request.getQuantity(), Integer::sum);
+        }
+        if (reservationId != null) {
+            // A retry of a reservation already made, or one released before it arrived
+            Optional<StockReservation> existing = stockReservationRepository.findById(reservationId);
+            if (existing.isPresent()) {
+                return existing.get().getLines().stream().map(StockReservationLine::toResult).toList();
+            }
+        }
+
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllByIdForUpdate(quantities.keySet())) {
+            products.put(product.getId(), product);
+        }
+
+        List<StockReservationResult> results = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> {
+            Product product = products.get(productId);
+            if (product == null) {
+                results.add(new StockReservationResult(productId, quantity, StockReservationResult.Status.NOT_FOUND, null));
+                return;
+            }
+            int stock = product.getStock() == null ? 0 : product.getStock();
+            if (stock < quantity) {
+                results.add(new StockReservationResult(productId, quantity, StockReservationResult.Status.INSUFFICIENT_STOCK, stock));
+                return;
+            }
+            // Managed entity: the change is flushed with the other updates as one JDBC batch on commit
+            product.setStock(stock - quantity);
+            shopSummaryNotifier.productChanged(product.getShopId(), stock, product.getShopId(), stock - quantity);
+            results.add(new StockReservationResult(productId, quantity, StockReservationResult.Status.RESERVED, stock - quantity));
+        });
+        if (reservationId != null) {
+            // A concurrent reservation with the same key fails on the primary key and rolls back its stock
+            StockReservation reservation = new StockReservation(reservationId, StockReservation.Status.RESERVED);
+            results.forEach(result -> reservation.getLines().add(new StockReservationLine(result)));
+            stockReservationRepository.save(reservation);
+        }
+        return results;
+    }
+
+    @Override
+    @Transactional
+    public void releaseStock(String reservationId) {
+        Optional<StockReservation> found = stockReservationRepository.findByIdForUpdate(reservationId);
+        if (found.isEmpty()) {
+            // Released before the reservation arrived: it will find this row and take nothing
+            stockReservationRepository.save(new StockReservation(reservationId, StockReservation.Status.RELEASED));
+            return;
+        }
+        StockReservation reservation = found.get();
+        if (reservation.getStatus() == StockReservation.Status.RELEASED) {
+            return;
+        }
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (StockReservationLine line : reservation.getLines()) {
+            if (line.getStatus() == StockReservationResult.Status.RESERVED) {
+                quantities.put(line.getProductId(), line.getQuantity());
+            }
+        }
+        if (!quantities.isEmpty()) {
+            for (Product product : productRepository.findAllByIdForUpdate(quantities.keySet())) {
+                int stock = product.getStock() == null ? 0 : product.getStock();
+                int restored = stock + quantities.get(product.getId());
+                product.setStock(restored);
+                shopSummaryNotifier.productChanged(product.getShopId(), stock, product.getShopId(), restored);
+            }
+        }
+        reservation.setStatus(StockReservation.Status.RELEASED);
+    }
+
+    @Override
+    @Transactional
+    public Optional<Product> decrementStock(Long id, int quantity, String decrementId) {
+        List<Product> found = productRepository.findAllByIdForUpdate(List.of(id));
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        Product product = found.get(0);
+        // A retry of a decrement already applied; the product lock orders it after the first one
+        if (decrementId != null && stockReservationRepository.existsById(decrementId)) {
+            return Optional.of(product);
+        }
+        int stock = product.getStock() == null ? 0 : product.getStock();
+        int next = Math.max(0, stock - Math.max(0, quantity));
+        product.setStock(next);
+        shopSummaryNotifier.productChanged(product.getShopId(), stock, product.getShopId(), next);
+        if (decrementId != null) {
+            StockReservation record = new StockReservation(decrementId, StockReservation.Status.RESERVED);
+            record.getLines().add(new StockReservationLine(
+                    new StockReservationResult(id, quantity, StockReservationResult.Status.RESERVED, next)));
+            stockReservationRepository.save(record);
+        }
+        return Optional.of(product);
+    }
+
+    // Callers retry a reservation or release it within minutes; the records only need to outlive that
+    @Scheduled(fixedDelayString = "${product.stock-reservation.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeStockReservations() {
+        stockReservationRepository.deleteByCreatedAtBefore(LocalDateTime.now().minusHours(reservationRetentionHours));
     }
 }
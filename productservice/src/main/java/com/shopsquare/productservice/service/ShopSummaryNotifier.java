@@ -0,0 +1,121 @@
+package com.shopsquare.productservice.service;
+
+import com.shopsquare.productservice.dto.ShopSummaryChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tells SHOP-SERVICE how product writes changed each shop's product and stock-out counts. Changes are
+ * merged per shop and sent once per flush interval, off the request path, to every shop-service instance
+ * registered in discovery, since each keeps its own summary cache. A send that fails is dropped for that
+ * instance: it recomputes cached summaries when they expire, which bounds the drift.
+ */
+@Component
+public class ShopSummaryNotifier {
+
+    private static final Logger log = LoggerFactory.getLogger(ShopSummaryNotifier.class);
+
+    private final DiscoveryClient discoveryClient;
+    // Not load-balanced: each instance is addressed directly
+    private final RestTemplate restTemplate;
+
+    // shopId -> {productCountDelta, outOfStockDelta}
+    private final Map<Long, long[]> pending = new ConcurrentHashMap<>();
+
+    @Value("${service.shop-service.name:shop-service}")
+    private String shopServiceName;
+
+    @Value("${shop-summary.notify.enabled:true}")
+    private boolean enabled;
+
+    public ShopSummaryNotifier(DiscoveryClient discoveryClient, RestTemplateBuilder builder,
+                               ClientHttpRequestFactory downstreamRequestFactory) {
+        this.discoveryClient = discoveryClient;
+        this.restTemplate = builder.requestFactory(() -> downstreamRequestFactory).build();
+    }
+
+    /**
+     * Records a product write. Pass null shop IDs for the side that does not exist
+     * (before a create, after a delete). Inside a transaction the write is recorded once it commits,
+     * so a rolled-back write is never sent.
+     */
+    public void productChanged(Long shopIdBefore, Integer stockBefore, Long shopIdAfter, Integer stockAfter) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(shopIdBefore, stockBefore, shopIdAfter, stockAfter);
+                }
+            });
+        } else {
+            record(shopIdBefore, stockBefore, shopIdAfter, stockAfter);
+        }
+    }
+
+    private void record(Long shopIdBefore, Integer stockBefore, Long shopIdAfter, Integer stockAfter) {
+        if (shopIdBefore != null) {
+            add(shopIdBefore, -1, isOutOfStock(stockBefore) ? -1 : 0);
+        }
+        if (shopIdAfter != null) {
+            add(shopIdAfter, 1, isOutOfStock(stockAfter) ? 1 : 0);
+        }
+    }
+
+    private static boolean isOutOfStock(Integer stock) {
+        return stock == null || stock <= 0;
+    }
+
+    private void add(Long shopId, long productDelta, long outOfStockDelta) {
+        pending.compute(shopId, (id, deltas) -> {
+            long[] merged = deltas == null ? new long[2] : deltas;
+            merged[0] += productDelta;
+            merged[1] += outOfStockDelta;
+            return merged[0] == 0 && merged[1] == 0 ? null : merged;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${shop-summary.notify.interval-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<ShopSummaryChange> changes = new ArrayList<>();
+        for (Long shopId : pending.keySet()) {
+            long[] deltas = pending.remove(shopId);
+            if (deltas != null) {
+                changes.add(new ShopSummaryChange(shopId, deltas[0], deltas[1]));
+            }
+        }
+        List<ServiceInstance> instances = discoveryClient.getInstances(shopServiceName);
+        if (instances.isEmpty()) {
+            log.debug("Dropped {} shop summary changes: no {} instances", changes.size(), shopServiceName);
+            return;
+        }
+        for (ServiceInstance instance : instances) {
+            try {
+                restTemplate.postForLocation(instance.getUri().resolve("/api/shops/summary/changes"), changes);
+            } catch (RestClientException e) {
+                log.debug("Dropped {} shop summary changes for {}: {}", changes.size(), instance.getUri(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.shopsquare.profileservice.cache;
+
+import com.shopsquare.profileservice.entity.Profile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded LRU cache of profiles by user ID, including users known to have no profile. Writes through
+ * this service invalidate their entries, and a load that overlapped an invalidation is not stored, so
+ * it cannot put back what the write replaced. The {@code profile.cache.ttl-ms} age limit bounds how
+ * long a write made on another replica can go unseen here.
+ */
+@Component
+public class ProfileCache {
+
+    @Value("${profile.cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${profile.cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    // Guarded by this
+    private Map<Integer, Entry> entries;
+    private long invalidations;
+
+    private record Entry(Profile profile, long loadedAt) {}
+
+    /**
+     * The cached lookup for {@code userId}: {@code null} on a miss, an empty Optional if the user is
+     * known to have no profile.
+     */
+    public synchronized Optional<Profile> get(int userId) {
+        Entry entry = entries().get(userId);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.loadedAt() > ttlMs) {
+            entries.remove(userId);
+            return null;
+        }
+        return Optional.ofNullable(entry.profile());
+    }
+
+    /**
+     * Token to take before reading the database and hand back to {@link #put} or {@link #putAll}.
+     */
+    public synchronized long loadToken() {
+        return invalidations;
+    }
+
+    public synchronized void put(int userId, Profile profile, long loadToken) {
+        if (loadToken == invalidations) {
+            entries().put(userId, new Entry(profile, System.currentTimeMillis()));
+        }
+    }
+
+    // A null value records that the user has no profile
+    public synchronized void putAll(Map<Integer, Profile> profiles, long loadToken) {
+        if (loadToken != invalidations) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Map<Integer, Entry> cache = entries();
+        for (Map.Entry<Integer, Profile> profile : profiles.entrySet()) {
+            cache.put(profile.getKey(), new Entry(profile.getValue(), now));
+        }
+    }
+
+    public synchronized void invalidate(int userId) {
+        entries().remove(userId);
+        invalidations++;
+    }
+
+    private Map<Integer, Entry> entries() {
+        if (entries == null) {
+            entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+        return entries;
+    }
+}
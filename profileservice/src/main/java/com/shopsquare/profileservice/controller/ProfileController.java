@@ -1,5 +1,6 @@
 package com.shopsquare.profileservice.controller;
 
+import com.shopsquare.common.exception.DependencyUnavailableException;
 import com.shopsquare.profileservice.entity.Profile;
 import com.shopsquare.profileservice.service.ProfileService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -7,6 +8,7 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -47,6 +49,32 @@ public class ProfileController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/user/{userId}")
+    @Operation(summary = "Get profile by user ID", description = "Retrieves the profile of a specific user, served from a cache when possible")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Profile found successfully"),
+            @ApiResponse(responseCode = "404", description = "User has no profile")
+    })
+    public ResponseEntity<Profile> getProfileByUserId(
+            @Parameter(description = "ID of the user", required = true)
+            @PathVariable int userId) {
+        return profileService.getProfileByUserId(userId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/users")
+    @Operation(summary = "Get profiles of several users", description = "Retrieves the profiles of the given users in request order; users without a profile are skipped")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Profiles found"),
+            @ApiResponse(responseCode = "400", description = "Too many user IDs requested")
+    })
+    public ResponseEntity<List<Profile>> getProfilesByUserIds(
+            @Parameter(description = "Comma-separated IDs of the users", required = true)
+            @RequestParam List<Integer> ids) {
+        return ResponseEntity.ok(profileService.getProfilesByUserIds(ids));
+    }
+
     @GetMapping
     @Operation(summary = "Get all profiles", description = "Retrieves a list of all profiles in the system")
     @ApiResponses(value = {
@@ -82,4 +110,14 @@ public class ProfileController {
         profileService.deleteProfile(id);
         return ResponseEntity.noContent().build();
     }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleInvalidInput(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    @ExceptionHandler(DependencyUnavailableException.class)
+    public ResponseEntity<String> handleDependencyUnavailable(DependencyUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
 }
@@ -5,11 +5,12 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "profiles")
+@Table(name = "profiles", uniqueConstraints = @UniqueConstraint(name = "uk_profiles_user_id", columnNames = "user_id"))
 public class Profile {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "profiles_seq")
+    @SequenceGenerator(name = "profiles_seq", sequenceName = "profiles_seq", allocationSize = 50)
     private int id;
 
     @Column(name = "user_id", nullable = false)
@@ -4,6 +4,15 @@ import com.shopsquare.profileservice.entity.Profile;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface ProfileRepository extends JpaRepository<Profile, Integer> {
+    Optional<Profile> findByUserId(int userId);
+
+    List<Profile> findByUserIdIn(Collection<Integer> userIds);
+
+    boolean existsByUserIdAndIdNot(int userId, int id);
 }
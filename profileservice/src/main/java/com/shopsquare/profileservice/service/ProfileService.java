@@ -10,6 +10,10 @@ public interface ProfileService {
 
     Optional<Profile> getProfileById(int id);
 
+    Optional<Profile> getProfileByUserId(int userId);
+
+    List<Profile> getProfilesByUserIds(List<Integer> userIds);
+
     List<Profile> getAllProfiles();
 
     Profile updateProfile(int id, Profile profile);
@@ -1,38 +1,57 @@
 package com.shopsquare.profileservice.service;
 
+import com.shopsquare.common.resilience.DownstreamCalls;
+import com.shopsquare.profileservice.cache.ProfileCache;
 import com.shopsquare.profileservice.entity.Profile;
 import com.shopsquare.profileservice.repository.ProfileRepository;
 import com.shopsquare.profileservice.service.ProfileService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class ProfileServiceImpl implements ProfileService {
 
     private final ProfileRepository profileRepository;
-    private final RestTemplate restTemplate;
+    private final DownstreamCalls downstreamCalls;
+    private final ProfileCache profileCache;
 
     @Value("${service.user-service.name:user-service}")
     private String userServiceName;
 
-    public ProfileServiceImpl(ProfileRepository profileRepository, RestTemplate restTemplate) {
+    @Value("${profile.batch.max-ids:100}")
+    private int maxBatchIds;
+
+    public ProfileServiceImpl(ProfileRepository profileRepository, DownstreamCalls downstreamCalls,
+                              ProfileCache profileCache) {
         this.profileRepository = profileRepository;
-        this.restTemplate = restTemplate;
+        this.downstreamCalls = downstreamCalls;
+        this.profileCache = profileCache;
     }
 
     @Override
     public Profile createProfile(Profile profile) {
         if (profile.getUserId() > 0) {
             String url = "http://" + userServiceName + "/api/users/" + profile.getUserId();
-            restTemplate.getForObject(url, Object.class);
+            if (!downstreamCalls.exists(userServiceName, url)) {
+                throw new IllegalArgumentException("User with ID " + profile.getUserId() + " does not exist");
+            }
+        }
+        if (profileRepository.existsByUserIdAndIdNot(profile.getUserId(), profile.getId())) {
+            throw new IllegalArgumentException("User with ID " + profile.getUserId() + " already has a profile");
         }
         profile.setCreatedAt(LocalDateTime.now());
-        return profileRepository.save(profile);
+        Profile saved = profileRepository.save(profile);
+        profileCache.invalidate(saved.getUserId());
+        return saved;
     }
 
     @Override
@@ -40,6 +59,56 @@ public class ProfileServiceImpl implements ProfileService {
         return profileRepository.findById(id);
     }
 
+    @Override
+    public Optional<Profile> getProfileByUserId(int userId) {
+        Optional<Profile> cached = profileCache.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        long loadToken = profileCache.loadToken();
+        Optional<Profile> profile = profileRepository.findByUserId(userId);
+        profileCache.put(userId, profile.orElse(null), loadToken);
+        return profile;
+    }
+
+    @Override
+    public List<Profile> getProfilesByUserIds(List<Integer> userIds) {
+        Set<Integer> distinctIds = new LinkedHashSet<>(userIds);
+        if (distinctIds.size() > maxBatchIds) {
+            throw new IllegalArgumentException("At most " + maxBatchIds + " user IDs may be requested at once");
+        }
+        Map<Integer, Profile> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer userId : distinctIds) {
+            Optional<Profile> cached = profileCache.get(userId);
+            if (cached == null) {
+                missing.add(userId);
+            } else {
+                cached.ifPresent(profile -> found.put(userId, profile));
+            }
+        }
+        if (!missing.isEmpty()) {
+            long loadToken = profileCache.loadToken();
+            Map<Integer, Profile> loaded = new HashMap<>();
+            for (Integer userId : missing) {
+                loaded.put(userId, null);
+            }
+            for (Profile profile : profileRepository.findByUserIdIn(missing)) {
+                loaded.put(profile.getUserId(), profile);
+                found.put(profile.getUserId(), profile);
+            }
+            profileCache.putAll(loaded, loadToken);
+        }
+        List<Profile> profiles = new ArrayList<>(found.size());
+        for (Integer userId : distinctIds) {
+            Profile profile = found.get(userId);
+            if (profile != null) {
+                profiles.add(profile);
+            }
+        }
+        return profiles;
+    }
+
     @Override
     public List<Profile> getAllProfiles() {
         return profileRepository.findAll();
@@ -50,17 +119,27 @@ public class ProfileServiceImpl implements ProfileService {
         Optional<Profile> existingProfileOpt = profileRepository.findById(id);
         if (existingProfileOpt.isPresent()) {
             Profile existingProfile = existingProfileOpt.get();
+            if (profileRepository.existsByUserIdAndIdNot(profile.getUserId(), id)) {
+                throw new IllegalArgumentException("User with ID " + profile.getUserId() + " already has a profile");
+            }
+            int previousUserId = existingProfile.getUserId();
             existingProfile.setUserId(profile.getUserId());
             existingProfile.setName(profile.getName());
             existingProfile.setAddress(profile.getAddress());
             existingProfile.setPhone(profile.getPhone());
-            return profileRepository.save(existingProfile);
+            Profile saved = profileRepository.save(existingProfile);
+            profileCache.invalidate(previousUserId);
+            profileCache.invalidate(saved.getUserId());
+            return saved;
         }
         throw new RuntimeException("Profile not found with id: " + id);
     }
 
     @Override
     public void deleteProfile(int id) {
-        profileRepository.deleteById(id);
+        profileRepository.findById(id).ifPresent(profile -> {
+            profileRepository.delete(profile);
+            profileCache.invalidate(profile.getUserId());
+        });
     }
 }
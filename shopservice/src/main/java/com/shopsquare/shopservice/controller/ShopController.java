@@ -1,5 +1,9 @@
 package com.shopsquare.shopservice.controller;
 
+import com.shopsquare.common.exception.DependencyUnavailableException;
+import com.shopsquare.shopservice.dto.NearbyShop;
+import com.shopsquare.shopservice.dto.ShopSummary;
+import com.shopsquare.shopservice.dto.ShopSummaryChange;
 import com.shopsquare.shopservice.entity.Shop;
 import com.shopsquare.shopservice.service.ShopService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -7,6 +11,8 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -42,6 +48,51 @@ public class ShopController {
         return shopService.getAllShops();
     }
 
+    @GetMapping("/nearby")
+    @Operation(summary = "Get shops near a point", description = "Retrieves the shops within a radius of a latitude/longitude, nearest first, from an in-memory location index")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Shops found, each with its distance in meters"),
+            @ApiResponse(responseCode = "400", description = "Point, radius or limit out of range"),
+            @ApiResponse(responseCode = "503", description = "Location index still loading")
+    })
+    public ResponseEntity<List<NearbyShop>> getNearbyShops(
+            @Parameter(description = "Latitude in degrees", required = true)
+            @RequestParam double lat,
+            @Parameter(description = "Longitude in degrees", required = true)
+            @RequestParam double lon,
+            @Parameter(description = "Search radius in meters")
+            @RequestParam(defaultValue = "5000") double radius,
+            @Parameter(description = "Maximum number of shops to return")
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(shopService.getNearbyShops(lat, lon, radius, limit));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @GetMapping("/summary")
+    @Operation(summary = "Get shop summaries", description = "Retrieves several shops with their product count, out-of-stock count and recent order volume, served from a cache")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Summaries of the shops that exist, in request order"),
+            @ApiResponse(responseCode = "400", description = "Too many shop IDs requested")
+    })
+    public List<ShopSummary> getShopSummaries(
+            @Parameter(description = "Comma-separated IDs of the shops", required = true)
+            @RequestParam List<Integer> ids) {
+        return shopService.getShopSummaries(ids);
+    }
+
+    @PostMapping("/summary/changes")
+    @Operation(summary = "Apply shop summary changes", description = "Called by product-service and order-service to adjust cached shop summaries after writes")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Changes applied")
+    })
+    public ResponseEntity<Void> applySummaryChanges(@RequestBody List<ShopSummaryChange> changes) {
+        shopService.applySummaryChanges(changes);
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get shop by ID", description = "Retrieves a specific shop by its ID")
     @ApiResponses(value = {
@@ -54,6 +105,28 @@ public class ShopController {
         return shopService.getShopById(id);
     }
 
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    @Operation(summary = "Check that a shop exists", description = "Answers 200 or 404 with no body, from a primary-key lookup")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Shop exists"),
+            @ApiResponse(responseCode = "404", description = "Shop not found")
+    })
+    public ResponseEntity<Void> shopExists(
+            @Parameter(description = "ID of the shop to check", required = true)
+            @PathVariable Integer id) {
+        return shopService.shopExists(id) ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/exists")
+    @Operation(summary = "Check which shops exist", description = "Returns the given IDs that belong to existing shops, from one primary-key query")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "IDs of the shops that exist"),
+            @ApiResponse(responseCode = "400", description = "Too many IDs in one request")
+    })
+    public ResponseEntity<List<Integer>> findExistingShops(@RequestBody List<Integer> ids) {
+        return ResponseEntity.ok(shopService.findExistingShopIds(ids));
+    }
+
     @GetMapping("/owner/{ownerId}")
     @Operation(summary = "Get shops by owner ID", description = "Retrieves all shops owned by a specific owner")
     @ApiResponses(value = {
@@ -91,5 +164,14 @@ public class ShopController {
         shopService.deleteShop(id);
         return "Shop deleted successfully";
     }
-}
 
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleInvalidInput(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    @ExceptionHandler(DependencyUnavailableException.class)
+    public ResponseEntity<String> handleDependencyUnavailable(DependencyUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
+}
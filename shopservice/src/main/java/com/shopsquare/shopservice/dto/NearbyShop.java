@@ -0,0 +1,39 @@
+package com.shopsquare.shopservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.shopsquare.shopservice.entity.Shop;
+
+/**
+ * A shop found by a nearby search, serialized as the shop's own fields plus its distance from the query point.
+ */
+public class NearbyShop {
+
+    @JsonUnwrapped
+    private Shop shop;
+
+    private double distanceMeters;
+
+    public NearbyShop() {
+    }
+
+    public NearbyShop(Shop shop, double distanceMeters) {
+        this.shop = shop;
+        this.distanceMeters = distanceMeters;
+    }
+
+    public Shop getShop() {
+        return shop;
+    }
+
+    public void setShop(Shop shop) {
+        this.shop = shop;
+    }
+
+    public double getDistanceMeters() {
+        return distanceMeters;
+    }
+
+    public void setDistanceMeters(double distanceMeters) {
+        this.distanceMeters = distanceMeters;
+    }
+}
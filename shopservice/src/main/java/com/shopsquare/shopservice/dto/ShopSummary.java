@@ -0,0 +1,83 @@
+package com.shopsquare.shopservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.shopsquare.shopservice.entity.Shop;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A shop with the counts a shop listing shows next to it. Counts are null when the service that owns
+ * them could not be reached.
+ */
+public class ShopSummary {
+
+    @JsonUnwrapped
+    private Shop shop;
+
+    private Long productCount;
+    private Long outOfStockCount;
+    private Long recentOrderCount;
+    private BigDecimal recentRevenue;
+    private int recentDays;
+    private LocalDateTime computedAt;
+
+    public ShopSummary() {
+    }
+
+    public Shop getShop() {
+        return shop;
+    }
+
+    public void setShop(Shop shop) {
+        this.shop = shop;
+    }
+
+    public Long getProductCount() {
+        return productCount;
+    }
+
+    public void setProductCount(Long productCount) {
+        this.productCount = productCount;
+    }
+
+    public Long getOutOfStockCount() {
+        return outOfStockCount;
+    }
+
+    public void setOutOfStockCount(Long outOfStockCount) {
+        this.outOfStockCount = outOfStockCount;
+    }
+
+    public Long getRecentOrderCount() {
+        return recentOrderCount;
+    }
+
+    public void setRecentOrderCount(Long recentOrderCount) {
+        this.recentOrderCount = recentOrderCount;
+    }
+
+    public BigDecimal getRecentRevenue() {
+        return recentRevenue;
+    }
+
+    public void setRecentRevenue(BigDecimal recentRevenue) {
+        this.recentRevenue = recentRevenue;
+    }
+
+    public int getRecentDays() {
+        return recentDays;
+    }
+
+    public void setRecentDays(int recentDays) {
+        this.recentDays = recentDays;
+    }
+
+    public LocalDateTime getComputedAt() {
+        return computedAt;
+    }
+
+    public void setComputedAt(LocalDateTime computedAt) {
+        this.computedAt = computedAt;
+    }
+}
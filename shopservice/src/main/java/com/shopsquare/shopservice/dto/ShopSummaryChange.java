@@ -0,0 +1,58 @@
+package com.shopsquare.shopservice.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Net change to one shop's summary counters, as reported by product-service and order-service.
+ */
+public class ShopSummaryChange {
+
+    private Integer shopId;
+    private long productCountDelta;
+    private long outOfStockDelta;
+    private long recentOrderDelta;
+    private BigDecimal recentRevenueDelta = BigDecimal.ZERO;
+
+    public ShopSummaryChange() {
+    }
+
+    public Integer getShopId() {
+        return shopId;
+    }
+
+    public void setShopId(Integer shopId) {
+        this.shopId = shopId;
+    }
+
+    public long getProductCountDelta() {
+        return productCountDelta;
+    }
+
+    public void setProductCountDelta(long productCountDelta) {
+        this.productCountDelta = productCountDelta;
+    }
+
+    public long getOutOfStockDelta() {
+        return outOfStockDelta;
+    }
+
+    public void setOutOfStockDelta(long outOfStockDelta) {
+        this.outOfStockDelta = outOfStockDelta;
+    }
+
+    public long getRecentOrderDelta() {
+        return recentOrderDelta;
+    }
+
+    public void setRecentOrderDelta(long recentOrderDelta) {
+        this.recentOrderDelta = recentOrderDelta;
+    }
+
+    public BigDecimal getRecentRevenueDelta() {
+        return recentRevenueDelta;
+    }
+
+    public void setRecentRevenueDelta(BigDecimal recentRevenueDelta) {
+        this.recentRevenueDelta = recentRevenueDelta;
+    }
+}
@@ -5,11 +5,14 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "shops")
+@Table(name = "shops", indexes = {
+        @Index(name = "idx_shops_lat_lon", columnList = "latitude, longitude")
+})
 public class Shop {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "shops_seq")
+    @SequenceGenerator(name = "shops_seq", sequenceName = "shops_seq", allocationSize = 50)
     private Integer id;
 
     @Column(name = "owner_id", nullable = false)
@@ -24,6 +27,13 @@ public class Shop {
     @Column(length = 255)
     private String location;
 
+    // WGS84 degrees; both null when the shop has no map position
+    @Column(name = "latitude")
+    private Double latitude;
+
+    @Column(name = "longitude")
+    private Double longitude;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
@@ -80,6 +90,26 @@ public class Shop {
         this.location = location;
     }
 
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public boolean hasCoordinates() {
+        return latitude != null && longitude != null;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,148 @@
+package com.shopsquare.shopservice.geo;
+
+import com.shopsquare.shopservice.repository.ShopRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Owns the {@link ShopGeoIndex} for this instance. Shop writes made here update it immediately; a
+ * periodic reload from the {@code shops} table picks up writes made through other instances. Writes that
+ * happen while a reload is running are replayed onto the reloaded index before it is swapped in.
+ */
+@Component
+public class NearbyShopSearch {
+
+    private static final Logger log = LoggerFactory.getLogger(NearbyShopSearch.class);
+
+    private final ShopRepository shopRepository;
+
+    @Value("${shop.geo.cell-degrees:0.05}")
+    private double cellDegrees;
+
+    @Value("${shop.geo.max-radius-meters:50000}")
+    private double maxRadiusMeters;
+
+    @Value("${shop.geo.max-limit:100}")
+    private int maxLimit;
+
+    @Value("${shop.geo.load-page-size:50000}")
+    private int loadPageSize;
+
+    private volatile ShopGeoIndex index;
+
+    // Guarded by this
+    private List<Consumer<ShopGeoIndex>> pendingDuringReload;
+
+    public NearbyShopSearch(ShopRepository shopRepository) {
+        this.shopRepository = shopRepository;
+    }
+
+    /**
+     * Shops within {@code radiusMeters} of the point, nearest first.
+     *
+     * @throws IllegalArgumentException if the point, radius or limit is out of range
+     * @throws IllegalStateException    if the index has not finished loading
+     */
+    public List<ShopGeoIndex.Hit> nearby(double latitude, double longitude, double radiusMeters, int limit) {
+        if (!isValid(latitude, longitude)) {
+            throw new IllegalArgumentException("lat must be within [-90, 90] and lon within [-180, 180]");
+        }
+        if (!(radiusMeters > 0 && radiusMeters <= maxRadiusMeters)) {
+            throw new IllegalArgumentException("radius must be within (0, " + maxRadiusMeters + "] meters");
+        }
+        if (limit <= 0 || limit > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+        ShopGeoIndex current = index;
+        if (current == null) {
+            throw new IllegalStateException("Shop location index is still loading");
+        }
+        return current.nearby(latitude, longitude, radiusMeters, limit);
+    }
+
+    public static boolean isValid(double latitude, double longitude) {
+        return latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180;
+    }
+
+    /**
+     * Records a created or updated shop. Previous coordinates are those stored before the write, if any.
+     */
+    public void shopSaved(int shopId, Double previousLatitude, Double previousLongitude,
+                          Double latitude, Double longitude) {
+        if (latitude != null && longitude != null) {
+            apply(index -> index.put(shopId, previousLatitude, previousLongitude, latitude, longitude));
+        } else if (previousLatitude != null && previousLongitude != null) {
+            apply(index -> index.remove(shopId, previousLatitude, previousLongitude));
+        }
+    }
+
+    public void shopDeleted(int shopId, Double latitude, Double longitude) {
+        if (latitude != null && longitude != null) {
+            apply(index -> index.remove(shopId, latitude, longitude));
+        }
+    }
+
+    private synchronized void apply(Consumer<ShopGeoIndex> change) {
+        if (index != null) {
+            change.accept(index);
+        }
+        if (pendingDuringReload != null) {
+            pendingDuringReload.add(change);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${shop.geo.reload-interval-ms:300000}",
+            initialDelayString = "${shop.geo.reload-interval-ms:300000}")
+    public void reload() {
+        synchronized (this) {
+            if (pendingDuringReload != null) {
+                return;
+            }
+            pendingDuringReload = new ArrayList<>();
+        }
+        long start = System.currentTimeMillis();
+        try {
+            ShopGeoIndex loaded = new ShopGeoIndex(cellDegrees);
+            int afterId = 0;
+            List<Object[]> rows;
+            do {
+                rows = shopRepository.findCoordinatesAfter(afterId, PageRequest.of(0, loadPageSize));
+                for (Object[] row : rows) {
+                    afterId = ((Number) row[0]).intValue();
+                    double latitude = ((Number) row[1]).doubleValue();
+                    double longitude = ((Number) row[2]).doubleValue();
+                    if (isValid(latitude, longitude)) {
+                        loaded.add(afterId, latitude, longitude);
+                    }
+                }
+            } while (rows.size() == loadPageSize);
+
+            synchronized (this) {
+                pendingDuringReload.forEach(change -> change.accept(loaded));
+                index = loaded;
+            }
+            log.debug("Shop location index loaded: {} shops in {} ms", loaded.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.warn("Shop location index reload failed", e);
+        } finally {
+            synchronized (this) {
+                pendingDuringReload = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.shopsquare.shopservice.geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Fixed-grid spatial index of shop positions. The globe is cut into square cells of
+ * {@code cellDegrees}; each non-empty cell stores its shops' IDs and coordinates in parallel primitive
+ * arrays. A radius query visits only the cells overlapping the query's bounding box and measures
+ * great-circle distance to each candidate. Reads run concurrently; writes take an exclusive lock.
+ */
+public class ShopGeoIndex {
+
+    static final double EARTH_RADIUS_METERS = 6_371_008.8;
+    private static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS_METERS / 180;
+
+    private final double cellDegrees;
+    private final int rows;
+    private final int columns;
+    private final Map<Long, Cell> cells = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int size;
+
+    public ShopGeoIndex(double cellDegrees) {
+        if (!(cellDegrees > 0 && cellDegrees <= 90)) {
+            throw new IllegalArgumentException("cellDegrees must be in (0, 90]");
+        }
+        this.cellDegrees = cellDegrees;
+        this.rows = (int) Math.ceil(180 / cellDegrees);
+        this.columns = (int) Math.ceil(360 / cellDegrees);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the shop at the given position, or moves it there from {@code previousLatitude/Longitude}.
+     * Pass null previous coordinates when the shop was not indexed before. Safe to repeat.
+     */
+    public void put(int shopId, Double previousLatitude, Double previousLongitude, double latitude, double longitude) {
+        lock.writeLock().lock();
+        try {
+            if (previousLatitude != null && previousLongitude != null) {
+                removeLocked(shopId, previousLatitude, previousLongitude);
+            }
+            long key = cellKey(latitude, longitude);
+            Cell cell = cells.computeIfAbsent(key, k -> new Cell());
+            if (cell.upsert(shopId, latitude, longitude)) {
+                size++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a shop known not to be indexed yet, skipping the duplicate check; used for bulk loads.
+     */
+    public void add(int shopId, double latitude, double longitude) {
+        lock.writeLock().lock();
+        try {
+            cells.computeIfAbsent(cellKey(latitude, longitude), k -> new Cell()).append(shopId, latitude, longitude);
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int shopId, double latitude, double longitude) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(shopId, latitude, longitude);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} shops within {@code radiusMeters} of the point, nearest first.
+     */
+    public List<Hit> nearby(double latitude, double longitude, double radiusMeters, int limit) {
+        double latDelta = radiusMeters / METERS_PER_DEGREE;
+        int minRow = row(Math.max(-90, latitude - latDelta));
+        int maxRow = row(Math.min(90, latitude + latDelta));
+
+        // Longitude degrees shrink with latitude; near the poles the box spans every column
+        double widestLatitude = Math.min(90, Math.abs(latitude) + latDelta);
+        double cos = Math.cos(Math.toRadians(widestLatitude));
+        double lonDelta = cos <= 1e-9 ? 180 : radiusMeters / (METERS_PER_DEGREE * cos);
+        int columnSpan = lonDelta >= 180 ? columns : (int) Math.ceil(2 * lonDelta / cellDegrees) + 1;
+        int firstColumn = columnSpan >= columns ? 0 : column(longitude - lonDelta);
+        columnSpan = Math.min(columnSpan, columns);
+
+        PriorityQueue<Hit> nearest = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(Hit::distanceMeters).reversed());
+        double lat1 = Math.toRadians(latitude);
+        double lon1 = Math.toRadians(longitude);
+        lock.readLock().lock();
+        try {
+            for (int r = minRow; r <= maxRow; r++) {
+                for (int c = 0; c < columnSpan; c++) {
+                    Cell cell = cells.get((long) r * columns + Math.floorMod(firstColumn + c, columns));
+                    if (cell != null) {
+                        cell.collect(lat1, lon1, radiusMeters, limit, nearest);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Hit[] hits = nearest.toArray(new Hit[0]);
+        Arrays.sort(hits, Comparator.comparingDouble(Hit::distanceMeters));
+        return new ArrayList<>(Arrays.asList(hits));
+    }
+
+    private void removeLocked(int shopId, double latitude, double longitude) {
+        long key = cellKey(latitude, longitude);
+        Cell cell = cells.get(key);
+        if (cell != null && cell.remove(shopId)) {
+            size--;
+            if (cell.size == 0) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    private long cellKey(double latitude, double longitude) {
+        return (long) row(latitude) * columns + column(longitude);
+    }
+
+    private int row(double latitude) {
+        return Math.min(rows - 1, (int) Math.floor((latitude + 90) / cellDegrees));
+    }
+
+    private int column(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellDegrees), columns);
+    }
+
+    static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+        double sinLat = Math.sin((lat2 - lat1) / 2);
+        double sinLon = Math.sin((lon2 - lon1) / 2);
+        double a = sinLat * sinLat + Math.cos(lat1) * Math.cos(lat2) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    public record Hit(int shopId, double distanceMeters) {
+    }
+
+    // Coordinates kept in radians so queries skip the conversion
+    private static final class Cell {
+        private int size;
+        private int[] ids = new int[4];
+        private double[] lats = new double[4];
+        private double[] lons = new double[4];
+
+        boolean upsert(int shopId, double latitude, double longitude) {
+            int index = indexOf(shopId);
+            if (index < 0) {
+                append(shopId, latitude, longitude);
+                return true;
+            }
+            lats[index] = Math.toRadians(latitude);
+            lons[index] = Math.toRadians(longitude);
+            return false;
+        }
+
+        void append(int shopId, double latitude, double longitude) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                lats = Arrays.copyOf(lats, size * 2);
+                lons = Arrays.copyOf(lons, size * 2);
+            }
+            ids[size] = shopId;
+            lats[size] = Math.toRadians(latitude);
+            lons[size] = Math.toRadians(longitude);
+            size++;
+        }
+
+        boolean remove(int shopId) {
+            int index = indexOf(shopId);
+            if (index < 0) {
+                return false;
+            }
+            size--;
+            ids[index] = ids[size];
+            lats[index] = lats[size];
+            lons[index] = lons[size];
+            return true;
+        }
+
+        void collect(double lat, double lon, double radiusMeters, int limit, PriorityQueue<Hit> nearest) {
+            for (int i = 0; i < size; i++) {
+                double distance = haversineMeters(lat, lon, lats[i], lons[i]);
+                if (distance > radiusMeters) {
+                    continue;
+                }
+                if (nearest.size() < limit) {
+                    nearest.add(new Hit(ids[i], distance));
+                } else if (distance < nearest.peek().distanceMeters()) {
+                    nearest.poll();
+                    nearest.add(new Hit(ids[i], distance));
+                }
+            }
+        }
+
+        private int indexOf(int shopId) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == shopId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -1,12 +1,25 @@
 package com.shopsquare.shopservice.repository;
 
 import com.shopsquare.shopservice.entity.Shop;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ShopRepository extends JpaRepository<Shop, Integer> {
     List<Shop> findByOwnerId(Integer ownerId);
+
+    // Keyset scan of {id, latitude, longitude} for shops that have a map position
+    @Query("select s.id, s.latitude, s.longitude from Shop s "
+            + "where s.id > :afterId and s.latitude is not null and s.longitude is not null order by s.id")
+    List<Object[]> findCoordinatesAfter(@Param("afterId") Integer afterId, Pageable pageable);
+
+    // Index-only: reads just the primary key, never the row
+    @Query("select s.id from Shop s where s.id in :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
 }
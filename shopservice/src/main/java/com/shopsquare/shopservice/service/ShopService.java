@@ -1,5 +1,8 @@
 package com.shopsquare.shopservice.service;
 
+import com.shopsquare.shopservice.dto.NearbyShop;
+import com.shopsquare.shopservice.dto.ShopSummary;
+import com.shopsquare.shopservice.dto.ShopSummaryChange;
 import com.shopsquare.shopservice.entity.Shop;
 
 import java.util.List;
@@ -12,8 +15,18 @@ public interface ShopService {
 
     Optional<Shop> getShopById(Integer id);
 
+    boolean shopExists(Integer id);
+
+    List<Integer> findExistingShopIds(List<Integer> ids);
+
     List<Shop> getShopsByOwnerId(Integer ownerId);
 
+    List<NearbyShop> getNearbyShops(double latitude, double longitude, double radiusMeters, int limit);
+
+    List<ShopSummary> getShopSummaries(List<Integer> ids);
+
+    void applySummaryChanges(List<ShopSummaryChange> changes);
+
     Shop updateShop(Integer id, Shop shop);
 
     void deleteShop(Integer id);
@@ -1,36 +1,60 @@
 package com.shopsquare.shopservice.service;
 
+import com.shopsquare.common.resilience.DownstreamCalls;
+import com.shopsquare.shopservice.dto.NearbyShop;
+import com.shopsquare.shopservice.dto.ShopSummary;
+import com.shopsquare.shopservice.dto.ShopSummaryChange;
 import com.shopsquare.shopservice.entity.Shop;
+import com.shopsquare.shopservice.geo.NearbyShopSearch;
+import com.shopsquare.shopservice.geo.ShopGeoIndex;
 import com.shopsquare.shopservice.repository.ShopRepository;
+import com.shopsquare.shopservice.summary.ShopSummaryCache;
 import com.shopsquare.shopservice.service.ShopService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ShopServiceImpl implements ShopService {
 
     private final ShopRepository shopRepository;
-    private final RestTemplate restTemplate;
+    private final DownstreamCalls downstreamCalls;
+    private final NearbyShopSearch nearbyShopSearch;
+    private final ShopSummaryCache shopSummaryCache;
 
     @Value("${service.user-service.name:user-service}")
     private String userServiceName;
 
-    public ShopServiceImpl(ShopRepository shopRepository, RestTemplate restTemplate) {
+    @Value("${shop.exists.max-ids:1000}")
+    private int maxExistsIds;
+
+    public ShopServiceImpl(ShopRepository shopRepository, DownstreamCalls downstreamCalls,
+                           NearbyShopSearch nearbyShopSearch, ShopSummaryCache shopSummaryCache) {
         this.shopRepository = shopRepository;
-        this.restTemplate = restTemplate;
+        this.downstreamCalls = downstreamCalls;
+        this.nearbyShopSearch = nearbyShopSearch;
+        this.shopSummaryCache = shopSummaryCache;
     }
 
     @Override
     public Shop createShop(Shop shop) {
+        validateCoordinates(shop);
         if (shop.getOwnerId() != null) {
             String url = "http://" + userServiceName + "/api/users/" + shop.getOwnerId();
-            restTemplate.getForObject(url, Object.class);
+            if (!downstreamCalls.exists(userServiceName, url)) {
+                throw new IllegalArgumentException("Owner with ID " + shop.getOwnerId() + " does not exist");
+            }
         }
-        return shopRepository.save(shop);
+        Shop saved = shopRepository.save(shop);
+        nearbyShopSearch.shopSaved(saved.getId(), null, null, saved.getLatitude(), saved.getLongitude());
+        return saved;
     }
 
     @Override
@@ -43,24 +67,86 @@ public class ShopServiceImpl implements ShopService {
         return shopRepository.findById(id);
     }
 
+    @Override
+    public boolean shopExists(Integer id) {
+        return shopRepository.existsById(id);
+    }
+
+    @Override
+    public List<Integer> findExistingShopIds(List<Integer> ids) {
+        LinkedHashSet<Integer> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.size() > maxExistsIds) {
+            throw new IllegalArgumentException("At most " + maxExistsIds + " shop IDs may be checked at once");
+        }
+        return distinctIds.isEmpty() ? List.of() : shopRepository.findExistingIds(distinctIds);
+    }
+
     @Override
     public List<Shop> getShopsByOwnerId(Integer ownerId) {
         return shopRepository.findByOwnerId(ownerId);
     }
 
+    @Override
+    public List<NearbyShop> getNearbyShops(double latitude, double longitude, double radiusMeters, int limit) {
+        List<ShopGeoIndex.Hit> hits = nearbyShopSearch.nearby(latitude, longitude, radiusMeters, limit);
+        Map<Integer, Shop> shops = shopRepository.findAllById(hits.stream().map(ShopGeoIndex.Hit::shopId).toList())
+                .stream()
+                .collect(Collectors.toMap(Shop::getId, Function.identity()));
+        List<NearbyShop> nearby = new ArrayList<>(hits.size());
+        for (ShopGeoIndex.Hit hit : hits) {
+            Shop shop = shops.get(hit.shopId());
+            if (shop != null) {
+                nearby.add(new NearbyShop(shop, Math.round(hit.distanceMeters() * 10) / 10.0));
+            }
+        }
+        return nearby;
+    }
+
+    @Override
+    public List<ShopSummary> getShopSummaries(List<Integer> ids) {
+        return shopSummaryCache.getSummaries(ids);
+    }
+
+    @Override
+    public void applySummaryChanges(List<ShopSummaryChange> changes) {
+        shopSummaryCache.applyChanges(changes);
+    }
+
     @Override
     public Shop updateShop(Integer id, Shop shop) {
+        validateCoordinates(shop);
         return shopRepository.findById(id).map(existingShop -> {
+            Double previousLatitude = existingShop.getLatitude();
+            Double previousLongitude = existingShop.getLongitude();
             existingShop.setOwnerId(shop.getOwnerId());
             existingShop.setName(shop.getName());
             existingShop.setDescription(shop.getDescription());
             existingShop.setLocation(shop.getLocation());
-            return shopRepository.save(existingShop);
+            existingShop.setLatitude(shop.getLatitude());
+            existingShop.setLongitude(shop.getLongitude());
+            Shop saved = shopRepository.save(existingShop);
+            nearbyShopSearch.shopSaved(saved.getId(), previousLatitude, previousLongitude,
+                    saved.getLatitude(), saved.getLongitude());
+            shopSummaryCache.shopUpdated(saved);
+            return saved;
         }).orElseThrow(() -> new RuntimeException("Shop not found"));
     }
 
     @Override
     public void deleteShop(Integer id) {
-        shopRepository.deleteById(id);
+        shopRepository.findById(id).ifPresent(shop -> {
+            shopRepository.delete(shop);
+            nearbyShopSearch.shopDeleted(shop.getId(), shop.getLatitude(), shop.getLongitude());
+            shopSummaryCache.shopDeleted(shop.getId());
+        });
+    }
+
+    private void validateCoordinates(Shop shop) {
+        if ((shop.getLatitude() == null) != (shop.getLongitude() == null)) {
+            throw new IllegalArgumentException("latitude and longitude must be given together");
+        }
+        if (shop.hasCoordinates() && !NearbyShopSearch.isValid(shop.getLatitude(), shop.getLongitude())) {
+            throw new IllegalArgumentException("latitude must be within [-90, 90] and longitude within [-180, 180]");
+        }
     }
 }
@@ -0,0 +1,240 @@
+package com.shopsquare.shopservice.summary;
+
+import com.shopsquare.shopservice.dto.ShopSummary;
+import com.shopsquare.shopservice.dto.ShopSummaryChange;
+import com.shopsquare.shopservice.entity.Shop;
+import com.shopsquare.shopservice.repository.ShopRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded LRU cache of shop summaries. A miss is filled for all missing shops at once: one query here,
+ * one grouped call to PRODUCT-SERVICE and one to ORDER-SERVICE. Cached entries are kept current by the
+ * change notifications those services send, and recomputed after {@code shop.summary.ttl-ms} so that
+ * lost notifications and orders leaving the recent window cannot skew them for long.
+ */
+@Component
+public class ShopSummaryCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ShopSummaryCache.class);
+
+    private final ShopRepository shopRepository;
+    private final RestTemplate restTemplate;
+
+    @Value("${service.product-service.name:product-service}")
+    private String productServiceName;
+
+    @Value("${service.order-service.name:order-service}")
+    private String orderServiceName;
+
+    @Value("${shop.summary.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${shop.summary.ttl-ms:300000}")
+    private long ttlMs;
+
+    @Value("${shop.summary.recent-days:7}")
+    private int recentDays;
+
+    @Value("${shop.summary.max-ids:100}")
+    private int maxIds;
+
+    // Guarded by this
+    private Map<Integer, Entry> entries;
+
+    public ShopSummaryCache(ShopRepository shopRepository, RestTemplate restTemplate) {
+        this.shopRepository = shopRepository;
+        this.restTemplate = restTemplate;
+    }
+
+    /**
+     * Summaries of the given shops in request order; IDs of shops that do not exist are skipped.
+     */
+    public List<ShopSummary> getSummaries(List<Integer> shopIds) {
+        Set<Integer> distinctIds = new LinkedHashSet<>(shopIds);
+        if (distinctIds.size() > maxIds) {
+            throw new IllegalArgumentException("At most " + maxIds + " shop IDs may be requested at once");
+        }
+        Map<Integer, ShopSummary> summaries = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            for (Integer shopId : distinctIds) {
+                Entry entry = entries().get(shopId);
+                if (entry != null && now - entry.loadedAt < ttlMs) {
+                    summaries.put(shopId, entry.toSummary(recentDays));
+                } else {
+                    missing.add(shopId);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            summaries.putAll(load(missing));
+        }
+
+        List<ShopSummary> ordered = new ArrayList<>(summaries.size());
+        for (Integer shopId : distinctIds) {
+            ShopSummary summary = summaries.get(shopId);
+            if (summary != null) {
+                ordered.add(summary);
+            }
+        }
+        return ordered;
+    }
+
+    public synchronized void applyChanges(List<ShopSummaryChange> changes) {
+        for (ShopSummaryChange change : changes) {
+            Entry entry = change.getShopId() == null ? null : entries().get(change.getShopId());
+            if (entry == null) {
+                continue;
+            }
+            entry.productCount = addTo(entry.productCount, change.getProductCountDelta());
+            entry.outOfStockCount = addTo(entry.outOfStockCount, change.getOutOfStockDelta());
+            entry.recentOrderCount = addTo(entry.recentOrderCount, change.getRecentOrderDelta());
+            if (entry.recentRevenue != null && change.getRecentRevenueDelta() != null) {
+                entry.recentRevenue = entry.recentRevenue.add(change.getRecentRevenueDelta());
+            }
+        }
+    }
+
+    public synchronized void shopUpdated(Shop shop) {
+        Entry entry = entries().get(shop.getId());
+        if (entry != null) {
+            entry.shop = shop;
+        }
+    }
+
+    public synchronized void shopDeleted(Integer shopId) {
+        entries().remove(shopId);
+    }
+
+    private Map<Integer, ShopSummary> load(Collection<Integer> shopIds) {
+        Map<Integer, Entry> loaded = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        for (Shop shop : shopRepository.findAllById(shopIds)) {
+            loaded.put(shop.getId(), new Entry(shop, now));
+        }
+        Map<Integer, ShopSummary> summaries = new HashMap<>();
+        if (loaded.isEmpty()) {
+            return summaries;
+        }
+        String ids = loaded.keySet().stream().map(String::valueOf).collect(Collectors.joining(","));
+
+        List<Map<String, Object>> productStats = fetch(
+                "http://" + productServiceName + "/api/products/shop-stats?shopIds=" + ids);
+        if (productStats != null) {
+            for (Map<String, Object> stats : productStats) {
+                Entry entry = loaded.get(intValue(stats.get("shopId")));
+                if (entry != null) {
+                    entry.productCount = longValue(stats.get("productCount"));
+                    entry.outOfStockCount = longValue(stats.get("outOfStockCount"));
+                }
+            }
+        }
+        List<Map<String, Object>> orderStats = fetch(
+                "http://" + orderServiceName + "/api/orders/shop-stats?days=" + recentDays + "&shopIds=" + ids);
+        if (orderStats != null) {
+            for (Map<String, Object> stats : orderStats) {
+                Entry entry = loaded.get(intValue(stats.get("shopId")));
+                if (entry != null) {
+                    entry.recentOrderCount = longValue(stats.get("orderCount"));
+                    Object revenue = stats.get("revenue");
+                    entry.recentRevenue = revenue == null ? BigDecimal.ZERO : new BigDecimal(revenue.toString());
+                }
+            }
+        }
+
+        // Only complete summaries are cached; partial ones are served once and retried on the next request
+        boolean complete = productStats != null && orderStats != null;
+        synchronized (this) {
+            loaded.forEach((shopId, entry) -> {
+                if (complete) {
+                    entries().put(shopId, entry);
+                }
+                summaries.put(shopId, entry.toSummary(recentDays));
+            });
+        }
+        return summaries;
+    }
+
+    private List<Map<String, Object>> fetch(String url) {
+        try {
+            return restTemplate.exchange(url, HttpMethod.GET, null,
+                    new ParameterizedTypeReference<List<Map<String, Object>>>() {}).getBody();
+        } catch (RestClientException e) {
+            log.warn("Shop summary source unavailable ({}): {}", url, e.getMessage());
+            return null;
+        }
+    }
+
+    private Map<Integer, Entry> entries() {
+        if (entries == null) {
+            int capacity = maxEntries;
+            entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+        return entries;
+    }
+
+    private static Long addTo(Long value, long delta) {
+        return value == null ? null : Math.max(0, value + delta);
+    }
+
+    private static Integer intValue(Object value) {
+        return value instanceof Number number ? number.intValue() : null;
+    }
+
+    private static Long longValue(Object value) {
+        return value instanceof Number number ? number.longValue() : null;
+    }
+
+    private static final class Entry {
+        private Shop shop;
+        private Long productCount;
+        private Long outOfStockCount;
+        private Long recentOrderCount;
+        private BigDecimal recentRevenue;
+        private final long loadedAt;
+
+        Entry(Shop shop, long loadedAt) {
+            this.shop = shop;
+            this.loadedAt = loadedAt;
+        }
+
+        ShopSummary toSummary(int recentDays) {
+            ShopSummary summary = new ShopSummary();
+            summary.setShop(shop);
+            summary.setProductCount(productCount);
+            summary.setOutOfStockCount(outOfStockCount);
+            summary.setRecentOrderCount(recentOrderCount);
+            summary.setRecentRevenue(recentRevenue);
+            summary.setRecentDays(recentDays);
+            summary.setComputedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(loadedAt), ZoneId.systemDefault()));
+            return summary;
+        }
+    }
+}
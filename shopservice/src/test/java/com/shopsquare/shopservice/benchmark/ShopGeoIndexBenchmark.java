@@ -0,0 +1,77 @@
+package com.shopsquare.shopservice.benchmark;
+
+import com.shopsquare.shopservice.geo.ShopGeoIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Loads one million shops into a {@link ShopGeoIndex} and times nearby queries. Most shops cluster
+ * around 300 city centres, the rest are spread over the inhabited latitudes, and queries are aimed at
+ * the cities, where cells are densest.
+ *
+ * <pre>mvn test -Dtest=ShopGeoIndexBenchmark -Dbenchmark=true -Dsurefire.failIfNoSpecifiedTests=false</pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ShopGeoIndexBenchmark {
+
+    private static final int SHOPS = 1_000_000;
+    private static final int CITIES = 300;
+    private static final double CELL_DEGREES = 0.05;
+    private static final int QUERIES = 100_000;
+
+    @Test
+    void nearbyQueries() {
+        SplittableRandom random = new SplittableRandom(7);
+        double[][] cities = new double[CITIES][];
+        for (int i = 0; i < CITIES; i++) {
+            cities[i] = new double[]{-45 + random.nextDouble() * 105, -180 + random.nextDouble() * 360};
+        }
+
+        ShopGeoIndex index = new ShopGeoIndex(CELL_DEGREES);
+        long loadStart = System.nanoTime();
+        for (int id = 1; id <= SHOPS; id++) {
+            if (random.nextDouble() < 0.8) {
+                double[] city = cities[random.nextInt(CITIES)];
+                index.add(id, clamp(city[0] + gaussian(random) * 0.15, 90), clamp(city[1] + gaussian(random) * 0.15, 180));
+            } else {
+                index.add(id, -45 + random.nextDouble() * 105, -180 + random.nextDouble() * 360);
+            }
+        }
+        System.out.printf("load:  %,d shops in %,d ms%n", index.size(), (System.nanoTime() - loadStart) / 1_000_000);
+
+        for (double radius : new double[]{1_000, 5_000, 20_000, 50_000}) {
+            for (int i = 0; i < 20_000; i++) {
+                query(index, cities, random, radius);
+            }
+            long[] nanos = new long[QUERIES];
+            long found = 0;
+            for (int i = 0; i < QUERIES; i++) {
+                long start = System.nanoTime();
+                found += query(index, cities, random, radius);
+                nanos[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(nanos);
+            System.out.printf("radius %,6.0f m, limit 20: p50 %,.0f us, p99 %,.0f us, max %,.0f us, %.1f results/query%n",
+                    radius, nanos[QUERIES / 2] / 1e3, nanos[QUERIES * 99 / 100] / 1e3, nanos[QUERIES - 1] / 1e3,
+                    (double) found / QUERIES);
+        }
+    }
+
+    private static int query(ShopGeoIndex index, double[][] cities, SplittableRandom random, double radius) {
+        double[] city = cities[random.nextInt(CITIES)];
+        double lat = clamp(city[0] + gaussian(random) * 0.1, 90);
+        double lon = clamp(city[1] + gaussian(random) * 0.1, 180);
+        return index.nearby(lat, lon, radius, 20).size();
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private static double clamp(double value, double bound) {
+        return Math.max(-bound, Math.min(bound, value));
+    }
+}
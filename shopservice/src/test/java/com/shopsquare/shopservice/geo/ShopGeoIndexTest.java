@@ -0,0 +1,146 @@
+package com.shopsquare.shopservice.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShopGeoIndexTest {
+
+    @Test
+    void rejectsCellSizesOutsideTheGlobe() {
+        assertThrows(IllegalArgumentException.class, () -> new ShopGeoIndex(0));
+        assertThrows(IllegalArgumentException.class, () -> new ShopGeoIndex(91));
+        assertThrows(IllegalArgumentException.class, () -> new ShopGeoIndex(Double.NaN));
+    }
+
+    @Test
+    void returnsShopsWithinTheRadiusNearestFirst() {
+        ShopGeoIndex index = new ShopGeoIndex(0.1);
+        index.add(1, 12.9716, 77.5946);
+        index.add(2, 12.9800, 77.5946);
+        index.add(3, 12.9716, 77.6100);
+        index.add(4, 13.5, 77.5946);
+
+        List<ShopGeoIndex.Hit> hits = index.nearby(12.9716, 77.5946, 5_000, 10);
+
+        assertEquals(List.of(1, 2, 3), shopIds(hits));
+        assertEquals(0, hits.get(0).distanceMeters(), 1e-6);
+        assertEquals(934, hits.get(1).distanceMeters(), 1);
+    }
+
+    @Test
+    void limitKeepsTheNearest() {
+        ShopGeoIndex index = new ShopGeoIndex(0.05);
+        for (int i = 1; i <= 20; i++) {
+            index.add(i, 10 + i * 0.001, 20);
+        }
+
+        assertEquals(List.of(1, 2, 3), shopIds(index.nearby(10, 20, 50_000, 3)));
+    }
+
+    @Test
+    void findsShopsInNeighbouringCells() {
+        // 100 m apart but on either side of a cell boundary at latitude 10 and longitude 20
+        ShopGeoIndex index = new ShopGeoIndex(1);
+        index.add(1, 9.9996, 19.9996);
+        index.add(2, 10.0004, 20.0004);
+
+        assertEquals(List.of(1, 2), shopIds(index.nearby(9.9996, 19.9996, 200, 10)));
+    }
+
+    @Test
+    void wrapsAroundTheAntimeridian() {
+        ShopGeoIndex index = new ShopGeoIndex(0.5);
+        index.add(1, 0, 179.999);
+        index.add(2, 0, -179.999);
+        index.add(3, 0, 179.0);
+
+        assertEquals(List.of(1, 2), shopIds(index.nearby(0, 179.9995, 1_000, 10)));
+        assertEquals(List.of(2, 1), shopIds(index.nearby(0, -179.9995, 1_000, 10)));
+    }
+
+    @Test
+    void nearThePoleSearchesEveryLongitude() {
+        ShopGeoIndex index = new ShopGeoIndex(1);
+        index.add(1, 89.99, 0);
+        index.add(2, 89.99, 180);
+        index.add(3, 89.99, -90);
+        index.add(4, 80, 0);
+
+        List<ShopGeoIndex.Hit> hits = index.nearby(90, 0, 5_000, 10);
+
+        assertEquals(3, hits.size());
+        assertTrue(shopIds(hits).containsAll(List.of(1, 2, 3)));
+    }
+
+    @Test
+    void putMovesAShopAndIgnoresRepeats() {
+        ShopGeoIndex index = new ShopGeoIndex(0.1);
+        index.put(1, null, null, 10, 10);
+        index.put(1, null, null, 10, 10);
+        assertEquals(1, index.size());
+
+        index.put(1, 10.0, 10.0, 20, 20);
+
+        assertEquals(1, index.size());
+        assertTrue(index.nearby(10, 10, 1_000, 10).isEmpty());
+        assertEquals(List.of(1), shopIds(index.nearby(20, 20, 1_000, 10)));
+    }
+
+    @Test
+    void removeDropsOnlyTheGivenShop() {
+        ShopGeoIndex index = new ShopGeoIndex(0.1);
+        index.add(1, 10, 10);
+        index.add(2, 10, 10.001);
+        index.add(3, 10, 10.002);
+
+        index.remove(1, 10, 10);
+        index.remove(1, 10, 10);
+        index.remove(2, 50, 50);
+
+        assertEquals(2, index.size());
+        assertEquals(List.of(2, 3), shopIds(index.nearby(10, 10, 1_000, 10)));
+    }
+
+    @Test
+    void matchesABruteForceScan() {
+        SplittableRandom random = new SplittableRandom(11);
+        double[][] shops = new double[5_000][];
+        ShopGeoIndex index = new ShopGeoIndex(0.25);
+        for (int i = 0; i < shops.length; i++) {
+            shops[i] = new double[]{random.nextDouble(-60, 60), random.nextDouble(-180, 180)};
+            index.add(i + 1, shops[i][0], shops[i][1]);
+        }
+
+        for (int q = 0; q < 200; q++) {
+            double latitude = random.nextDouble(-60, 60);
+            double longitude = random.nextDouble(-180, 180);
+            double radius = random.nextDouble(1_000, 500_000);
+            List<Integer> expected = IntStream.range(0, shops.length)
+                    .filter(i -> distance(latitude, longitude, shops[i]) <= radius)
+                    .boxed()
+                    .sorted(Comparator.comparingDouble(i -> distance(latitude, longitude, shops[i])))
+                    .limit(25)
+                    .map(i -> i + 1)
+                    .toList();
+
+            assertEquals(expected, shopIds(index.nearby(latitude, longitude, radius, 25)));
+        }
+    }
+
+    private static double distance(double latitude, double longitude, double[] shop) {
+        return ShopGeoIndex.haversineMeters(Math.toRadians(latitude), Math.toRadians(longitude),
+                Math.toRadians(shop[0]), Math.toRadians(shop[1]));
+    }
+
+    private static List<Integer> shopIds(List<ShopGeoIndex.Hit> hits) {
+        return hits.stream().map(ShopGeoIndex.Hit::shopId).toList();
+    }
+}
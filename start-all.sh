@@ -3,6 +3,10 @@
 # Create logs directory if it doesn't exist
 mkdir -p logs
 
+# Install the module shared by the gateway and the services
+echo "Installing common module..."
+(cd common && mvn -q install -DskipTests) || exit 1
+
 # Start Eureka Server
 echo "Starting Eureka Server..."
 cd eurekaserver
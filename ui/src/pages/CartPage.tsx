@@ -129,16 +129,16 @@ export const CartPage: React.FC = () => {
         paymentMethod: checkoutData.paymentMethod
       });
 
-      // Create order items
-      for (const item of items.filter(i => i.cartId === selectedCartId)) {
-        const product = products[item.productId];
-        if (product) {
-          await api.orderItems.create(order.id, {
-            productId: item.productId,
-            quantity: item.quantity,
-            price: product.price
-          });
-        }
+      // Create all order items in one call; stock is reserved for the whole order at once
+      const lines = items
+        .filter(i => i.cartId === selectedCartId && products[i.productId])
+        .map(i => ({ productId: i.productId, quantity: i.quantity, price: products[i.productId].price }));
+      const result = await api.orderItems.createBatch(order.id, lines);
+      if (result.rejected > 0) {
+        const names = result.lines
+          .filter(line => line.status !== 'CREATED')
+          .map(line => products[line.productId]?.name ?? `#${line.productId}`);
+        alert(`Some items could not be ordered (out of stock): ${names.join(', ')}`);
       }
 
       // Clear cart
@@ -44,8 +44,9 @@ export const OrderReceivedPage: React.FC = () => {
       const productIds = new Set<number>();
       const userIds = new Set<number>();
       
+      const groupedItems = await api.orderItems.getByOrderIds(shopOrders.map(order => order.id));
       for (const order of shopOrders) {
-        const items = await api.orderItems.getByOrderId(order.id);
+        const items = groupedItems[order.id] ?? [];
         itemsMap[order.id] = items;
         items.forEach(item => productIds.add(item.productId));
         userIds.add(order.userId);
@@ -28,8 +28,9 @@ export const OrdersPage: React.FC = () => {
       const itemsMap: Record<number, OrderItem[]> = {};
       const productIds = new Set<number>();
       
+      const groupedItems = await api.orderItems.getByOrderIds(userOrders.map(order => order.id));
       for (const order of userOrders) {
-        const items = await api.orderItems.getByOrderId(order.id);
+        const items = groupedItems[order.id] ?? [];
         itemsMap[order.id] = items;
         items.forEach(item => productIds.add(item.productId));
       }
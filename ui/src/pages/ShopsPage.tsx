@@ -2,10 +2,11 @@ import React, { useEffect, useState } from 'react';
 import { Link } from 'react-router-dom';
 import { Container, Section, Grid } from '../components/Layout';
 import { Button, Card, LoadingSpinner } from '../components/UI';
-import { api, Shop } from '../services/apiClient';
+import { api, Shop, ShopSummary } from '../services/apiClient';
 
 export const ShopsPage: React.FC = () => {
   const [shops, setShops] = useState<Shop[]>([]);
+  const [summaries, setSummaries] = useState<Record<number, ShopSummary>>({});
   const [loading, setLoading] = useState(true);
 
   useEffect(() => {
@@ -16,6 +17,13 @@ export const ShopsPage: React.FC = () => {
     try {
       const shopsData = await api.shops.getAll();
       setShops(shopsData);
+      // Counts come from one cached summary call instead of per-shop product/order requests
+      try {
+        const summaryData = await api.shops.getSummaries(shopsData.map(shop => shop.id));
+        setSummaries(Object.fromEntries(summaryData.map(summary => [summary.id, summary])));
+      } catch (error) {
+        console.error('Error loading shop summaries:', error);
+      }
     } catch (error) {
       console.error('Error loading shops:', error);
     } finally {
@@ -102,6 +110,15 @@ export const ShopsPage: React.FC = () => {
                     )}
                   </div>
                   
+                  {summaries[shop.id]?.productCount != null && (
+                    <div className="shop-stats">
+                      <span>{summaries[shop.id].productCount} products</span>
+                      {summaries[shop.id].recentOrderCount != null && (
+                        <span>{summaries[shop.id].recentOrderCount} orders in the last {summaries[shop.id].recentDays} days</span>
+                      )}
+                    </div>
+                  )}
+
                   <div className="shop-status">
                     <span className={`status-badge ${shop.isActive ? 'active' : 'inactive'}`}>
                       {shop.isActive ? 'Active' : 'Inactive'}
@@ -207,6 +224,14 @@ export const ShopsPage: React.FC = () => {
           margin-bottom: var(--spacing-md);
         }
 
+        .shop-stats {
+          display: flex;
+          gap: var(--spacing-md);
+          font-size: 0.875rem;
+          color: var(--subtext-gray);
+          margin-bottom: var(--spacing-sm);
+        }
+
         .shop-location {
           display: flex;
           align-items: center;
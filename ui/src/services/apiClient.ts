@@ -55,6 +55,17 @@ export const api = {
     getAll: () => request<Shop[]>('/api/shops', 'GET'),
     getById: (id: number) => request<Shop>(`/api/shops/${id}`, 'GET'),
     getByOwnerId: (ownerId: number) => request<Shop[]>(`/api/shops/owner/${ownerId}`, 'GET'),
+    getNearby: (lat: number, lon: number, radiusMeters = 5000, limit = 20) =>
+      request<NearbyShop[]>(`/api/shops/nearby?lat=${lat}&lon=${lon}&radius=${radiusMeters}&limit=${limit}`, 'GET'),
+    // Backend caps a single call at 100 shop IDs, so longer listings are fetched in chunks
+    getSummaries: async (shopIds: number[]) => {
+      const summaries: ShopSummary[] = [];
+      for (let i = 0; i < shopIds.length; i += 100) {
+        const chunk = shopIds.slice(i, i + 100);
+        summaries.push(...await request<ShopSummary[]>(`/api/shops/summary?ids=${chunk.join(',')}`, 'GET'));
+      }
+      return summaries;
+    },
     create: (shop: CreateShopRequest) => request<Shop>('/api/shops', 'POST', shop),
     update: (id: number, shop: UpdateShopRequest) => request<Shop>(`/api/shops/${id}`, 'PUT', shop)
   },
@@ -95,6 +106,13 @@ export const api = {
     getByUserId: (userId: number) => request<Order[]>(`/api/orders/user/${userId}`, 'GET'),
     getByShopId: (shopId: number) => request<Order[]>(`/api/orders/shop/${shopId}`, 'GET'),
     getById: (id: number) => request<Order>(`/api/orders/${id}`, 'GET'),
+    getWithItems: (params: { userId?: number; shopId?: number; page?: number; size?: number }) => {
+      const query = new URLSearchParams();
+      Object.entries(params).forEach(([key, value]) => {
+        if (value !== undefined) query.set(key, String(value));
+      });
+      return request<OrderWithItemsPage>(`/api/orders/with-items?${query}`, 'GET');
+    },
     create: (order: CreateOrderRequest) => request<Order>('/api/orders', 'POST', order),
     update: (id: number, order: UpdateOrderRequest) => request<Order>(`/api/orders/${id}`, 'PUT', order),
     updateStatus: (id: number, status: string) => request<Order>(`/api/orders/${id}/status`, 'PUT', status)
@@ -103,7 +121,18 @@ export const api = {
   // Order Item Service
   orderItems: {
     getByOrderId: (orderId: number) => request<OrderItem[]>(`/api/order-items/order/${orderId}`, 'GET'),
-    create: (orderId: number, item: CreateOrderItemRequest) => request<OrderItem>(`/api/order-items`, 'POST', { ...item, orderId })
+    // Backend caps a single call at 200 order IDs, so larger histories are fetched in chunks
+    getByOrderIds: async (orderIds: number[]) => {
+      const grouped: Record<number, OrderItem[]> = {};
+      for (let i = 0; i < orderIds.length; i += 200) {
+        const chunk = orderIds.slice(i, i + 200);
+        Object.assign(grouped, await request<Record<number, OrderItem[]>>(`/api/order-items?orderIds=${chunk.join(',')}`, 'GET'));
+      }
+      return grouped;
+    },
+    create: (orderId: number, item: CreateOrderItemRequest) => request<OrderItem>(`/api/order-items`, 'POST', { ...item, orderId }),
+    createBatch: (orderId: number, items: CreateOrderItemRequest[]) =>
+      request<OrderItemBatchResult>(`/api/order-items/batch`, 'POST', items.map(item => ({ ...item, orderId })))
   }
 };
 
@@ -148,11 +177,26 @@ export interface Shop {
   email?: string;
   website?: string;
   logo?: string;
+  latitude?: number;
+  longitude?: number;
   isActive: boolean;
   createdAt: string;
   updatedAt: string;
 }
 
+export interface NearbyShop extends Shop {
+  distanceMeters: number;
+}
+
+export interface ShopSummary extends Shop {
+  productCount: number | null;
+  outOfStockCount: number | null;
+  recentOrderCount: number | null;
+  recentRevenue: number | null;
+  recentDays: number;
+  computedAt: string;
+}
+
 export interface Product {
   id: number;
   name: string;
@@ -202,6 +246,17 @@ export interface Order {
   updatedAt: string;
 }
 
+export interface OrderWithItems extends Order {
+  items: OrderItem[];
+}
+
+export interface OrderWithItemsPage {
+  content: OrderWithItems[];
+  page: number;
+  size: number;
+  hasNext: boolean;
+}
+
 export interface OrderItem {
   id: number;
   orderId: number;
@@ -212,6 +267,22 @@ export interface OrderItem {
   updatedAt: string;
 }
 
+export interface OrderItemLineResult {
+  line: number;
+  productId: number;
+  quantity: number;
+  status: 'CREATED' | 'INSUFFICIENT_STOCK' | 'PRODUCT_NOT_FOUND' | 'INVALID';
+  orderItem?: OrderItem;
+  availableStock?: number;
+  message?: string;
+}
+
+export interface OrderItemBatchResult {
+  created: number;
+  rejected: number;
+  lines: OrderItemLineResult[];
+}
+
 // Request types
 export interface LoginRequest {
   email: string;
@@ -228,6 +299,8 @@ export interface RegisterRequest {
 export interface LoginResponse {
   user: User;
   token: string;
+  // Epoch seconds after which the gateway no longer accepts the token
+  expiresAt: number;
 }
 
 export interface CreateUserRequest {
@@ -281,6 +354,8 @@ export interface CreateShopRequest {
   email?: string;
   website?: string;
   logo?: string;
+  latitude?: number;
+  longitude?: number;
 }
 
 export interface UpdateShopRequest {
@@ -296,6 +371,8 @@ export interface UpdateShopRequest {
   website?: string;
   logo?: string;
   isActive?: boolean;
+  latitude?: number;
+  longitude?: number;
 }
 
 export interface CreateProductRequest {
@@ -0,0 +1,186 @@
+package com.shopsquare.userservice.auth;
+
+import com.shopsquare.userservice.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs BCrypt on a dedicated pool with one thread per core and a bounded queue, so a burst of logins
+ * cannot occupy every request thread and CPU at once. Work beyond {@code password.hashing.queue-capacity}
+ * is refused with {@link PasswordHashingBusyException} rather than queued. Also decides when a stored
+ * hash should be replaced: when it was made with a different cost than {@code password.bcrypt.strength},
+ * or when it is a legacy plaintext password.
+ */
+@Component
+public class PasswordHasher {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHasher.class);
+
+    private static final Pattern BCRYPT = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$[./A-Za-z0-9]{53}$");
+
+    private final PasswordEncoder passwordEncoder;
+    private final MeterRegistry meterRegistry;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    @Value("${password.bcrypt.strength:10}")
+    private int strength;
+
+    // 0 means one thread per available core
+    @Value("${password.hashing.threads:0}")
+    private int threadCount;
+
+    @Value("${password.hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${password.hashing.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private ThreadPoolExecutor executor;
+    private Timer hashCpu;
+    private Timer verifyCpu;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.meterRegistry = meterRegistry.getIfAvailable();
+    }
+
+    @PostConstruct
+    void init() {
+        int size = threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        if (meterRegistry != null) {
+            hashCpu = cpuTimer("hash");
+            verifyCpu = cpuTimer("verify");
+            Gauge.builder("auth.password.queue", executor, pool -> pool.getQueue().size())
+                    .description("Password hashes waiting for a hashing thread")
+                    .register(meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * BCrypt hash of {@code rawPassword} at the configured cost.
+     */
+    public String hash(String rawPassword) {
+        return await(submit(() -> passwordEncoder.encode(rawPassword), hashCpu));
+    }
+
+    /**
+     * Whether {@code rawPassword} matches {@code storedHash}, which may still be a legacy plaintext value.
+     */
+    public boolean matches(String rawPassword, String storedHash) {
+        if (!isBcrypt(storedHash)) {
+            return MessageDigest.isEqual(rawPassword.getBytes(StandardCharsets.UTF_8),
+                    storedHash.getBytes(StandardCharsets.UTF_8));
+        }
+        return await(submit(() -> passwordEncoder.matches(rawPassword, storedHash), verifyCpu));
+    }
+
+    /**
+     * Whether {@code storedHash} should be replaced by a fresh hash of the same password.
+     */
+    public boolean needsRehash(String storedHash) {
+        Matcher bcrypt = BCRYPT.matcher(storedHash);
+        return !bcrypt.matches() || Integer.parseInt(bcrypt.group(1)) != strength;
+    }
+
+    /**
+     * Hashes {@code rawPassword} in the background and hands the result to {@code store}. Skipped when
+     * the pool is busy: a password that was not upgraded now will be on a later login.
+     */
+    public void rehashInBackground(String rawPassword, Consumer<String> store) {
+        try {
+            submit(() -> {
+                store.accept(passwordEncoder.encode(rawPassword));
+                return null;
+            }, hashCpu);
+        } catch (PasswordHashingBusyException e) {
+            log.debug("Skipped password rehash; hashing pool is busy");
+        }
+    }
+
+    private static boolean isBcrypt(String storedHash) {
+        return storedHash.startsWith("$2");
+    }
+
+    private <T> Future<T> submit(Callable<T> work, Timer cpuTimer) {
+        try {
+            return executor.submit(() -> {
+                long cpuStart = threads.getCurrentThreadCpuTime();
+                try {
+                    return work.call();
+                } finally {
+                    if (cpuTimer != null && cpuStart >= 0) {
+                        cpuTimer.record(threads.getCurrentThreadCpuTime() - cpuStart, TimeUnit.NANOSECONDS);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (meterRegistry != null) {
+                meterRegistry.counter("auth.password.rejected").increment();
+            }
+            throw new PasswordHashingBusyException("Too many password checks in progress", e);
+        }
+    }
+
+    private <T> T await(Future<T> result) {
+        try {
+            return result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            throw new PasswordHashingBusyException("Password check took too long", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            throw new PasswordHashingBusyException("Interrupted while checking password", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private Timer cpuTimer(String operation) {
+        return Timer.builder("auth.password.cpu")
+                .description("CPU time spent hashing or checking one password")
+                .tag("operation", operation)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+}
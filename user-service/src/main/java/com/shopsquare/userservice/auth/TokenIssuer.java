@@ -0,0 +1,304 @@
+package com.shopsquare.userservice.auth;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopsquare.userservice.entity.Role;
+import com.shopsquare.userservice.entity.SigningKey;
+import com.shopsquare.userservice.entity.User;
+import com.shopsquare.userservice.exception.SigningKeyUnavailableException;
+import com.shopsquare.userservice.repository.SigningKeyRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Issues short-lived access tokens: compact JWTs signed with RS256, carrying the user ID as
+ * {@code sub} and the role as {@code role}. The gateway verifies them against the keys published by
+ * {@link #publishedKeys()}, so checking a request never reaches this service. RSA is slow to sign but
+ * fast to verify, which suits one signature per login and one check per request. Keys live in the
+ * {@code signing_keys} table so every replica signs with the same key; replicas pick up a rotation
+ * made on another one within {@code token.key-refresh-ms}. Creating a key is serialized by the
+ * table's unique active marker: of two replicas starting on an empty table, or two concurrent
+ * rotations, one creates the key and the other adopts it.
+ */
+@Component
+public class TokenIssuer {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenIssuer.class);
+
+    private static final int KEY_SIZE = 2048;
+
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private final SigningKeyRepository signingKeyRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${token.issuer:user-service}")
+    private String issuer;
+
+    @Value("${token.ttl-seconds:900}")
+    private long ttlSeconds;
+
+    // Extra time retired keys stay published, covering clock skew between services
+    @Value("${token.retired-key-grace-seconds:300}")
+    private long retiredKeyGraceSeconds;
+
+    private volatile ActiveKey activeKey;
+    private volatile List<Map<String, Object>> publishedKeys = List.of();
+    private volatile Map<String, RSAPublicKey> verificationKeys = Map.of();
+
+    public TokenIssuer(SigningKeyRepository signingKeyRepository, ObjectMapper objectMapper,
+                       TransactionTemplate transactionTemplate) {
+        this.signingKeyRepository = signingKeyRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public record IssuedToken(String token, long expiresAt) {}
+
+    @PostConstruct
+    void init() {
+        refresh();
+        if (activeKey == null) {
+            createKey(false);
+        }
+    }
+
+    /**
+     * Signs a token for {@code user} with the active key.
+     *
+     * @throws SigningKeyUnavailableException if no signing key could be loaded
+     */
+    public IssuedToken issue(User user) {
+        ActiveKey key = activeKey;
+        if (key == null) {
+            refresh();
+            key = activeKey;
+            if (key == null) {
+                throw new SigningKeyUnavailableException("No active token signing key in signing_keys");
+            }
+        }
+        long now = Instant.now().getEpochSecond();
+        long expiresAt = now + ttlSeconds;
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("iss", issuer);
+        claims.put("sub", String.valueOf(user.getId()));
+        claims.put("role", user.getRole().name());
+        claims.put("iat", now);
+        claims.put("exp", expiresAt);
+        String signingInput = key.encodedHeader() + "." + base64Json(claims);
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(key.privateKey());
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return new IssuedToken(signingInput + "." + BASE64_URL.encodeToString(signature.sign()), expiresAt);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign access token", e);
+        }
+    }
+
+    /**
+     * Creates a new signing key and retires all others. Tokens already issued stay valid until they
+     * expire, because retired keys remain published until then. If another rotation commits first,
+     * its key is kept and returned instead.
+     */
+    public String rotate() {
+        return createKey(true);
+    }
+
+    /**
+     * The role claimed by {@code token} if this service signed it with a key still published and it
+     * has not expired; used where the caller's identity cannot be taken from gateway headers.
+     */
+    public Optional<String> verifiedRole(String token) {
+        String[] parts = token.split("\\.", -1);
+        if (parts.length != 3) {
+            return Optional.empty();
+        }
+        try {
+            JsonNode header = objectMapper.readTree(Base64.getUrlDecoder().decode(parts[0]));
+            RSAPublicKey key = verificationKeys.get(header.path("kid").asText());
+            if (!"RS256".equals(header.path("alg").asText()) || key == null) {
+                return Optional.empty();
+            }
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initVerify(key);
+            signature.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+            if (!signature.verify(Base64.getUrlDecoder().decode(parts[2]))) {
+                return Optional.empty();
+            }
+            JsonNode claims = objectMapper.readTree(Base64.getUrlDecoder().decode(parts[1]));
+            if (!issuer.equals(claims.path("iss").asText())
+                    || claims.path("exp").asLong(0) < Instant.now().getEpochSecond()
+                    || !claims.hasNonNull("role")) {
+                return Optional.empty();
+            }
+            return Optional.of(claims.get("role").asText());
+        } catch (IOException | IllegalArgumentException | GeneralSecurityException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Whether {@code authorization}, an Authorization header value, carries a valid administrator's token.
+     */
+    public boolean isAdmin(String authorization) {
+        String token = bearerToken(authorization);
+        return token != null && verifiedRole(token).filter(Role.ADMIN.name()::equals).isPresent();
+    }
+
+    /**
+     * The token in a {@code Bearer} Authorization header value, or {@code null} if there is none.
+     */
+    public static String bearerToken(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return authorization.substring(7).trim();
+    }
+
+    // Without retireCurrent, only creates a key if none is active, as on a cold start
+    private String createKey(boolean retireCurrent) {
+        KeyPair keyPair;
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(KEY_SIZE);
+            keyPair = generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("RSA is not available", e);
+        }
+        SigningKey key = new SigningKey(
+                UUID.randomUUID().toString(),
+                Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()),
+                Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (retireCurrent) {
+                    signingKeyRepository.retireAll(LocalDateTime.now());
+                }
+                signingKeyRepository.saveAndFlush(key);
+            });
+            log.info("Created token signing key {}", key.getKid());
+        } catch (DataIntegrityViolationException e) {
+            // Another replica's key holds the active marker; sign with that one
+            log.info("Token signing key was created concurrently; using the other replica's key");
+        }
+        refresh();
+        ActiveKey active = activeKey;
+        if (active == null) {
+            throw new SigningKeyUnavailableException("No active token signing key in signing_keys");
+        }
+        return active.kid();
+    }
+
+    /**
+     * Public half of every key whose tokens may still be valid, as JWK entries.
+     */
+    public List<Map<String, Object>> publishedKeys() {
+        return publishedKeys;
+    }
+
+    @Scheduled(fixedDelayString = "${token.key-refresh-ms:60000}", initialDelayString = "${token.key-refresh-ms:60000}")
+    public void refresh() {
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(ttlSeconds + retiredKeyGraceSeconds);
+        signingKeyRepository.deleteRetiredBefore(cutoff);
+        List<SigningKey> keys = signingKeyRepository.findByRetiredAtIsNullOrRetiredAtAfterOrderByCreatedAtDesc(cutoff);
+
+        ActiveKey active = null;
+        List<Map<String, Object>> published = new ArrayList<>(keys.size());
+        Map<String, RSAPublicKey> verification = new LinkedHashMap<>();
+        for (SigningKey key : keys) {
+            RSAPublicKey publicKey = toPublicKey(key);
+            verification.put(key.getKid(), publicKey);
+            Map<String, Object> jwk = new LinkedHashMap<>();
+            jwk.put("kty", "RSA");
+            jwk.put("use", "sig");
+            jwk.put("alg", "RS256");
+            jwk.put("kid", key.getKid());
+            jwk.put("n", base64Unsigned(publicKey.getModulus()));
+            jwk.put("e", base64Unsigned(publicKey.getPublicExponent()));
+            published.add(jwk);
+            // Newest first, so the first unretired key is the one to sign with
+            if (active == null && key.getRetiredAt() == null) {
+                active = toActiveKey(key);
+            }
+        }
+        publishedKeys = List.copyOf(published);
+        verificationKeys = Map.copyOf(verification);
+        if (active != null) {
+            activeKey = active;
+        }
+    }
+
+    private static RSAPublicKey toPublicKey(SigningKey key) {
+        try {
+            return (RSAPublicKey) KeyFactory.getInstance("RSA")
+                    .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(key.getPublicKey())));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Signing key " + key.getKid() + " cannot be loaded", e);
+        }
+    }
+
+    private ActiveKey toActiveKey(SigningKey key) {
+        try {
+            PrivateKey privateKey = KeyFactory.getInstance("RSA")
+                    .generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(key.getPrivateKey())));
+            Map<String, Object> header = new LinkedHashMap<>();
+            header.put("alg", "RS256");
+            header.put("typ", "JWT");
+            header.put("kid", key.getKid());
+            return new ActiveKey(key.getKid(), privateKey, base64Json(header));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Signing key " + key.getKid() + " cannot be loaded", e);
+        }
+    }
+
+    // JWK integers are unsigned big-endian, without the sign byte BigInteger may add
+    private static String base64Unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return BASE64_URL.encodeToString(bytes);
+    }
+
+    private String base64Json(Map<String, Object> value) {
+        try {
+            return BASE64_URL.encodeToString(objectMapper.writeValueAsBytes(value));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record ActiveKey(String kid, PrivateKey privateKey, String encodedHeader) {}
+}
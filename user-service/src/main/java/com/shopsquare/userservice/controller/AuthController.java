@@ -1,29 +1,47 @@
 package com.shopsquare.userservice.controller;
 
+import com.shopsquare.userservice.auth.PasswordHasher;
+import com.shopsquare.userservice.auth.TokenIssuer;
 import com.shopsquare.userservice.entity.Role;
 import com.shopsquare.userservice.entity.User;
+import com.shopsquare.userservice.exception.PasswordHashingBusyException;
+import com.shopsquare.userservice.exception.SigningKeyUnavailableException;
 import com.shopsquare.userservice.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/users")
 public class AuthController {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
+    private final TokenIssuer tokenIssuer;
+    private final MeterRegistry meterRegistry;
 
-    public AuthController(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public AuthController(UserRepository userRepository, PasswordHasher passwordHasher, TokenIssuer tokenIssuer,
+                          ObjectProvider<MeterRegistry> meterRegistry) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
+        this.tokenIssuer = tokenIssuer;
+        this.meterRegistry = meterRegistry.getIfAvailable();
     }
 
+    // Anyone may sign up as a customer or a seller; an administrator account needs an administrator's token,
+    // since the role is signed into every access token the gateway trusts
     @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody Map<String, Object> body) {
+    public ResponseEntity<?> register(@RequestBody Map<String, Object> body,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
         try {
             // Properly handle null values
             String email = body.get("email") != null ? String.valueOf(body.get("email")) : null;
@@ -56,12 +74,16 @@ public class AuthController {
             } catch (IllegalArgumentException e) {
                 role = Role.CUSTOMER; // Default to CUSTOMER if invalid role
             }
+            if (role == Role.ADMIN && !tokenIssuer.isAdmin(authorization)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body("Only administrators can create administrator accounts");
+            }
 
             // Create and save user
             User user = new User();
             user.setEmail(email.trim());
             user.setName(name.trim());
-            user.setPasswordHash(passwordEncoder.encode(password));
+            user.setPasswordHash(passwordHasher.hash(password));
             user.setRole(role);
             userRepository.save(user);
 
@@ -71,6 +93,8 @@ public class AuthController {
                     "email", user.getEmail(),
                     "role", user.getRole()
             ));
+        } catch (PasswordHashingBusyException ex) {
+            return busy();
         } catch (Exception ex) {
             // Log the exception for debugging
             System.err.println("Registration error: " + ex.getMessage());
@@ -92,6 +116,29 @@ public class AuthController {
 
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody Map<String, Object> body) {
+        long start = System.nanoTime();
+        ResponseEntity<?> response;
+        try {
+            response = authenticate(body);
+        } catch (PasswordHashingBusyException e) {
+            response = busy();
+        } catch (SigningKeyUnavailableException e) {
+            response = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body("Sign-in is temporarily unavailable, please retry");
+        }
+        if (meterRegistry != null) {
+            Timer.builder("auth.login")
+                    .description("Login latency, including the wait for a hashing thread")
+                    .tag("status", String.valueOf(response.getStatusCode().value()))
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return response;
+    }
+
+    private ResponseEntity<?> authenticate(Map<String, Object> body) {
         // Properly handle null values
         String email = body.get("email") != null ? String.valueOf(body.get("email")) : null;
         String password = body.get("password") != null ? String.valueOf(body.get("password")) : null;
@@ -105,21 +152,20 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid credentials");
         }
 
-        // Debug: Check if password hash is BCrypt format
-        boolean isPasswordValid;
-        if (user.getPasswordHash().startsWith("$2a$") || user.getPasswordHash().startsWith("$2b$")) {
-            // BCrypt hash
-            isPasswordValid = passwordEncoder.matches(password, user.getPasswordHash());
-        } else {
-            // Plain text (for backward compatibility with existing users)
-            isPasswordValid = password.equals(user.getPasswordHash());
-        }
-        
-        if (!isPasswordValid) {
+        // Plain text hashes are still accepted (for backward compatibility with existing users)
+        String storedHash = user.getPasswordHash();
+        if (!passwordHasher.matches(password, storedHash)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid credentials");
         }
+        // Upgrade plain text and other-cost hashes; only if nobody changed the password meanwhile
+        if (passwordHasher.needsRehash(storedHash)) {
+            Integer userId = user.getId();
+            passwordHasher.rehashInBackground(password,
+                    newHash -> userRepository.replacePasswordHash(userId, storedHash, newHash));
+        }
 
         // Minimal response compatible with UI structure
+        TokenIssuer.IssuedToken token = tokenIssuer.issue(user);
         return ResponseEntity.ok(Map.of(
                 "user", Map.of(
                         "id", user.getId(),
@@ -127,9 +173,38 @@ public class AuthController {
                         "email", user.getEmail(),
                         "role", user.getRole().name()
                 ),
-                "token", "dummy-token"
+                "token", token.token(),
+                "expiresAt", token.expiresAt()
         ));
     }
+
+    private static ResponseEntity<String> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many sign-ins in progress, please retry");
+    }
+
+    // Public keys for verifying access tokens (JWK set); the gateway caches them
+    @GetMapping("/auth/keys")
+    public ResponseEntity<Map<String, List<Map<String, Object>>>> signingKeys() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(60, TimeUnit.SECONDS))
+                .body(Map.of("keys", tokenIssuer.publishedKeys()));
+    }
+
+    // The admin token is checked here rather than trusting X-User-Role, since this port is reachable
+    // without passing through the gateway
+    @PostMapping("/auth/keys/rotate")
+    public ResponseEntity<?> rotateSigningKey(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        if (TokenIssuer.bearerToken(authorization) == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("An administrator's access token is required");
+        }
+        if (!tokenIssuer.isAdmin(authorization)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Only administrators can rotate signing keys");
+        }
+        return ResponseEntity.ok(Map.of("kid", tokenIssuer.rotate()));
+    }
 }
 
 
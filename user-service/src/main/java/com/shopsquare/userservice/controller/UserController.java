@@ -1,5 +1,7 @@
 package com.shopsquare.userservice.controller;
 
+import com.shopsquare.userservice.auth.TokenIssuer;
+import com.shopsquare.userservice.entity.Role;
 import com.shopsquare.userservice.entity.User;
 import com.shopsquare.userservice.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -7,6 +9,9 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -18,19 +23,26 @@ import java.util.Optional;
 public class UserController {
 
     private final UserService userService;
+    private final TokenIssuer tokenIssuer;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, TokenIssuer tokenIssuer) {
         this.userService = userService;
+        this.tokenIssuer = tokenIssuer;
     }
 
     @PostMapping
     @Operation(summary = "Create a new user", description = "Creates a new user in the system")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "User created successfully"),
-            @ApiResponse(responseCode = "400", description = "Invalid input data")
+            @ApiResponse(responseCode = "400", description = "Invalid input data"),
+            @ApiResponse(responseCode = "403", description = "Only administrators can create administrators")
     })
-    public User createUser(@RequestBody User user) {
-        return userService.createUser(user);
+    public ResponseEntity<User> createUser(@RequestBody User user,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        if (user.getRole() == Role.ADMIN && !tokenIssuer.isAdmin(authorization)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(userService.createUser(user));
     }
 
     @GetMapping
@@ -54,18 +66,49 @@ public class UserController {
         return userService.getUserById(id);
     }
 
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    @Operation(summary = "Check that a user exists", description = "Answers 200 or 404 with no body, from a primary-key lookup")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "User exists"),
+            @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    public ResponseEntity<Void> userExists(
+            @Parameter(description = "ID of the user to check", required = true)
+            @PathVariable Integer id) {
+        return userService.userExists(id) ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/exists")
+    @Operation(summary = "Check which users exist", description = "Returns the given IDs that belong to existing users, from one primary-key query")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "IDs of the users that exist"),
+            @ApiResponse(responseCode = "400", description = "Too many IDs in one request")
+    })
+    public ResponseEntity<List<Integer>> findExistingUsers(@RequestBody List<Integer> ids) {
+        try {
+            return ResponseEntity.ok(userService.findExistingUserIds(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Update user", description = "Updates an existing user's information")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "User updated successfully"),
             @ApiResponse(responseCode = "404", description = "User not found"),
-            @ApiResponse(responseCode = "400", description = "Invalid input data")
+            @ApiResponse(responseCode = "400", description = "Invalid input data"),
+            @ApiResponse(responseCode = "403", description = "Only administrators can make a user an administrator")
     })
-    public User updateUser(
+    public ResponseEntity<User> updateUser(
             @Parameter(description = "ID of the user to update", required = true)
             @PathVariable Integer id, 
-            @RequestBody User user) {
-        return userService.updateUser(id, user);
+            @RequestBody User user,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        if (user.getRole() == Role.ADMIN && !tokenIssuer.isAdmin(authorization)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(userService.updateUser(id, user));
     }
 
     @DeleteMapping("/{id}")
@@ -0,0 +1,72 @@
+package com.shopsquare.userservice.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * RSA key pair used to sign access tokens. Only the newest unretired key signs; retired keys stay
+ * published until every token they signed has expired. {@code active} is set on the key created as
+ * the signing key and cleared when it retires; its unique constraint stops two replicas from each
+ * creating one at once.
+ */
+@Entity
+@Table(name = "signing_keys")
+public class SigningKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "signing_keys_seq")
+    @SequenceGenerator(name = "signing_keys_seq", sequenceName = "signing_keys_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String kid;
+
+    // Base64 of the X.509 encoding
+    @Column(name = "public_key", nullable = false, length = 1024)
+    private String publicKey;
+
+    // Base64 of the PKCS#8 encoding
+    @Column(name = "private_key", nullable = false, length = 4096)
+    private String privateKey;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "retired_at")
+    private LocalDateTime retiredAt;
+
+    // TRUE or NULL, so any number of retired keys fit under the unique constraint
+    @Column(name = "active", unique = true)
+    private Boolean active;
+
+    public SigningKey() {}
+
+    public SigningKey(String kid, String publicKey, String privateKey) {
+        this.kid = kid;
+        this.publicKey = publicKey;
+        this.privateKey = privateKey;
+        this.createdAt = LocalDateTime.now();
+        this.active = Boolean.TRUE;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getKid() { return kid; }
+    public void setKid(String kid) { this.kid = kid; }
+
+    public String getPublicKey() { return publicKey; }
+    public void setPublicKey(String publicKey) { this.publicKey = publicKey; }
+
+    public String getPrivateKey() { return privateKey; }
+    public void setPrivateKey(String privateKey) { this.privateKey = privateKey; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getRetiredAt() { return retiredAt; }
+    public void setRetiredAt(LocalDateTime retiredAt) { this.retiredAt = retiredAt; }
+
+    public Boolean getActive() { return active; }
+    public void setActive(Boolean active) { this.active = active; }
+}
@@ -0,0 +1,12 @@
+package com.shopsquare.userservice.exception;
+
+/**
+ * Thrown when the password-hashing queue is full, or a hash did not finish in time; the caller
+ * should answer 503 so the client retries later instead of piling onto an overloaded instance.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
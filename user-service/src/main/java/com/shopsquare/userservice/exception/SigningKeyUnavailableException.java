@@ -0,0 +1,12 @@
+package com.shopsquare.userservice.exception;
+
+/**
+ * Thrown when no token signing key could be loaded, so no access token can be issued; the caller
+ * should answer 503 rather than fail the sign-in as if the credentials were wrong.
+ */
+public class SigningKeyUnavailableException extends RuntimeException {
+
+    public SigningKeyUnavailableException(String message) {
+        super(message);
+    }
+}
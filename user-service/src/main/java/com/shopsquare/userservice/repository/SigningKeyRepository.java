@@ -0,0 +1,30 @@
+package com.shopsquare.userservice.repository;
+
+import com.shopsquare.userservice.entity.SigningKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SigningKeyRepository extends JpaRepository<SigningKey, Long> {
+
+    // Keys that still sign, or that retired recently enough for their tokens to be valid
+    List<SigningKey> findByRetiredAtIsNullOrRetiredAtAfterOrderByCreatedAtDesc(LocalDateTime retiredAfter);
+
+    // Frees the active slot for the next key
+    @Transactional
+    @Modifying
+    @Query("UPDATE SigningKey k SET k.retiredAt = :now, k.active = NULL WHERE k.retiredAt IS NULL")
+    int retireAll(@Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SigningKey k WHERE k.retiredAt < :retiredBefore")
+    int deleteRetiredBefore(@Param("retiredBefore") LocalDateTime retiredBefore);
+}
@@ -8,6 +8,8 @@ public interface UserService {
     User createUser(User user);
     List<User> getAllUsers();
     Optional<User> getUserById(Integer id);
+    boolean userExists(Integer id);
+    List<Integer> findExistingUserIds(List<Integer> ids);
     User updateUser(Integer id, User user);
     void deleteUser(Integer id);
 }
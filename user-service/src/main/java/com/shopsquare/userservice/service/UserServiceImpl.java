@@ -3,8 +3,10 @@ package com.shopsquare.userservice.service;
 import com.shopsquare.userservice.entity.User;
 import com.shopsquare.userservice.repository.UserRepository;
 import com.shopsquare.userservice.service.UserService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +15,9 @@ public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
 
+    @Value("${user.exists.max-ids:1000}")
+    private int maxExistsIds;
+
     public UserServiceImpl(UserRepository userRepository) {
         this.userRepository = userRepository;
     }
@@ -32,6 +37,20 @@ public class UserServiceImpl implements UserService {
         return userRepository.findById(id);
     }
 
+    @Override
+    public boolean userExists(Integer id) {
+        return userRepository.existsById(id);
+    }
+
+    @Override
+    public List<Integer> findExistingUserIds(List<Integer> ids) {
+        LinkedHashSet<Integer> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.size() > maxExistsIds) {
+            throw new IllegalArgumentException("At most " + maxExistsIds + " user IDs may be checked at once");
+        }
+        return distinctIds.isEmpty() ? List.of() : userRepository.findExistingIds(distinctIds);
+    }
+
     @Override
     public User updateUser(Integer id, User user) {
         return userRepository.findById(id).map(existingUser -> {
@@ -0,0 +1,108 @@
+package com.shopsquare.userservice.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopsquare.userservice.auth.PasswordHasher;
+import com.shopsquare.userservice.entity.Role;
+import com.shopsquare.userservice.entity.User;
+import com.shopsquare.userservice.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:auth;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "eureka.client.enabled=false"
+})
+@AutoConfigureMockMvc
+class AuthControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Test
+    void selfRegisteredAdminCannotRotateKeys() throws Exception {
+        register(Map.of("email", "mallory@example.com", "name", "Mallory", "password", "secret", "role", "ADMIN"), null)
+                .andExpect(status().isForbidden());
+        assertNull(userRepository.findByEmail("mallory@example.com"));
+
+        // Signing up as a customer works, but that token cannot rotate keys either
+        register(Map.of("email", "mallory2@example.com", "name", "Mallory", "password", "secret"), null)
+                .andExpect(status().isOk());
+        String token = login("mallory2@example.com", "secret");
+        rotate(token).andExpect(status().isForbidden());
+        rotate(null).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void administratorCanCreateAdministratorsAndRotateKeys() throws Exception {
+        userRepository.save(new User("root@example.com", "Root", passwordHasher.hash("secret"), Role.ADMIN));
+        String token = login("root@example.com", "secret");
+
+        register(Map.of("email", "ops@example.com", "name", "Ops", "password", "secret", "role", "ADMIN"), token)
+                .andExpect(status().isOk());
+        assertEquals(Role.ADMIN, userRepository.findByEmail("ops@example.com").getRole());
+        rotate(token).andExpect(status().isOk());
+    }
+
+    @Test
+    void userEndpointsCannotGrantAdministrator() throws Exception {
+        mvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(Map.of("email", "eve@example.com", "name", "Eve",
+                                "passwordHash", "secret", "role", "ADMIN"))))
+                .andExpect(status().isForbidden());
+    }
+
+    private ResultActions register(Map<String, Object> body, String token) throws Exception {
+        var request = post("/api/users/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(body));
+        if (token != null) {
+            request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        }
+        return mvc.perform(request);
+    }
+
+    private ResultActions rotate(String token) throws Exception {
+        var request = post("/api/users/auth/keys/rotate");
+        if (token != null) {
+            request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        }
+        return mvc.perform(request);
+    }
+
+    private String login(String email, String password) throws Exception {
+        String response = mvc.perform(post("/api/users/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(Map.of("email", email, "password", password))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode json = mapper.readTree(response);
+        return json.get("token").asText();
+    }
+}